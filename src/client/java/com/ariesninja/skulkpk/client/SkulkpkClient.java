@@ -8,6 +8,9 @@ import com.ariesninja.skulkpk.client.license.LicenseInputScreen;
 import com.ariesninja.skulkpk.client.license.LicenseManager;
 import com.ariesninja.skulkpk.client.license.LicenseVerificationService;
 import com.ariesninja.skulkpk.client.pk.AutoJumpHelper;
+import com.ariesninja.skulkpk.client.pk.JumpGraphTracker;
+import com.ariesninja.skulkpk.client.utils.entity.MovementRecorder;
+import com.ariesninja.skulkpk.client.utils.entity.MovementReplay;
 import com.ariesninja.skulkpk.client.core.utils.ChatMessageUtil;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
@@ -16,6 +19,9 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.hit.HitResult;
 import net.minecraft.world.RaycastContext;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class SkulkpkClient implements ClientModInitializer {
     private boolean isVerifyingLicense = false;
 
@@ -27,6 +33,9 @@ public class SkulkpkClient implements ClientModInitializer {
 
         // Register server join event to verify license
         ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            // Partitions of the last connection don't apply here, and the tracker starts building for this one
+            JumpGraphTracker.INSTANCE.reset();
+
             // if their username starts with "Player", don't check the license.
             String username = client.getSession().getUsername();
             if (username.startsWith("Player")) {
@@ -89,6 +98,10 @@ public class SkulkpkClient implements ClientModInitializer {
             }
         }
 
+        if (Keybinds.RECORD_KEY.wasPressed() && client.player != null) {
+            toggleMovementRecording(client);
+        }
+
 //        if (Keybinds.TEST_KEY_1.wasPressed()) {
 //            // This key can be used for testing purposes, e.g., to trigger a specific action or log information
 //            PlayerController.cvmRotatePlayer(client);
@@ -110,6 +123,36 @@ public class SkulkpkClient implements ClientModInitializer {
         PlayerController.tick(client);
     }
 
+    private void toggleMovementRecording(MinecraftClient client) {
+        if (!MovementRecorder.INSTANCE.isRecording()) {
+            try {
+                Path file = MovementRecorder.INSTANCE.start();
+                ChatMessageUtil.sendInfo(client, "Recording movement to " + file.getFileName());
+            } catch (IOException e) {
+                ChatMessageUtil.sendError(client, "Failed to start recording: " + e.getMessage());
+            }
+            return;
+        }
+
+        int ticks = MovementRecorder.INSTANCE.getRecordedTicks();
+        Path file = MovementRecorder.INSTANCE.stop();
+        ChatMessageUtil.sendInfo(client, "Recorded " + ticks + " ticks to " + file.getFileName());
+
+        // Replay right away, while the world is still the one it was recorded in
+        try {
+            MovementReplay.Report report = MovementReplay.run(file, client.player);
+            System.out.println("Movement replay of " + file + ":\n" + report.summary());
+            if (report.isAccurate()) {
+                ChatMessageUtil.sendSuccess(client, "Simulation matched all " + report.getTicks().size() + " ticks");
+            } else {
+                ChatMessageUtil.sendWarn(client, "Simulation diverged on " + report.getDiverged().size()
+                        + " of " + report.getTicks().size() + " ticks, max error " + report.getMaxPositionError());
+            }
+        } catch (IOException e) {
+            ChatMessageUtil.sendError(client, "Failed to replay recording: " + e.getMessage());
+        }
+    }
+
     private void verifyLicenseOnServerJoin(MinecraftClient client) {
         if (isVerifyingLicense) return; // Prevent multiple verification attempts
 
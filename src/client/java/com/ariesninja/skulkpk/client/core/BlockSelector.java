@@ -2,24 +2,97 @@ package com.ariesninja.skulkpk.client.core;
 
 import com.ariesninja.skulkpk.client.core.rendering.SelectionRenderer;
 import com.ariesninja.skulkpk.client.core.utils.ChatMessageUtil;
+import com.ariesninja.skulkpk.client.pk.JumpDependencyWatcher;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 public class BlockSelector {
     private static BlockPos selectedBlock;
+    private static CompletableFuture<JumpAnalysisResult> pendingAnalysis;
 
     public static void selectBlock(BlockHitResult hitResult, MinecraftClient client) {
         if (hitResult != null && client.player != null) {
-            selectedBlock = hitResult.getBlockPos();
+            // A new selection supersedes any analysis still running for the previous one
+            cancelPendingAnalysis();
+            SelectionRenderer.hideAllHighlights();
+
+            BlockPos requestedBlock = hitResult.getBlockPos();
+            selectedBlock = requestedBlock;
+            JumpDependencyWatcher.INSTANCE.reset();
+
+            // Analyze the jump off-thread and hand the result back to the client thread
+            CompletableFuture<JumpAnalysisResult> analysis = JumpAnalyzer.analyzeJumpAsync(requestedBlock);
+            pendingAnalysis = analysis;
+            analysis.thenAcceptAsync(result -> {
+                if (pendingAnalysis != analysis) {
+                    return; // Superseded while the result was being handed over
+                }
+                pendingAnalysis = null;
 
-            // Analyze the jump and check if there were any errors
-            JumpAnalyzer.analyzeJump(selectedBlock);
+                // Only show success message if analysis completed without errors
+                if (JumpAnalyzer.publish(result) && result.isSuccess()) {
+                    showSuccessMessage(client, requestedBlock);
+                }
+            }, client).exceptionally(throwable -> {
+                if (!analysis.isCancelled()) {
+                    System.err.println("Jump analysis failed: " + throwable);
+                }
+                return null;
+            });
+        }
+    }
 
-            // Only show success message if analysis completed without errors
-            if (JumpAnalyzer.getOptimizedTargetBlock() != null) {
-                showSuccessMessage(client, selectedBlock);
+    /**
+     * Re-runs the affected stages of the current analysis after the blocks it depended on changed.
+     * Ignored if the result is no longer for the selected block.
+     */
+    public static void revalidate(JumpAnalysisResult previous, Set<JumpDependencies.Stage> affected) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (selectedBlock == null || !selectedBlock.equals(previous.getTarget())) {
+            return;
+        }
+        cancelPendingAnalysis();
+
+        CompletableFuture<JumpAnalysisResult> analysis = JumpAnalyzer.revalidateAsync(previous, affected);
+        pendingAnalysis = analysis;
+        analysis.thenAcceptAsync(result -> {
+            if (pendingAnalysis != analysis) {
+                return; // Superseded while the result was being handed over
             }
+            pendingAnalysis = null;
+
+            // Errors are reported by publish, unchanged jumps stay quiet
+            if (JumpAnalyzer.publish(result) && result.isSuccess() && !sameJump(previous, result)) {
+                SelectionRenderer.showHighlights();
+                ChatMessageUtil.sendInfo(client, "Blocks changed, jump updated");
+            }
+        }, client).exceptionally(throwable -> {
+            if (!analysis.isCancelled()) {
+                System.err.println("Jump re-analysis failed: " + throwable);
+            }
+            return null;
+        });
+    }
+
+    public static boolean isAnalysisPending() {
+        return pendingAnalysis != null;
+    }
+
+    private static boolean sameJump(JumpAnalysisResult previous, JumpAnalysisResult result) {
+        return Objects.equals(previous.getJumpFromBlock(), result.getJumpFromBlock())
+                && Objects.equals(previous.getOptimizedTargetBlock(), result.getOptimizedTargetBlock())
+                && Objects.equals(previous.getMomentumPoint(), result.getMomentumPoint());
+    }
+
+    private static void cancelPendingAnalysis() {
+        if (pendingAnalysis != null) {
+            pendingAnalysis.cancel(true);
+            pendingAnalysis = null;
         }
     }
 
@@ -33,6 +106,7 @@ public class BlockSelector {
     }
 
     public static void clearSelectionSilent() {
+        cancelPendingAnalysis();
         selectedBlock = null;
         SelectionRenderer.hideAllHighlights();
     }
@@ -0,0 +1,103 @@
+package com.ariesninja.skulkpk.client.core;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Objects;
+
+/**
+ * Immutable outcome of a single jump analysis, produced off-thread by {@link JumpAnalyzer}.
+ * The version orders results by when their analysis was started, so a late result never replaces a newer one.
+ */
+public final class JumpAnalysisResult {
+    private final long version;
+    private final BlockPos target;
+    private final BlockPos standingBlock;
+    private final BlockPos jumpFromBlock;
+    private final BlockPos optimizedTargetBlock;
+    private final BlockPos momentumStartBlock;
+    private final Vec3d jumpPoint;
+    private final Vec3d momentumPoint;
+    private final String error;
+    // What the analysis read from the world, not part of the value
+    private final JumpDependencies dependencies;
+
+    public JumpAnalysisResult(long version, BlockPos target, BlockPos standingBlock, BlockPos jumpFromBlock,
+                              BlockPos optimizedTargetBlock, BlockPos momentumStartBlock,
+                              Vec3d jumpPoint, Vec3d momentumPoint, JumpDependencies dependencies) {
+        this(version, target, standingBlock, jumpFromBlock, optimizedTargetBlock, momentumStartBlock, jumpPoint, momentumPoint, null, dependencies);
+    }
+
+    private JumpAnalysisResult(long version, BlockPos target, BlockPos standingBlock, BlockPos jumpFromBlock,
+                               BlockPos optimizedTargetBlock, BlockPos momentumStartBlock,
+                               Vec3d jumpPoint, Vec3d momentumPoint, String error, JumpDependencies dependencies) {
+        this.version = version;
+        this.target = target;
+        this.standingBlock = standingBlock;
+        this.jumpFromBlock = jumpFromBlock;
+        this.optimizedTargetBlock = optimizedTargetBlock;
+        this.momentumStartBlock = momentumStartBlock;
+        this.jumpPoint = jumpPoint;
+        this.momentumPoint = momentumPoint;
+        this.error = error;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Creates a result for an analysis that could not find a jump
+     */
+    public static JumpAnalysisResult failure(long version, BlockPos target, String error) {
+        return new JumpAnalysisResult(version, target, null, null, null, null, null, null, error, null);
+    }
+
+    public boolean isSuccess() { return error == null; }
+
+    /**
+     * Whether this result was started after the other one
+     */
+    public boolean isNewerThan(JumpAnalysisResult other) {
+        return other == null || version > other.version;
+    }
+
+    // Getters
+    public long getVersion() { return version; }
+    public BlockPos getTarget() { return target; }
+    public BlockPos getStandingBlock() { return standingBlock; }
+    public BlockPos getJumpFromBlock() { return jumpFromBlock; }
+    public BlockPos getOptimizedTargetBlock() { return optimizedTargetBlock; }
+    public BlockPos getMomentumStartBlock() { return momentumStartBlock; }
+    public Vec3d getJumpPoint() { return jumpPoint; }
+    public Vec3d getMomentumPoint() { return momentumPoint; }
+    public String getError() { return error; }
+    public JumpDependencies getDependencies() { return dependencies; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JumpAnalysisResult other)) return false;
+        return version == other.version
+                && Objects.equals(target, other.target)
+                && Objects.equals(standingBlock, other.standingBlock)
+                && Objects.equals(jumpFromBlock, other.jumpFromBlock)
+                && Objects.equals(optimizedTargetBlock, other.optimizedTargetBlock)
+                && Objects.equals(momentumStartBlock, other.momentumStartBlock)
+                && Objects.equals(jumpPoint, other.jumpPoint)
+                && Objects.equals(momentumPoint, other.momentumPoint)
+                && Objects.equals(error, other.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, target, standingBlock, jumpFromBlock, optimizedTargetBlock,
+                momentumStartBlock, jumpPoint, momentumPoint, error);
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccess()) {
+            return "JumpAnalysisResult{v" + version + ", target=" + target + ", error='" + error + "'}";
+        }
+        return "JumpAnalysisResult{v" + version + ", target=" + target + ", jumpFrom=" + jumpFromBlock
+                + ", optimizedTarget=" + optimizedTargetBlock + ", momentumStart=" + momentumStartBlock + "}";
+    }
+}
@@ -1,68 +1,419 @@
 package com.ariesninja.skulkpk.client.core;
 
 import com.ariesninja.skulkpk.client.core.rendering.SelectionRenderer;
+import com.ariesninja.skulkpk.client.core.search.AStarSearch;
+import com.ariesninja.skulkpk.client.core.search.RunwayFinder;
 import com.ariesninja.skulkpk.client.core.utils.ChatMessageUtil;
-import net.minecraft.block.BlockState;
-import net.minecraft.block.LadderBlock;
+import com.ariesninja.skulkpk.client.core.world.Footprint;
+import com.ariesninja.skulkpk.client.core.world.WorldSnapshot;
+import com.ariesninja.skulkpk.client.pk.JumpGraphTracker;
+import com.ariesninja.skulkpk.client.pk.WorldSnapshotTracker;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 public class JumpAnalyzer {
 
-    private static BlockPos currentStandingBlock = null;
-    private static BlockPos jumpFromBlock = null;
-    private static BlockPos optimizedTargetBlock = null;
-    private static BlockPos momentumStartBlock = null;
+    // The published analysis, swapped as a whole so readers always see one consistent result
+    private static final AtomicReference<JumpAnalysisResult> CURRENT = new AtomicReference<>();
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private static final Set<JumpDependencies.Stage> ALL_STAGES = Collections.unmodifiableSet(EnumSet.allOf(JumpDependencies.Stage.class));
+
+    // Extent of the block snapshot taken for each analysis
+    private static final int SNAPSHOT_PLAYER_MARGIN = 40;
+    private static final int SNAPSHOT_TARGET_MARGIN = 8;
+    private static final int SNAPSHOT_VERTICAL_MARGIN = 24;
+
+    private static final AtomicInteger ANALYSIS_THREAD_ID = new AtomicInteger();
+    private static final ExecutorService ANALYSIS_POOL = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            runnable -> {
+                Thread thread = new Thread(runnable, "Skulk Jump Analysis #" + ANALYSIS_THREAD_ID.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Search engines, kept per worker thread so steady-state searches don't allocate
+    private static final ThreadLocal<AStarSearch> WALK_SEARCH = ThreadLocal.withInitial(AStarSearch::new);
+    private static final ThreadLocal<AStarSearch> LANDING_SEARCH = ThreadLocal.withInitial(AStarSearch::new);
+
+    // Extra cost per block climbed while walking, so paths prefer staying level
+    private static final double CLIMB_COST = 0.5;
+    // Walking distance from the player within which the jump graph looks for the jump-from block
+    private static final double GRAPH_JUMP_FROM_RADIUS = 10;
+
+    /**
+     * Thrown inside an analysis when no jump can be found, carrying the message shown to the player
+     */
+    private static class AnalysisFailure extends RuntimeException {
+        AnalysisFailure(String message) {
+            super(message);
+        }
+    }
 
-    // Fine-grained position variables for precise jump calculations
-    private static Vec3d jumpPoint = null; // Precise jump position (0.3 blocks past jumpFromBlock edge)
-    private static Vec3d momentumPoint = null; // Precise momentum start position
+    /**
+     * Starts analyzing a jump toward the target on the analysis pool.
+     * Must be called on the client thread, which is also where the result should be published with {@link #publish}.
+     */
+    public static CompletableFuture<JumpAnalysisResult> analyzeJumpAsync(BlockPos target) {
+        return analyzeJumpsAsync(List.of(target)).get(0);
+    }
 
-    public static void analyzeJump(BlockPos target) {
+    /**
+     * Starts analyzing several candidate targets in parallel against one shared snapshot.
+     * Must be called on the client thread. The futures are returned in the order of the targets.
+     */
+    public static List<CompletableFuture<JumpAnalysisResult>> analyzeJumpsAsync(List<BlockPos> targets) {
         MinecraftClient client = MinecraftClient.getInstance();
         PlayerEntity player = client.player;
-        World world = client.world;
+        long version = VERSION.incrementAndGet();
 
-        if (player == null || world == null) return;
+        List<CompletableFuture<JumpAnalysisResult>> futures = new ArrayList<>(targets.size());
 
-        // Get the block we are standing on
-        currentStandingBlock = getStandingBlock(player);
+        if (player == null || client.world == null) {
+            for (BlockPos target : targets) {
+                futures.add(CompletableFuture.completedFuture(JumpAnalysisResult.failure(version, target, "No world loaded")));
+            }
+            return futures;
+        }
 
-        // Find the closest reachable block to the target without jumping
-        jumpFromBlock = findClosestReachableBlock(player, world, target);
+        // Everything the analysis needs from the live game is captured here, on the client thread
+        WorldSnapshot world = captureSnapshot(client.world, player.getBlockPos(), targets);
+        JumpGraph graph = JumpGraphTracker.INSTANCE.snapshot(client.world);
+        Vec3d playerPos = player.getPos();
 
-        if (jumpFromBlock == null) {
-            showError("The block you are standing on is not yet supported!");
-            return;
+        for (BlockPos target : targets) {
+            futures.add(submit(cancelled -> analyzeJump(version, world, graph, playerPos, target, null, ALL_STAGES, cancelled)));
         }
 
-        // Find the optimal target block
-        optimizedTargetBlock = findOptimalTargetBlock(world, target, jumpFromBlock);
+        return futures;
+    }
 
-        // Find the optimal momentum starting position (only if we have valid jump points)
-        if (jumpFromBlock != null && optimizedTargetBlock != null) {
-            momentumStartBlock = findMomentumStartPosition(world, jumpFromBlock, optimizedTargetBlock);
+    /**
+     * Re-runs a published analysis after blocks it depended on changed. Only the affected stages are re-run,
+     * along with later stages whose inputs actually changed; the rest keep their previous output.
+     * Must be called on the client thread.
+     */
+    public static CompletableFuture<JumpAnalysisResult> revalidateAsync(JumpAnalysisResult previous, Set<JumpDependencies.Stage> affected) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        long version = VERSION.incrementAndGet();
 
-            // Calculate precise jump point (0.3 blocks past jumpFromBlock edge toward target)
-            if (jumpFromBlock != null && optimizedTargetBlock != null) {
-                jumpPoint = calculateJumpPoint(jumpFromBlock, optimizedTargetBlock);
+        if (client.world == null || previous.getDependencies() == null) {
+            return CompletableFuture.completedFuture(JumpAnalysisResult.failure(version, previous.getTarget(), "No world loaded"));
+        }
+
+        // Same inputs as the original analysis, but with the current blocks
+        Vec3d playerPos = previous.getDependencies().getPlayerPos();
+        BlockPos target = previous.getTarget();
+        WorldSnapshot world = captureSnapshot(client.world, BlockPos.ofFloored(playerPos), List.of(target));
+        JumpGraph graph = JumpGraphTracker.INSTANCE.snapshot(client.world);
+        Set<JumpDependencies.Stage> stages = EnumSet.copyOf(affected);
+
+        return submit(cancelled -> analyzeJump(version, world, graph, playerPos, target, previous, stages, cancelled));
+    }
+
+    private static CompletableFuture<JumpAnalysisResult> submit(Function<BooleanSupplier, JumpAnalysisResult> analysis) {
+        CompletableFuture<JumpAnalysisResult> future = new CompletableFuture<>();
+        Future<?> task = ANALYSIS_POOL.submit(() -> {
+            try {
+                future.complete(analysis.apply(future::isCancelled));
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
             }
+        });
+
+        // Drop the task if it is cancelled before a worker picks it up
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) {
+                task.cancel(false);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Runs the analysis stages in order. A stage is run if it is in the affected set or an earlier stage's output changed,
+     * otherwise its output is taken from the previous result. The jump-from block and landing are looked up in the
+     * jump graph when it covers them.
+     */
+    private static JumpAnalysisResult analyzeJump(long version, WorldSnapshot world, JumpGraph graph, Vec3d playerPos, BlockPos target,
+                                                  JumpAnalysisResult previous, Set<JumpDependencies.Stage> affected,
+                                                  BooleanSupplier cancelled) {
+        JumpDependencies dependencies = previous != null ? previous.getDependencies().copy() : new JumpDependencies(playerPos);
+
+        try {
+            // Get the block we are standing on
+            BlockPos standingBlock = getStandingBlock(playerPos);
+
+            GraphJump graphJump = null;
+            if (previous == null || affected.contains(JumpDependencies.Stage.JUMP_FROM)) {
+                graphJump = findJumpInGraph(graph, playerPos, target);
+            }
+
+            BlockPos jumpFrom;
+            if (graphJump != null) {
+                jumpFrom = graphJump.jumpFrom();
+                dependencies.recordChunks(JumpDependencies.Stage.JUMP_FROM, graphJump.chunks());
+            } else if (previous == null || affected.contains(JumpDependencies.Stage.JUMP_FROM)) {
+                // Find the closest reachable block to the target without jumping
+                jumpFrom = findClosestReachableBlock(playerPos, dependencies.record(JumpDependencies.Stage.JUMP_FROM, world), target);
+                dependencies.seal(JumpDependencies.Stage.JUMP_FROM);
+
+                if (jumpFrom == null) {
+                    throw new AnalysisFailure("The block you are standing on is not yet supported!");
+                }
+            } else {
+                jumpFrom = previous.getJumpFromBlock();
+            }
+            checkCancelled(cancelled);
+
+            BlockPos optimizedTarget;
+            if (graphJump != null) {
+                optimizedTarget = graphJump.landing();
+                dependencies.recordChunks(JumpDependencies.Stage.LANDING, graphJump.chunks());
+            } else if (previous == null || affected.contains(JumpDependencies.Stage.LANDING) || !jumpFrom.equals(previous.getJumpFromBlock())) {
+                // Find the optimal target block
+                optimizedTarget = findOptimalTargetBlock(dependencies.record(JumpDependencies.Stage.LANDING, world), target, jumpFrom);
+                dependencies.seal(JumpDependencies.Stage.LANDING);
+            } else {
+                optimizedTarget = previous.getOptimizedTargetBlock();
+            }
+            checkCancelled(cancelled);
+
+            Vec3d momentum;
+            if (previous == null || affected.contains(JumpDependencies.Stage.RUNWAY)
+                    || !jumpFrom.equals(previous.getJumpFromBlock()) || !optimizedTarget.equals(previous.getOptimizedTargetBlock())) {
+                // Find the optimal momentum starting position
+                momentum = findMomentumStartPosition(dependencies.record(JumpDependencies.Stage.RUNWAY, world), jumpFrom, optimizedTarget);
+                dependencies.seal(JumpDependencies.Stage.RUNWAY);
+            } else {
+                momentum = previous.getMomentumPoint();
+            }
+            BlockPos momentumStart = momentum != null ? BlockPos.ofFloored(momentum.x, momentum.y - 0.5, momentum.z) : null;
+
+            // Calculate precise jump point (0.3 blocks past jumpFromBlock edge toward target)
+            Vec3d jump = calculateJumpPoint(jumpFrom, optimizedTarget, momentum);
+
+            return new JumpAnalysisResult(version, target, standingBlock, jumpFrom, optimizedTarget, momentumStart, jump, momentum, dependencies);
+        } catch (AnalysisFailure failure) {
+            return JumpAnalysisResult.failure(version, target, failure.getMessage());
         }
     }
 
-    private static BlockPos getStandingBlock(PlayerEntity player) {
-        Vec3d playerPos = player.getPos();
+    /**
+     * Makes a finished analysis the current one, or reports its error. Must be called on the client thread.
+     * Results older than the current one are ignored.
+     *
+     * @return whether the result was published
+     */
+    public static boolean publish(JumpAnalysisResult result) {
+        JumpAnalysisResult previous = CURRENT.getAndUpdate(current -> result.isNewerThan(current) ? result : current);
+        if (!result.isNewerThan(previous)) {
+            return false;
+        }
+
+        if (!result.isSuccess()) {
+            showError(result.getError());
+        }
+        return true;
+    }
+
+    /**
+     * Returns the latest published analysis, or null if nothing was analyzed yet.
+     * A failed analysis is published too, so check {@link JumpAnalysisResult#isSuccess()} before using its positions.
+     */
+    public static JumpAnalysisResult getCurrentResult() {
+        return CURRENT.get();
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Jump analysis cancelled");
+        }
+    }
+
+    private static WorldSnapshot captureSnapshot(World world, BlockPos playerPos, List<BlockPos> targets) {
+        BlockBox[] regions = new BlockBox[targets.size() + 1];
+
+        // The jump-from search, walking connectivity and momentum runway all stay within this margin of the player
+        regions[0] = new BlockBox(
+                playerPos.getX() - SNAPSHOT_PLAYER_MARGIN, playerPos.getY() - SNAPSHOT_VERTICAL_MARGIN, playerPos.getZ() - SNAPSHOT_PLAYER_MARGIN,
+                playerPos.getX() + SNAPSHOT_PLAYER_MARGIN, playerPos.getY() + SNAPSHOT_VERTICAL_MARGIN, playerPos.getZ() + SNAPSHOT_PLAYER_MARGIN
+        );
+        // The landing search stays close to each target, but may climb up the target column
+        for (int i = 0; i < targets.size(); i++) {
+            BlockPos target = targets.get(i);
+            regions[i + 1] = new BlockBox(
+                    target.getX() - SNAPSHOT_TARGET_MARGIN, target.getY() - SNAPSHOT_TARGET_MARGIN, target.getZ() - SNAPSHOT_TARGET_MARGIN,
+                    target.getX() + SNAPSHOT_TARGET_MARGIN, target.getY() + SNAPSHOT_VERTICAL_MARGIN, target.getZ() + SNAPSHOT_TARGET_MARGIN
+            );
+        }
+        return WorldSnapshotTracker.INSTANCE.capture(world, regions);
+    }
+
+    private static BlockPos getStandingBlock(Vec3d playerPos) {
         // Get the block position below the player's feet
         return BlockPos.ofFloored(playerPos.x, playerPos.y - 0.1, playerPos.z);
     }
 
-    private static BlockPos findClosestReachableBlock(PlayerEntity player, World world, BlockPos target) {
-        Vec3d playerPos = player.getPos();
+    /**
+     * Jump-from block and landing found in the jump graph, with the chunks whose partitions were consulted
+     */
+    private record GraphJump(BlockPos jumpFrom, BlockPos landing, LongSet chunks) {}
+
+    /**
+     * Picks the jump-from block and landing from the jump graph, following the same rules as the snapshot stages:
+     * the jump-from block is the position closest to the target within walking distance of the player, and the
+     * landing is the position near the target closest to it that a jump edge leads to.
+     * Returns null when the graph can't answer, so the snapshot stages run instead.
+     */
+    private static GraphJump findJumpInGraph(JumpGraph graph, Vec3d playerPos, BlockPos target) {
+        if (graph.isEmpty()) {
+            return null;
+        }
+
+        long start = BlockPos.ofFloored(playerPos).asLong();
+        JumpGraph.Partition startPartition = graph.getPartitionAt(start);
+        JumpGraph.Partition targetPartition = graph.getPartition(target.getX() >> 4, target.getZ() >> 4);
+        if (startPartition == null || targetPartition == null || startPartition.indexOf(start) < 0) {
+            return null;
+        }
+
+        // The target column's first standable position, like findOptimalTargetBlock climbing up to it
+        int targetIndex = targetPartition.ceilingIndex(target.getX(), target.getY(), target.getZ());
+        if (targetIndex < 0) {
+            return null;
+        }
+        long walkableTarget = targetPartition.getNode(targetIndex);
+
+        // Jump-from: the closest position to the target within walking distance
+        GraphWalking walking = new GraphWalking(graph, null, Integer.MAX_VALUE, false);
+        long[] jumpFrom = {start};
+        double[] closest = {squaredDistance(start, target)};
+        WALK_SEARCH.get().search(start, walking, GRAPH_JUMP_FROM_RADIUS, (node, cost) -> {
+            double distance = squaredDistance(node, target);
+            if (distance < closest[0]) {
+                closest[0] = distance;
+                jumpFrom[0] = node;
+            }
+            return false;
+        });
+
+        // The target must not be reachable by walking, searched as far as the snapshot stages can see
+        BlockPos jumpFromPos = BlockPos.fromLong(jumpFrom[0]);
+        GraphWalking connection = new GraphWalking(graph, BlockPos.fromLong(walkableTarget), Integer.MAX_VALUE, false);
+        if (WALK_SEARCH.get().search(jumpFrom[0], connection, SNAPSHOT_PLAYER_MARGIN, (node, cost) -> node == walkableTarget)) {
+            throw new AnalysisFailure("Target is reachable by walking - no jump required!");
+        }
+
+        JumpGraph.Partition fromPartition = graph.getPartitionAt(jumpFrom[0]);
+        int fromIndex = fromPartition != null ? fromPartition.indexOf(jumpFrom[0]) : -1;
+        if (walking.missing || connection.missing || fromIndex < 0) {
+            return null; // Ran into chunks without a partition, the answer may be incomplete
+        }
+
+        // Landing: walk outward from the target, staying at most one block above the jump-from block
+        GraphWalking landingArea = new GraphWalking(graph, null, jumpFromPos.getY() + 1, true);
+        long[] landing = {walkableTarget};
+        double[] best = {Double.POSITIVE_INFINITY};
+        LANDING_SEARCH.get().search(walkableTarget, landingArea, LandingSearch.MAX_LANDING_COST, (node, cost) -> {
+            if (fromPartition.hasJump(fromIndex, node)) {
+                double distance = squaredDistance(node, jumpFromPos);
+                if (distance < best[0]) {
+                    best[0] = distance;
+                    landing[0] = node;
+                }
+            }
+            return false;
+        });
+
+        if (landingArea.missing || best[0] == Double.POSITIVE_INFINITY) {
+            return null; // Let the snapshot stages decide, they also accept landings the graph finds too far
+        }
+
+        LongSet chunks = new LongOpenHashSet();
+        chunks.addAll(walking.chunks);
+        chunks.addAll(connection.chunks);
+        chunks.addAll(landingArea.chunks);
+
+        return new GraphJump(jumpFromPos, BlockPos.fromLong(landing[0]), chunks);
+    }
+
+    /**
+     * Walk edges of the jump graph, remembering which partitions were used and whether any were missing
+     */
+    private static final class GraphWalking implements AStarSearch.Graph {
+        private final JumpGraph graph;
+        private final BlockPos target;
+        private final int maxY;
+        private final boolean unitCost;
+
+        private final LongSet chunks = new LongOpenHashSet();
+        private boolean missing;
+
+        GraphWalking(JumpGraph graph, BlockPos target, int maxY, boolean unitCost) {
+            this.graph = graph;
+            this.target = target;
+            this.maxY = maxY;
+            this.unitCost = unitCost;
+        }
+
+        @Override
+        public void expand(AStarSearch search, long node) {
+            JumpGraph.Partition partition = graph.getPartitionAt(node);
+            int index = partition != null ? partition.indexOf(node) : -1;
+            if (index < 0) {
+                missing = true;
+                return;
+            }
+            chunks.add(ChunkPos.toLong(partition.getChunkX(), partition.getChunkZ()));
+
+            int y = BlockPos.unpackLongY(node);
+            for (int edge = partition.getWalkStart(index); edge < partition.getWalkEnd(index); edge++) {
+                long next = partition.getWalkTarget(edge);
+                int nextY = BlockPos.unpackLongY(next);
+                if (nextY <= maxY) {
+                    search.offer(next, unitCost ? 1 : walkCost(y, nextY));
+                }
+            }
+        }
+
+        @Override
+        public double heuristic(long node) {
+            return target != null ? walkHeuristic(node, target) : 0;
+        }
+    }
+
+    private static double squaredDistance(long pos, BlockPos other) {
+        double dx = BlockPos.unpackLongX(pos) - other.getX();
+        double dy = BlockPos.unpackLongY(pos) - other.getY();
+        double dz = BlockPos.unpackLongZ(pos) - other.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static BlockPos findClosestReachableBlock(Vec3d playerPos, WorldSnapshot world, BlockPos target) {
         BlockPos playerBlock = BlockPos.ofFloored(playerPos);
 
         // Check if the initial player block is walkable, if not find the nearest walkable block
@@ -106,7 +457,7 @@ public class JumpAnalyzer {
         return closestBlock;
     }
 
-    private static BlockPos findNearestWalkableBlock(World world, BlockPos startPos) {
+    private static BlockPos findNearestWalkableBlock(WorldSnapshot world, BlockPos startPos) {
         // Search in expanding radius to find the nearest walkable block
         int maxRadius = 2; // Search within 3 blocks of the starting position
 
@@ -131,17 +482,17 @@ public class JumpAnalyzer {
         return null;
     }
 
-    private static boolean isWalkableSurface(World world, BlockPos pos) {
+    private static boolean isWalkableSurface(WorldSnapshot world, BlockPos pos) {
+        return isWalkableSurface(world, pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    private static boolean isWalkableSurface(WorldSnapshot world, int x, int y, int z) {
         // Check if the block below is solid and the block at pos and above are passable
-        // OR if the current position has a ladder (can climb ladders)
-        return (world.getBlockState(pos.down()).isSolidBlock(world, pos.down()) &&
-                !world.getBlockState(pos).isSolidBlock(world, pos) &&
-                !world.getBlockState(pos.up()).isSolidBlock(world, pos.up())) ||
-//                isLadderClimbable(world, pos);
-                isLadderProp(world, pos);
+        // OR if the block below is a ladder (ladder prop)
+        return world.isWalkable(x, y, z);
     }
 
-    private static boolean canReachWithoutJumping(World world, BlockPos start, BlockPos end) {
+    private static boolean canReachWithoutJumping(WorldSnapshot world, BlockPos start, BlockPos end) {
         // Simple check: can we walk there on the same Y level or using ladders/steps?
         // For now, just check if there's a clear horizontal path at the same Y level
 
@@ -168,7 +519,7 @@ public class JumpAnalyzer {
         return true;
     }
 
-    private static BlockPos findOptimalTargetBlock(World world, BlockPos target, BlockPos jumpFrom) {
+    private static BlockPos findOptimalTargetBlock(WorldSnapshot world, BlockPos target, BlockPos jumpFrom) {
         // Search around the walkable target to find the closest position to our jump-from block
         // with proper staircase constraints: each step outward can only drop by 1 block max
 
@@ -178,8 +529,7 @@ public class JumpAnalyzer {
             walkableTarget = walkableTarget.up();
             if (walkableTarget.getY() > world.getHeight() + 1) {
                 // If we exceed the world height, break to avoid infinite loop and message the user
-                showError("Target is too high - no valid walkable surface found above the target");
-                return null;
+                throw new AnalysisFailure("Target is too high - no valid walkable surface found above the target");
             }
         }
 
@@ -187,38 +537,54 @@ public class JumpAnalyzer {
         return findClosestReachablePosition(world, jumpFrom, walkableTarget);
     }
 
-    private static BlockPos findClosestReachablePosition(World world, BlockPos jumpFrom, BlockPos targetArea) {
-        // BFS-style search starting from the TARGET AREA to find the closest reachable position to the jump-from block
-        Queue<BlockPos> queue = new LinkedList<>();
-        Set<BlockPos> visited = new HashSet<>();
-        Map<BlockPos, Integer> distances = new HashMap<>();
-
-        // Start from the target area, not the jump-from position!
-        queue.offer(targetArea);
-        visited.add(targetArea);
-        distances.put(targetArea, 0);
-
-        BlockPos bestTarget = targetArea;
-        double closestDistanceToJumpFrom = targetArea.getSquaredDistance(jumpFrom);
-        boolean originalTargetIsJumpable = isJumpReachable(world, jumpFrom, targetArea);
-
+    private static BlockPos findClosestReachablePosition(WorldSnapshot world, BlockPos jumpFrom, BlockPos targetArea) {
         // Check if the target is "connected" (reachable by just walking/climbing stairs)
         if (isConnectedByWalking(world, jumpFrom, targetArea)) {
-            showError("Target is reachable by walking - no jump required!");
-            return null;
+            throw new AnalysisFailure("Target is reachable by walking - no jump required!");
         }
 
-        int maxSearchRadius = 5; // Increase search radius to find jumpable alternatives
+        // Breadth-first search starting from the TARGET AREA to find the closest reachable position to the jump-from block
+        LandingSearch landing = new LandingSearch(world, jumpFrom, targetArea);
+        LANDING_SEARCH.get().search(targetArea.asLong(), landing, LandingSearch.MAX_LANDING_COST, landing);
 
-        // If the original target is not jumpable, we MUST find a jumpable alternative
-        boolean foundJumpableAlternative = originalTargetIsJumpable;
+        // Check if we found a valid solution
+        if (!landing.originalTargetIsJumpable && !landing.foundJumpableAlternative) {
+            throw new AnalysisFailure("No jumpable landing spot found near target!");
+        }
+
+        return BlockPos.fromLong(landing.bestTarget);
+    }
+
+    /**
+     * Walks outward from the target area in unit steps and keeps the jumpable position closest to the jump-from block
+     */
+    private static final class LandingSearch implements AStarSearch.Graph, AStarSearch.Visitor {
+        static final int MAX_SEARCH_RADIUS = 5; // Increase search radius to find jumpable alternatives
+        // Positions MAX_SEARCH_RADIUS steps away are not evaluated, and the search budget is inclusive
+        static final int MAX_LANDING_COST = MAX_SEARCH_RADIUS - 1;
+
+        private final WorldSnapshot world;
+        private final BlockPos jumpFrom;
+        private final BlockPos.Mutable current = new BlockPos.Mutable();
 
-        while (!queue.isEmpty()) {
-            BlockPos current = queue.poll();
-            int currentDistance = distances.get(current);
+        private final boolean originalTargetIsJumpable;
+        // If the original target is not jumpable, we MUST find a jumpable alternative
+        private boolean foundJumpableAlternative;
+        private long bestTarget;
+        private double closestDistanceToJumpFrom;
+
+        LandingSearch(WorldSnapshot world, BlockPos jumpFrom, BlockPos targetArea) {
+            this.world = world;
+            this.jumpFrom = jumpFrom;
+            this.bestTarget = targetArea.asLong();
+            this.closestDistanceToJumpFrom = targetArea.getSquaredDistance(jumpFrom);
+            this.originalTargetIsJumpable = isJumpReachable(world, jumpFrom, targetArea);
+            this.foundJumpableAlternative = originalTargetIsJumpable;
+        }
 
-            // Stop if we've searched too far
-            if (currentDistance >= maxSearchRadius) continue;
+        @Override
+        public boolean visit(long node, double cost) {
+            current.set(node);
 
             // Check if this position is jumpable from our jump-from position
             boolean currentIsJumpable = isJumpReachable(world, jumpFrom, current);
@@ -246,9 +612,18 @@ public class JumpAnalyzer {
 
             if (shouldUpdate) {
                 closestDistanceToJumpFrom = distanceToJumpFrom;
-                bestTarget = current;
+                bestTarget = node;
             }
 
+            return false; // Settle everything within the search radius
+        }
+
+        @Override
+        public void expand(AStarSearch search, long node) {
+            int x = BlockPos.unpackLongX(node);
+            int y = BlockPos.unpackLongY(node);
+            int z = BlockPos.unpackLongZ(node);
+
             // Explore adjacent positions with staircase constraints
             for (int dx = -1; dx <= 1; dx++) {
                 for (int dz = -1; dz <= 1; dz++) {
@@ -256,46 +631,38 @@ public class JumpAnalyzer {
 
                     // Check positions at same level, 1 up, and 1 down
                     for (int dy = -1; dy <= 1; dy++) {
-                        BlockPos next = current.add(dx, dy, dz);
-
-                        if (visited.contains(next)) continue;
+                        int nextY = y + dy;
 
                         // Height constraint: no more than 1 block higher than jump-from position
-                        if (next.getY() > jumpFrom.getY() + 1) {
+                        if (nextY > jumpFrom.getY() + 1) {
                             continue;
                         }
 
                         // Check if this position is walkable
-                        if (!isWalkableSurface(world, next)) {
+                        if (!isWalkableSurface(world, x + dx, nextY, z + dz)) {
                             continue;
                         }
 
-                        visited.add(next);
-                        distances.put(next, currentDistance + 1);
-                        queue.offer(next);
+                        search.offer(BlockPos.asLong(x + dx, nextY, z + dz), 1);
                     }
                 }
             }
         }
 
-        // Check if we found a valid solution
-        if (!originalTargetIsJumpable && !foundJumpableAlternative) {
-            showError("No jumpable landing spot found near target!");
-            return null;
+        @Override
+        public double heuristic(long node) {
+            return 0; // No single goal, every position in the radius is a candidate
         }
-
-        return bestTarget;
     }
 
-    private static boolean isJumpReachable(World world, BlockPos jumpFrom, BlockPos landingSpot) {
+    static boolean isJumpReachable(WorldSnapshot world, BlockPos jumpFrom, BlockPos landingSpot) {
         // Check if we can jump from jumpFrom to landingSpot
         // Account for player positioning within blocks - players can be up to 0.3 blocks from block edge
 
         int dy = landingSpot.getY() - jumpFrom.getY();
 
         // If the block 1 below is a ladder, it's not a valid end point for a jump
-        BlockState blockBelow = world.getBlockState(landingSpot.down());
-        if (blockBelow.getBlock() instanceof LadderBlock) {
+        if (world.isLadder(landingSpot.getX(), landingSpot.getY() - 1, landingSpot.getZ())) {
             return false; // Can't land on a ladder block
         }
 
@@ -324,7 +691,7 @@ public class JumpAnalyzer {
         return true;
     }
 
-    private static double calculateMinHorizontalDistance(BlockPos from, BlockPos to) {
+    static double calculateMinHorizontalDistance(BlockPos from, BlockPos to) {
         // Calculate the minimum horizontal distance between two blocks
         // considering that the player can be positioned anywhere within each block
 
@@ -369,7 +736,7 @@ public class JumpAnalyzer {
         return Math.sqrt(minDx * minDx + minDz * minDz);
     }
 
-    private static boolean hasJumpClearance(World world, BlockPos start, BlockPos end) {
+    private static boolean hasJumpClearance(WorldSnapshot world, BlockPos start, BlockPos end) {
         // Simplified clearance check - ensure no blocks are blocking the jump path
         // Check a few points along the jump trajectory for obstacles
 
@@ -395,112 +762,111 @@ public class JumpAnalyzer {
         return true;
     }
 
-    public static BlockPos getCurrentStandingBlock() {
-        return currentStandingBlock;
+    private static boolean isConnectedByWalking(WorldSnapshot world, BlockPos start, BlockPos target) {
+        // Check if we can reach the target by just walking and climbing single blocks (no jumping required)
+        // The search is bounded by the snapshot: outside of it everything reads as air, so there is nothing to walk on
+        long targetKey = target.asLong();
+        return WALK_SEARCH.get().search(start.asLong(), new WalkingGraph(world, target), Double.POSITIVE_INFINITY,
+                (node, cost) -> node == targetKey);
     }
 
-    public static BlockPos getJumpFromBlock() {
-        return jumpFromBlock;
-    }
+    /**
+     * Walking moves between standable positions, guided toward the target by horizontal Chebyshev distance plus climb cost
+     */
+    private static final class WalkingGraph implements AStarSearch.Graph {
+        private final WorldSnapshot world;
+        private final BlockPos target;
 
-    public static BlockPos getOptimizedTargetBlock() {
-        return optimizedTargetBlock;
-    }
+        WalkingGraph(WorldSnapshot world, BlockPos target) {
+            this.world = world;
+            this.target = target;
+        }
 
-    public static BlockPos getMomentumStartBlock() {
-        return momentumStartBlock;
-    }
+        @Override
+        public void expand(AStarSearch search, long node) {
+            int y = BlockPos.unpackLongY(node);
+            forEachWalkStep(world, node, next -> search.offer(next, walkCost(y, BlockPos.unpackLongY(next))));
+        }
 
-    // Getters for fine-grained positions
-    public static Vec3d getJumpPoint() {
-        return jumpPoint;
+        @Override
+        public double heuristic(long node) {
+            return walkHeuristic(node, target);
+        }
     }
 
-    public static Vec3d getMomentumPoint() {
-        return momentumPoint;
+    private static double walkHeuristic(long node, BlockPos target) {
+        // Every step moves at most one block horizontally, and climbing costs CLIMB_COST per block
+        int dx = Math.abs(target.getX() - BlockPos.unpackLongX(node));
+        int dz = Math.abs(target.getZ() - BlockPos.unpackLongZ(node));
+        int climb = Math.max(0, target.getY() - BlockPos.unpackLongY(node));
+        return Math.max(dx, dz) + CLIMB_COST * climb;
     }
 
-    private static boolean isConnectedByWalking(World world, BlockPos start, BlockPos target) {
-        // Check if we can reach the target by just walking and climbing single blocks (no jumping required)
-        // This uses a simple BFS to see if there's a walking path
-
-        Queue<BlockPos> queue = new LinkedList<>();
-        Set<BlockPos> visited = new HashSet<>();
-
-        queue.offer(start);
-        visited.add(start);
-
-        int maxHorizontalDistance = 20; // Maximum horizontal distance to search
-        int searchedBlocks = 0;
-        int maxSearchBlocks = 2000; // Increase total search limit
-
-        while (!queue.isEmpty() && searchedBlocks < maxSearchBlocks) {
-            BlockPos current = queue.poll();
-            searchedBlocks++;
-
-            // If we reached the target, it's connected
-            if (current.equals(target)) {
-                return true;
-            }
-
-            // Don't search too far horizontally from the start
-            int horizontalDistance = Math.max(Math.abs(current.getX() - start.getX()), Math.abs(current.getZ() - start.getZ()));
-            if (horizontalDistance > maxHorizontalDistance) {
-                continue;
-            }
-
-            // Explore adjacent walkable positions
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dz = -1; dz <= 1; dz++) {
-                    if (dx == 0 && dz == 0) continue;
-
-                    // Try moving to adjacent horizontal positions
-                    BlockPos horizontalNext = current.add(dx, 0, dz);
-
-                    // For each horizontal position, find the correct Y level to stand on
-                    // Search from current level up 1, then down to 19 blocks below current
-                    for (int searchY = current.getY() + 1; searchY >= current.getY() - 19; searchY--) {
-                        BlockPos candidatePos = new BlockPos(horizontalNext.getX(), searchY, horizontalNext.getZ());
-
-                        if (visited.contains(candidatePos)) continue;
+    /**
+     * Reports every position one walking step away from the node, at most one per adjacent column
+     */
+    static void forEachWalkStep(WorldSnapshot world, long node, LongConsumer consumer) {
+        int x = BlockPos.unpackLongX(node);
+        int y = BlockPos.unpackLongY(node);
+        int z = BlockPos.unpackLongZ(node);
+
+        // Explore adjacent walkable positions
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0) continue;
+
+                // Try moving to adjacent horizontal positions
+                int nextX = x + dx;
+                int nextZ = z + dz;
+
+                // For each horizontal position, find the correct Y level to stand on
+                // Search the walkable levels from current level up 1, then down to 19 blocks below current
+                int[] levels = world.getWalkableLevels(nextX, nextZ);
+                int highest = Arrays.binarySearch(levels, y + 1);
+                if (highest < 0) {
+                    highest = -highest - 2; // Highest level below y + 1
+                }
 
-                        // Check if this position is walkable
-                        if (!isWalkableSurface(world, candidatePos)) continue;
+                for (int level = highest; level >= 0 && levels[level] >= y - 19; level--) {
+                    int searchY = levels[level];
 
-                        // Check if we can step from current to this candidate position
-                        if (!canWalkStep(world, current, candidatePos)) continue;
+                    // Check if we can step from current to this candidate position
+                    if (!canWalkStep(world, x, y, z, nextX, searchY, nextZ)) continue;
 
-                        visited.add(candidatePos);
-                        queue.offer(candidatePos);
+                    consumer.accept(BlockPos.asLong(nextX, searchY, nextZ));
 
-                        // Only take the first (highest) valid position for this horizontal location
-                        break;
-                    }
+                    // Only take the first (highest) valid position for this horizontal location
+                    break;
                 }
             }
         }
+    }
 
-        return false;
+    private static double walkCost(int fromY, int toY) {
+        return 1 + CLIMB_COST * Math.max(0, toY - fromY);
     }
 
-    private static boolean canWalkStep(World world, BlockPos from, BlockPos to) {
+    private static boolean canWalkStep(WorldSnapshot world, int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
         // Check if we can walk/climb/fall from 'from' to 'to' without jumping
         // Now includes ladder climbing support
-        int dx = Math.abs(to.getX() - from.getX());
-        int dz = Math.abs(to.getZ() - from.getZ());
-        int dy = to.getY() - from.getY();
+        int dx = Math.abs(toX - fromX);
+        int dz = Math.abs(toZ - fromZ);
+        int dy = toY - fromY;
 
         // Must be adjacent horizontally or vertically aligned for ladder climbing
         if (dx > 1 || dz > 1) return false;
 
+        boolean fromLadder = isLadderClimbable(world, fromX, fromY, fromZ);
+        boolean toLadder = isLadderClimbable(world, toX, toY, toZ);
+
         // Special case: ladder climbing
-        if (isLadderClimbable(world, from) && isLadderClimbable(world, to)) {
-            return canClimbLadder(world, from, to);
+        if (fromLadder && toLadder) {
+            return canClimbLadder(world, fromX, fromY, fromZ, toX, toY, toZ);
         }
 
         // If either position is a ladder but we can't climb between them,
         // check if we can still use normal movement rules
-        if (isLadderClimbable(world, from) || isLadderClimbable(world, to)) {
+        if (fromLadder || toLadder) {
             // Allow transitioning from/to ladders with more flexible height rules
             // Can go up to 2 blocks when involving ladders (climbing on/off)
             if (dy > 2) return false;
@@ -535,17 +901,9 @@ public class JumpAnalyzer {
 
         // Hide all highlights immediately
         SelectionRenderer.hideAllHighlights();
-
-        // Clear ALL variables
-        optimizedTargetBlock = null;
-        jumpFromBlock = null;
-        currentStandingBlock = null;
-        momentumStartBlock = null;
-        jumpPoint = null;
-        momentumPoint = null;
     }
 
-    private static BlockPos findMomentumStartPosition(World world, BlockPos jumpFrom, BlockPos target) {
+    private static Vec3d findMomentumStartPosition(WorldSnapshot world, BlockPos jumpFrom, BlockPos target) {
         // Calculate the direction from jumpFrom to target
         Vec3d jumpToTarget = new Vec3d(
                 target.getX() - jumpFrom.getX(),
@@ -553,6 +911,10 @@ public class JumpAnalyzer {
                 target.getZ() - jumpFrom.getZ()
         ).normalize();
 
+        if (jumpToTarget.lengthSquared() == 0) {
+            return null; // Target is straight above or below, there is no direction to build momentum in
+        }
+
         // Calculate the base opposite direction (180 degrees) for momentum building
         Vec3d baseOppositeDirection = jumpToTarget.multiply(-1);
 
@@ -560,96 +922,41 @@ public class JumpAnalyzer {
         System.out.println("Jump from: " + jumpFrom + " to target: " + target);
         System.out.println("Base momentum direction: " + String.format("(%.2f, %.2f)", baseOppositeDirection.x, baseOppositeDirection.z));
 
-        Vec3d bestMomentumStart = null;
-        double maxMomentumDistance = 0;
-        double bestAngle = 0;
-
-        // Search in a 180-degree span (±90 degrees from the opposite direction)
-        int angleSteps = 90; // Interval = 360 / angleSteps
-
-        for (int angleStep = 0; angleStep < angleSteps; angleStep++) {
-            // Calculate angle offset from -90 to +90 degrees
-            double angleOffset = ((double) angleStep / (angleSteps - 1) - 0.5) * Math.PI; // -π/2 to +π/2
-
-            // Rotate the base direction by the angle offset
-            double cos = Math.cos(angleOffset);
-            double sin = Math.sin(angleOffset);
-
-            Vec3d momentumDirection = new Vec3d(
-                    baseOppositeDirection.x * cos - baseOppositeDirection.z * sin,
-                    0,
-                    baseOppositeDirection.x * sin + baseOppositeDirection.z * cos
-            );
-
-            if (angleStep % 15 == 0) { // Log every 15 steps for performance
-                System.out.println("Checking angle " + Math.toDegrees(angleOffset) + "°: direction (" +
-                        String.format("%.2f, %.2f)", momentumDirection.x, momentumDirection.z) + ")");
+        // Search in a 180-degree span (±90 degrees from the opposite direction), coarse first and then refined
+        RunwayFinder finder = new RunwayFinder(new RunwayFinder.Surface() {
+            @Override
+            public boolean canStand(double x, int y, double z) {
+                return isWalkableSurfaceEnhanced(world, x, y, z);
             }
 
-            // Search for the longest straight line in this momentum direction
-            double currentMomentumDistance = 0;
-            Vec3d currentBestStart = new Vec3d(jumpFrom.getX() + 0.5, jumpFrom.getY(), jumpFrom.getZ() + 0.5);
-            int currentY = jumpFrom.getY(); // Track Y level to prevent uphill paths
-
-            // Test different distances along this momentum direction with finer granularity
-            for (double distance = 0.1; distance <= 20; distance += 0.1) {
-                // Calculate position at this distance using fine-grained coordinates
-                double x = jumpFrom.getX() + 0.5 + momentumDirection.x * distance;
-                double z = jumpFrom.getZ() + 0.5 + momentumDirection.z * distance;
-
-                Vec3d candidatePos = new Vec3d(x, currentY, z);
-
-                // Skip if we haven't moved significantly from the last position
-                if (candidatePos.distanceTo(currentBestStart) < 0.05) continue;
-
-                // Check if this position is walkable using block coordinates for world checks
-                BlockPos blockPos = BlockPos.ofFloored(candidatePos.x, candidatePos.y, candidatePos.z);
-                if (!isWalkableSurfaceEnhanced(world, blockPos)) {
-                    // Try one block up in case there's a step
-                    BlockPos upperPos = blockPos.up();
-                    if (isWalkableSurfaceEnhanced(world, upperPos)) {
-                        // If the upper position is walkable, use that Y level
-                        currentY = upperPos.getY();
-                        candidatePos = new Vec3d(candidatePos.x, currentY, candidatePos.z);
-                    } else {
-                        break;
-                    }
-                }
-
-                // Path is clear, update our best momentum position
-                currentBestStart = candidatePos;
-                currentMomentumDistance = distance;
+            @Override
+            public boolean isUniform(int minX, int maxX, int y, int minZ, int maxZ) {
+                return Footprint.isUniform(world, minX, maxX, y, minZ, maxZ);
             }
+        });
+        RunwayFinder.Runway runway = finder.findLongest(
+                jumpFrom.getX() + 0.5, jumpFrom.getY(), jumpFrom.getZ() + 0.5,
+                Math.atan2(baseOppositeDirection.z, baseOppositeDirection.x)
+        );
 
-            // Check if this direction gave us a better momentum path
-            if (currentMomentumDistance > maxMomentumDistance) {
-                maxMomentumDistance = currentMomentumDistance;
-                bestMomentumStart = currentBestStart;
-                bestAngle = Math.toDegrees(angleOffset);
-                System.out.println("New best momentum path: " + String.format("%.2f", currentMomentumDistance) + " blocks at " +
-                        String.format("%.1f°", bestAngle) + " to " + String.format("(%.2f, %.0f, %.2f)", currentBestStart.x, currentBestStart.y, currentBestStart.z));
-            }
-        }
+        double maxMomentumDistance = runway.length();
+        double bestAngle = Math.toDegrees(runway.angle());
 
         // Only return a momentum start if we found at least 0.5 blocks of runway
         if (maxMomentumDistance >= 0.5) {
             System.out.println("Momentum analysis complete: Found " + String.format("%.2f", maxMomentumDistance) + " blocks of runway at " +
-                    String.format("%.1f°", bestAngle) + " angle");
-            System.out.println("Best momentum start: " + String.format("(%.2f, %.0f, %.2f)", bestMomentumStart.x, bestMomentumStart.y, bestMomentumStart.z));
+                    String.format("%.1f°", bestAngle) + " angle (" + finder.getCastRays() + " rays)");
+            System.out.println("Best momentum start: " + String.format("(%.2f, %d, %.2f)", runway.x(), runway.y(), runway.z()));
 
-            // Set the precise momentum point (don't round it)
-            momentumPoint = bestMomentumStart.add(0.0, 0.5, 0.0); // Centered at the block edge
-
-            // Convert back to BlockPos for compatibility with existing code
-            return BlockPos.ofFloored(bestMomentumStart.x, bestMomentumStart.y, bestMomentumStart.z);
+            // Return the precise momentum point (don't round it)
+            return new Vec3d(runway.x(), runway.y() + 0.5, runway.z()); // Centered at the block edge
         } else {
             System.out.println("Momentum analysis complete: Insufficient runway (" + String.format("%.2f", maxMomentumDistance) + " blocks, need 0.5+)");
-            momentumPoint = null;
             return null;
         }
     }
 
-    private static boolean hasDirectPathVec3d(World world, Vec3d start, Vec3d end) {
+    private static boolean hasDirectPathVec3d(WorldSnapshot world, Vec3d start, Vec3d end) {
         // Check if there's a clear straight path between start and end using fine-grained coordinates
         // Uses enhanced walkable surface detection that accounts for 0.3 block buffer
         double dx = end.x - start.x;
@@ -685,11 +992,10 @@ public class JumpAnalyzer {
         return true;
     }
 
-    private static Vec3d calculateJumpPoint(BlockPos jumpFrom, BlockPos target) {
+    private static Vec3d calculateJumpPoint(BlockPos jumpFrom, BlockPos target, Vec3d momentumPoint) {
         // Calculate the precise jump point: 0.3 blocks past the jumpFromBlock edge toward the target
 
         // Get the momentum direction (from momentum start to jump block center)
-        Vec3d momentumPoint = getMomentumPoint();
         Vec3d jumpFromCenter = new Vec3d(jumpFrom.getX() + 0.5, jumpFrom.getY(), jumpFrom.getZ() + 0.5);
 
         Vec3d momentumDirection = null;
@@ -742,81 +1048,49 @@ public class JumpAnalyzer {
         return jumpPoint;
     }
 
-    private static boolean isWalkableSurfaceEnhanced(World world, BlockPos pos) {
-        // Check if the player can stand anywhere within 0.3 blocks of the given position
-        // This accounts for the fact that players can stand near block edges
+    private static boolean isWalkableSurfaceEnhanced(WorldSnapshot world, BlockPos pos) {
+        return isWalkableSurfaceEnhanced(world, pos.getX() + 0.5, pos.getY(), pos.getZ() + 0.5);
+    }
+
+    private static boolean isWalkableSurfaceEnhanced(WorldSnapshot world, double x, int y, double z) {
+        // Check if the player can stand at the given position with their whole footprint
         // Also include ladder climbing positions
 
         // First check if this is a ladder climbing position
-        if (isLadderClimbable(world, pos)) {
+        if (isLadderClimbable(world, MathHelper.floor(x), y, MathHelper.floor(z))) {
             return true;
         }
 
-        // Check a 0.6x0.6 region (±0.3 blocks) around the position at 0.05 block intervals
-        for (double offsetX = -0.3; offsetX <= 0.3; offsetX += 0.05) {
-            for (double offsetZ = -0.3; offsetZ <= 0.3; offsetZ += 0.05) {
-                // Calculate the actual position to check
-                double checkX = pos.getX() + 0.5 + offsetX; // Center of block + offset
-                double checkZ = pos.getZ() + 0.5 + offsetZ; // Center of block + offset
-
-                BlockPos checkPos = BlockPos.ofFloored(checkX, pos.getY(), checkZ);
-
-                // Check if this specific position is walkable:
-                // - Block below must be solid (to stand on)
-                // - Block at position must be passable (air/non-solid)
-                // - Block above must be passable (head room)
-                // - OR it's a ladder position
-                if ((world.getBlockState(checkPos.down()).isSolidBlock(world, checkPos.down()) &&
-                        !world.getBlockState(checkPos).isSolidBlock(world, checkPos) &&
-                        !world.getBlockState(checkPos.up()).isSolidBlock(world, checkPos.up())) ||
-                        isLadderClimbable(world, checkPos)) {
-
-                    // Found at least one valid standing position within the region
-                    return true;
-                }
-            }
-        }
-
-        // No valid standing position found within the 0.3-block region
-        return false;
+        // The footprint touches at most 4 blocks, each tested once against its real collision shape,
+        // so slabs, stairs and fences count as support or obstruction where they actually are
+        return Footprint.canStand(world, x, y, z);
     }
 
     // Helper method to detect if a position is climbable via ladder
-    private static boolean isLadderClimbable(World world, BlockPos pos) {
-        BlockState blockState = world.getBlockState(pos);
+    private static boolean isLadderClimbable(WorldSnapshot world, BlockPos pos) {
+        return isLadderClimbable(world, pos.getX(), pos.getY(), pos.getZ());
+    }
 
+    private static boolean isLadderClimbable(WorldSnapshot world, int x, int y, int z) {
         // Check if the current block is a ladder
-        if (blockState.getBlock() instanceof LadderBlock) {
+        if (world.isLadder(x, y, z)) {
             // Ensure there's head room (block above is passable)
-            return !world.getBlockState(pos.up()).isSolidBlock(world, pos.up());
-        }
-
-        return false;
-    }
-
-    // Helper method to detect if a position is a ladder prop (1 block above a ladder)
-    private static boolean isLadderProp(World world, BlockPos pos) {
-        BlockState blockState = world.getBlockState(pos);
-
-        // Check if the current block is air
-        if (blockState.isAir()) {
-            // Check if the block below is air
-            return world.getBlockState(pos.down()).getBlock() instanceof LadderBlock;
+            return !world.isSolid(x, y + 1, z);
         }
 
         return false;
     }
 
     // Helper method to check if we can climb between two ladder positions
-    private static boolean canClimbLadder(World world, BlockPos from, BlockPos to) {
+    private static boolean canClimbLadder(WorldSnapshot world, int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
         // Both positions must be ladder-climbable
-        if (!isLadderClimbable(world, from) || !isLadderClimbable(world, to)) {
+        if (!isLadderClimbable(world, fromX, fromY, fromZ) || !isLadderClimbable(world, toX, toY, toZ)) {
             return false;
         }
 
-        int dy = to.getY() - from.getY();
-        int dx = Math.abs(to.getX() - from.getX());
-        int dz = Math.abs(to.getZ() - from.getZ());
+        int dy = toY - fromY;
+        int dx = Math.abs(toX - fromX);
+        int dz = Math.abs(toZ - fromZ);
 
         // Must be vertically aligned or adjacent horizontally
         if (dx > 1 || dz > 1) {
@@ -833,8 +1107,7 @@ public class JumpAnalyzer {
         if (steps > 0) {
             int stepY = dy > 0 ? 1 : -1;
             for (int i = 1; i < steps; i++) {
-                BlockPos intermediatePos = from.add(0, i * stepY, 0);
-                if (!isLadderClimbable(world, intermediatePos)) {
+                if (!isLadderClimbable(world, fromX, fromY + i * stepY, fromZ)) {
                     return false;
                 }
             }
@@ -0,0 +1,132 @@
+package com.ariesninja.skulkpk.client.core;
+
+import com.ariesninja.skulkpk.client.core.world.WorldSnapshot;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Set;
+
+/**
+ * The world reads each stage of a jump analysis depended on, so a block change can be traced back to
+ * the stages it invalidates. Filled on the analysis thread and only read once the result is published.
+ */
+public final class JumpDependencies {
+
+    /**
+     * Analysis stages in the order they run. Each stage also depends on the outputs of the ones before it.
+     */
+    public enum Stage {
+        JUMP_FROM,
+        LANDING,
+        RUNWAY
+    }
+
+    private static final int STAGES = Stage.values().length;
+
+    private final Vec3d playerPos;
+    private final LongSet[] blocks = new LongSet[STAGES];
+    private final LongSet[] columns = new LongSet[STAGES];
+    private final LongSet[] chunks = new LongSet[STAGES];
+
+    public JumpDependencies(Vec3d playerPos) {
+        this.playerPos = playerPos;
+    }
+
+    /**
+     * Position the player was analyzed from, which the jump-from stage depends on
+     */
+    public Vec3d getPlayerPos() {
+        return playerPos;
+    }
+
+    /**
+     * Starts a stage, returning a view of the snapshot that records every read made through it
+     */
+    WorldSnapshot record(Stage stage, WorldSnapshot world) {
+        int index = stage.ordinal();
+        blocks[index] = new LongOpenHashSet();
+        columns[index] = new LongOpenHashSet();
+        chunks[index] = null;
+        return world.recording(blocks[index], columns[index]);
+    }
+
+    /**
+     * Finishes a stage, indexing its reads by chunk for quick chunk-level checks
+     */
+    void seal(Stage stage) {
+        int index = stage.ordinal();
+        LongSet stageChunks = new LongOpenHashSet();
+
+        LongIterator iterator = blocks[index].iterator();
+        while (iterator.hasNext()) {
+            long pos = iterator.nextLong();
+            stageChunks.add(ChunkPos.toLong(BlockPos.unpackLongX(pos) >> 4, BlockPos.unpackLongZ(pos) >> 4));
+        }
+        iterator = columns[index].iterator();
+        while (iterator.hasNext()) {
+            long column = iterator.nextLong();
+            stageChunks.add(ChunkPos.toLong(ChunkPos.getPackedX(column) >> 4, ChunkPos.getPackedZ(column) >> 4));
+        }
+
+        chunks[index] = stageChunks;
+    }
+
+    /**
+     * Records a stage that was answered from whole chunks, like jump graph partitions. Any change in them affects it.
+     */
+    void recordChunks(Stage stage, LongSet stageChunks) {
+        int index = stage.ordinal();
+        blocks[index] = null;
+        columns[index] = null;
+        chunks[index] = stageChunks;
+    }
+
+    /**
+     * Copies the reads of every stage, for re-running some of them. Stages that are re-run record fresh reads.
+     */
+    JumpDependencies copy() {
+        JumpDependencies copy = new JumpDependencies(playerPos);
+        System.arraycopy(blocks, 0, copy.blocks, 0, STAGES);
+        System.arraycopy(columns, 0, copy.columns, 0, STAGES);
+        System.arraycopy(chunks, 0, copy.chunks, 0, STAGES);
+        return copy;
+    }
+
+    /**
+     * Adds every stage that read the block or its column to the set
+     */
+    public void collectAffectedByBlock(int x, int y, int z, Set<Stage> affected) {
+        long pos = BlockPos.asLong(x, y, z);
+        long column = ChunkPos.toLong(x, z);
+        long chunk = ChunkPos.toLong(x >> 4, z >> 4);
+        for (Stage stage : Stage.values()) {
+            int index = stage.ordinal();
+            if (chunks[index] == null) {
+                continue; // Not finished
+            }
+            boolean hit = blocks[index] != null
+                    ? blocks[index].contains(pos) || columns[index].contains(column)
+                    : chunks[index].contains(chunk);
+            if (hit) {
+                affected.add(stage);
+            }
+        }
+    }
+
+    /**
+     * Adds every stage that read anything in the chunk to the set
+     */
+    public void collectAffectedByChunk(int chunkX, int chunkZ, Set<Stage> affected) {
+        long chunk = ChunkPos.toLong(chunkX, chunkZ);
+        for (Stage stage : Stage.values()) {
+            LongSet stageChunks = chunks[stage.ordinal()];
+            if (stageChunks != null && stageChunks.contains(chunk)) {
+                affected.add(stage);
+            }
+        }
+    }
+}
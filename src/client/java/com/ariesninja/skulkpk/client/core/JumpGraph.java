@@ -0,0 +1,266 @@
+package com.ariesninja.skulkpk.client.core;
+
+import com.ariesninja.skulkpk.client.core.world.Footprint;
+import com.ariesninja.skulkpk.client.core.world.WorldSnapshot;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed reachability between standable positions, split into one partition per chunk.
+ *
+ * The nodes of a partition are the walkable positions of its chunk (see {@link WorldSnapshot#isWalkable}),
+ * sorted by {@link BlockPos#asLong}. Edges are kept in compressed sparse rows: the edges of node i are
+ * {@code targets[start[i]]} up to {@code targets[start[i + 1]]}, sorted, and may lead into neighbouring partitions.
+ * Walk edges follow the analyzer's walking rules, jump edges lead from ledges to landings a sprint jump can reach:
+ * within the closed-form reach below, clear of blocks along the arc, and confirmed by a {@link JumpCheck}.
+ *
+ * A graph is an immutable set of partitions, so it can be read from any thread.
+ */
+public final class JumpGraph {
+
+    public static final JumpGraph EMPTY = new JumpGraph(new Long2ObjectOpenHashMap<>());
+
+    // Lowest landing a jump edge leads to, relative to the take-off level
+    private static final int MAX_JUMP_DROP = 3;
+    // Gap between block edges a flat sprint jump clears, the reach at other heights is scaled by air time
+    private static final double FLAT_JUMP_GAP = 4.3;
+    // Longest gap a jump edge may cross, by landing level from MAX_JUMP_DROP below up to one above
+    private static final double[] JUMP_REACH = computeJumpReach();
+
+    /**
+     * How far a jump edge may lead horizontally, which is also how far past its chunk a partition reads the world
+     */
+    public static final int MAX_JUMP_BLOCKS = (int) Math.ceil(JUMP_REACH[0]) + 1;
+
+    // Keyed by ChunkPos.toLong(chunkX, chunkZ)
+    private final Long2ObjectOpenHashMap<Partition> partitions;
+
+    public JumpGraph(Long2ObjectMap<Partition> partitions) {
+        this.partitions = new Long2ObjectOpenHashMap<>(partitions);
+    }
+
+    /**
+     * Returns the partition of a chunk, or null if it was not built
+     */
+    public Partition getPartition(int chunkX, int chunkZ) {
+        return partitions.get(ChunkPos.toLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Returns the partition holding a position, or null if it was not built
+     */
+    public Partition getPartitionAt(long pos) {
+        return getPartition(BlockPos.unpackLongX(pos) >> 4, BlockPos.unpackLongZ(pos) >> 4);
+    }
+
+    public boolean isEmpty() {
+        return partitions.isEmpty();
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * Gap a sprint jump clears when landing dy blocks above the take-off level, or 0 if it can't land there
+     */
+    public static double getJumpReach(int dy) {
+        if (dy < -MAX_JUMP_DROP || dy > 1) {
+            return 0;
+        }
+        return JUMP_REACH[dy + MAX_JUMP_DROP];
+    }
+
+    private static double[] computeJumpReach() {
+        // Horizontal speed that makes the flat jump reach FLAT_JUMP_GAP, with the footprint overhanging both edges
+        double speed = (FLAT_JUMP_GAP - 2 * Footprint.HALF_WIDTH) / airTicks(0);
+
+        double[] reach = new double[MAX_JUMP_DROP + 2];
+        for (int dy = -MAX_JUMP_DROP; dy <= 1; dy++) {
+            reach[dy + MAX_JUMP_DROP] = speed * airTicks(dy) + 2 * Footprint.HALF_WIDTH;
+        }
+        return reach;
+    }
+
+    /**
+     * Ticks from take-off until a jump comes back down to dy, using vanilla jump velocity, gravity and drag
+     */
+    private static int airTicks(int dy) {
+        double y = 0;
+        double velocity = 0.42;
+        int ticks = 0;
+        do {
+            y += velocity;
+            velocity = (velocity - 0.08) * 0.98;
+            ticks++;
+        } while (velocity > 0 || y > dy);
+        return ticks;
+    }
+
+    /**
+     * Confirms the jump edges that pass the closed-form checks, usually by simulating them
+     */
+    public interface JumpCheck {
+        /**
+         * Removes the targets from index start on that a sprint jump from the position doesn't land on.
+         * Called on the build thread.
+         */
+        void retainReachable(BlockPos from, LongArrayList targets, int start);
+    }
+
+    /**
+     * The nodes and edges of a single chunk
+     */
+    public static final class Partition {
+        private final int chunkX;
+        private final int chunkZ;
+        private final long[] nodes;
+        private final int[] walkStart;
+        private final long[] walkTargets;
+        private final int[] jumpStart;
+        private final long[] jumpTargets;
+
+        private Partition(int chunkX, int chunkZ, long[] nodes, int[] walkStart, long[] walkTargets, int[] jumpStart, long[] jumpTargets) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.nodes = nodes;
+            this.walkStart = walkStart;
+            this.walkTargets = walkTargets;
+            this.jumpStart = jumpStart;
+            this.jumpTargets = jumpTargets;
+        }
+
+        /**
+         * Builds the partition of a chunk. The snapshot must cover the chunk and {@link #MAX_JUMP_BLOCKS} around it,
+         * and so must whatever the check reads.
+         */
+        public static Partition build(WorldSnapshot world, int chunkX, int chunkZ, JumpCheck check) {
+            LongArrayList found = new LongArrayList();
+            for (int x = chunkX << 4; x < (chunkX << 4) + 16; x++) {
+                for (int z = chunkZ << 4; z < (chunkZ << 4) + 16; z++) {
+                    for (int level : world.getWalkableLevels(x, z)) {
+                        found.add(BlockPos.asLong(x, level, z));
+                    }
+                }
+            }
+            long[] nodes = found.toLongArray();
+            Arrays.sort(nodes);
+
+            int[] walkStart = new int[nodes.length + 1];
+            int[] jumpStart = new int[nodes.length + 1];
+            LongArrayList walkTargets = new LongArrayList();
+            LongArrayList jumpTargets = new LongArrayList();
+            BlockPos.Mutable from = new BlockPos.Mutable();
+            BlockPos.Mutable to = new BlockPos.Mutable();
+
+            for (int i = 0; i < nodes.length; i++) {
+                long node = nodes[i];
+
+                JumpAnalyzer.forEachWalkStep(world, node, walkTargets::add);
+                walkStart[i + 1] = walkTargets.size();
+                Arrays.sort(walkTargets.elements(), walkStart[i], walkStart[i + 1]);
+
+                from.set(node);
+                if (isLedge(world, from)) {
+                    addJumps(world, from, to, jumpTargets, check);
+                }
+                jumpStart[i + 1] = jumpTargets.size();
+                Arrays.sort(jumpTargets.elements(), jumpStart[i], jumpStart[i + 1]);
+            }
+
+            return new Partition(chunkX, chunkZ, nodes, walkStart, walkTargets.toLongArray(), jumpStart, jumpTargets.toLongArray());
+        }
+
+        /**
+         * Whether the player could walk off the position on some side, the only places a jump is taken from
+         */
+        private static boolean isLedge(WorldSnapshot world, BlockPos pos) {
+            return !world.isWalkable(pos.getX() + 1, pos.getY(), pos.getZ())
+                    || !world.isWalkable(pos.getX() - 1, pos.getY(), pos.getZ())
+                    || !world.isWalkable(pos.getX(), pos.getY(), pos.getZ() + 1)
+                    || !world.isWalkable(pos.getX(), pos.getY(), pos.getZ() - 1);
+        }
+
+        private static void addJumps(WorldSnapshot world, BlockPos.Mutable from, BlockPos.Mutable to, LongArrayList jumpTargets,
+                                     JumpCheck check) {
+            // A jump needs room for the head at the top of the arc
+            if (world.isSolid(from.getX(), from.getY() + 2, from.getZ())) {
+                return;
+            }
+
+            int start = jumpTargets.size();
+            for (int dx = -MAX_JUMP_BLOCKS; dx <= MAX_JUMP_BLOCKS; dx++) {
+                for (int dz = -MAX_JUMP_BLOCKS; dz <= MAX_JUMP_BLOCKS; dz++) {
+                    if (Math.abs(dx) <= 1 && Math.abs(dz) <= 1) continue; // Adjacent columns are walk edges
+
+                    int x = from.getX() + dx;
+                    int z = from.getZ() + dz;
+                    int[] levels = world.getWalkableLevels(x, z);
+                    int level = Arrays.binarySearch(levels, from.getY() - MAX_JUMP_DROP);
+                    if (level < 0) {
+                        level = -level - 1; // Lowest level at or above the deepest drop
+                    }
+
+                    for (; level < levels.length && levels[level] <= from.getY() + 1; level++) {
+                        to.set(x, levels[level], z);
+                        double gap = JumpAnalyzer.calculateMinHorizontalDistance(from, to);
+                        if (gap <= getJumpReach(to.getY() - from.getY()) && JumpAnalyzer.isJumpReachable(world, from, to)) {
+                            jumpTargets.add(to.asLong());
+                        }
+                    }
+                }
+            }
+
+            // The reach is scaled from a flat jump and the arc only sampled, so the rest is left to the check
+            if (jumpTargets.size() > start) {
+                check.retainReachable(from, jumpTargets, start);
+            }
+        }
+
+        public int getChunkX() { return chunkX; }
+        public int getChunkZ() { return chunkZ; }
+        public int getNodeCount() { return nodes.length; }
+        public int getEdgeCount() { return walkTargets.length + jumpTargets.length; }
+
+        /**
+         * Index of the node at a position, or -1 if the position is not standable
+         */
+        public int indexOf(long pos) {
+            int index = Arrays.binarySearch(nodes, pos);
+            return index >= 0 ? index : -1;
+        }
+
+        /**
+         * Lowest node in the position's column at or above it, or -1 if there is none
+         */
+        public int ceilingIndex(int x, int y, int z) {
+            int index = Arrays.binarySearch(nodes, BlockPos.asLong(x, y, z));
+            if (index < 0) {
+                index = -index - 1;
+            }
+            // Nodes of one column are adjacent and ordered by y, since y takes the lowest bits
+            if (index < nodes.length && BlockPos.unpackLongX(nodes[index]) == x && BlockPos.unpackLongZ(nodes[index]) == z) {
+                return index;
+            }
+            return -1;
+        }
+
+        public long getNode(int index) { return nodes[index]; }
+
+        public int getWalkStart(int index) { return walkStart[index]; }
+        public int getWalkEnd(int index) { return walkStart[index + 1]; }
+        public long getWalkTarget(int edge) { return walkTargets[edge]; }
+
+        /**
+         * Whether a jump edge leads from the node to the position
+         */
+        public boolean hasJump(int index, long target) {
+            return Arrays.binarySearch(jumpTargets, jumpStart[index], jumpStart[index + 1], target) >= 0;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.ariesninja.skulkpk.client.core;
+
+import com.ariesninja.skulkpk.client.core.JumpPlanner.JumpLogistics;
+import com.ariesninja.skulkpk.client.core.data.Step;
+import com.ariesninja.skulkpk.client.core.data.schemes.CompiledPattern;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.effect.StatusEffect;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Remembers the steps planned for a jump by the shape of the blocks around it, so a jump shape that was planned
+ * once is planned instantly the next time, in any session.
+ *
+ * A key describes the jump in a frame that faces from the jump block toward the target block along the dominant
+ * axis. It holds the target and momentum start relative to the jump block, the player's speed and jump boost,
+ * and whether every block of the surrounding region is empty, partial or solid. The region covers the whole
+ * neighbourhood patterns are matched in, diagonal ones included, and the run-up from the momentum start.
+ * Entries are evicted least recently used first, and written to the config directory off the tick thread, a
+ * moment after the last one was added.
+ */
+public class JumpPlanCache {
+
+    private static final String CACHE_FILE_NAME = "skulkpk-plans.json";
+    private static final int VERSION = 2;
+    private static final int MAX_ENTRIES = 512;
+    private static final Gson GSON = new Gson();
+
+    // Blocks around the jump block the region covers on both axes, the neighbourhood patterns are matched in
+    private static final int REACH = CompiledPattern.RADIUS;
+    // Blocks to each side of the jump line, and past the target, the region covers beyond that
+    private static final int SIDE = 2;
+    private static final int AHEAD = 1;
+
+    // Time a save waits for more plans, so a burst of them is written once
+    private static final long SAVE_DELAY_MILLIS = 2000;
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Skulk Plan Cache Saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Copy of the entries waiting to be written, null when no save is pending
+    private static final AtomicReference<Map<String, List<Step>>> pendingSave = new AtomicReference<>();
+
+    static {
+        // A save still waiting when the game closes is written on the way out
+        Runtime.getRuntime().addShutdownHook(new Thread(JumpPlanCache::writePending, "Skulk Plan Cache Saver"));
+    }
+
+    private static final int EMPTY = 0;
+    private static final int PARTIAL = 1;
+    private static final int SOLID = 2;
+
+    private static final Map<String, List<Step>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Step>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static boolean loaded = false;
+
+    /**
+     * Returns the steps cached for the shape of this jump, or null
+     */
+    public static List<Step> get(MinecraftClient client, JumpLogistics logistics) {
+        String key = keyOf(client, logistics);
+        if (key == null) {
+            return null;
+        }
+        load();
+        return entries.get(key);
+    }
+
+    /**
+     * Caches the steps planned for the shape of this jump, and schedules a save
+     */
+    public static void put(MinecraftClient client, JumpLogistics logistics, List<Step> steps) {
+        String key = keyOf(client, logistics);
+        if (key == null) {
+            return;
+        }
+        load();
+        entries.put(key, List.copyOf(steps));
+        scheduleSave();
+    }
+
+    public static int size() {
+        load();
+        return entries.size();
+    }
+
+    public static void clear() {
+        entries.clear();
+        loaded = true;
+        scheduleSave();
+    }
+
+    /**
+     * Encodes the jump in its own frame, or returns null if there is no world to read it from
+     */
+    static String keyOf(MinecraftClient client, JumpLogistics logistics) {
+        if (client == null || client.world == null || logistics == null) {
+            return null;
+        }
+        BlockPos start = logistics.getJumpBlockPos();
+        BlockPos end = logistics.getTargetBlockPos();
+        if (start == null || end == null) {
+            return null;
+        }
+
+        // Forward along the dominant axis toward the target, x on ties, and lateral to its left
+        int deltaX = end.getX() - start.getX();
+        int deltaZ = end.getZ() - start.getZ();
+        int forwardX = 0;
+        int forwardZ = 0;
+        if (Math.abs(deltaX) >= Math.abs(deltaZ)) {
+            forwardX = deltaX >= 0 ? 1 : -1;
+        } else {
+            forwardZ = deltaZ >= 0 ? 1 : -1;
+        }
+        int lateralX = -forwardZ;
+        int lateralZ = forwardX;
+
+        int forward = deltaX * forwardX + deltaZ * forwardZ;
+        int lateral = deltaX * lateralX + deltaZ * lateralZ;
+        int rise = end.getY() - start.getY();
+
+        // Momentum start in tenths of a block, from the center of the jump block
+        Vec3d momentum = logistics.getMomentumStartPos().subtract(Vec3d.ofCenter(start));
+        double runUpForward = momentum.x * forwardX + momentum.z * forwardZ;
+        double runUpLateral = momentum.x * lateralX + momentum.z * lateralZ;
+        long momentumForward = Math.round(runUpForward * 10.0);
+        long momentumLateral = Math.round(runUpLateral * 10.0);
+
+        // The pattern neighbourhood, stretched to the target and to the run-up with a block around it
+        int runUpBlockForward = (int) Math.floor(runUpForward + 0.5);
+        int runUpBlockLateral = (int) Math.floor(runUpLateral + 0.5);
+        int minForward = Math.min(-REACH, runUpBlockForward - 1);
+        int maxForward = Math.max(Math.max(REACH, forward + AHEAD), runUpBlockForward + 1);
+        int minLateral = Math.min(Math.min(-REACH, lateral - SIDE), runUpBlockLateral - 1);
+        int maxLateral = Math.max(Math.max(REACH, lateral + SIDE), runUpBlockLateral + 1);
+        int minY = Math.min(0, rise) - 1;
+        int maxY = Math.max(0, rise) + 3; // Floor below, the jump block itself, and room for the player above it
+
+        World world = client.world;
+        BitSet bits = new BitSet();
+        int index = 0;
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int a = minForward; a <= maxForward; a++) {
+            for (int b = minLateral; b <= maxLateral; b++) {
+                for (int y = minY; y <= maxY; y++) {
+                    pos.set(start.getX() + a * forwardX + b * lateralX,
+                            start.getY() + y,
+                            start.getZ() + a * forwardZ + b * lateralZ);
+                    int shape = shapeOf(world, pos);
+                    if ((shape & 1) != 0) bits.set(index);
+                    if ((shape & 2) != 0) bits.set(index + 1);
+                    index += 2;
+                }
+            }
+        }
+
+        // Speed and jump boost change how far the same steps carry the player
+        int speed = amplifierOf(client.player, StatusEffects.SPEED);
+        int jumpBoost = amplifierOf(client.player, StatusEffects.JUMP_BOOST);
+
+        return forward + "," + lateral + "," + rise + "," + momentumForward + "," + momentumLateral
+                + "," + speed + "," + jumpBoost + ":" + Base64.getEncoder().encodeToString(bits.toByteArray());
+    }
+
+    /**
+     * Amplifier of the effect plus one, or 0 without it
+     */
+    private static int amplifierOf(PlayerEntity player, RegistryEntry<StatusEffect> effect) {
+        StatusEffectInstance instance = player == null ? null : player.getStatusEffect(effect);
+        return instance == null ? 0 : instance.getAmplifier() + 1;
+    }
+
+    private static int shapeOf(World world, BlockPos pos) {
+        BlockState state = world.getBlockState(pos);
+        if (state.getCollisionShape(world, pos).isEmpty()) {
+            return EMPTY;
+        }
+        return state.isSolidBlock(world, pos) ? SOLID : PARTIAL;
+    }
+
+    private static Path cacheFile() {
+        return MinecraftClient.getInstance().runDirectory.toPath().resolve("config").resolve(CACHE_FILE_NAME);
+    }
+
+    private static void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        try {
+            Path file = cacheFile();
+            if (!Files.exists(file)) {
+                return;
+            }
+
+            JsonObject root = GSON.fromJson(Files.readString(file), JsonObject.class);
+            if (root == null || !root.has("version") || root.get("version").getAsInt() != VERSION) {
+                // Keys of another version describe jumps differently
+                return;
+            }
+            if (!root.has("plans") || !root.get("plans").isJsonObject()) {
+                System.err.println("Failed to load plan cache: no plans in " + file);
+                return;
+            }
+
+            for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject("plans").entrySet()) {
+                List<Step> steps = new ArrayList<>();
+                for (JsonElement step : entry.getValue().getAsJsonArray()) {
+                    steps.add(Step.valueOf(step.getAsString()));
+                }
+                entries.put(entry.getKey(), List.copyOf(steps));
+            }
+            System.out.println("JumpPlanCache: Loaded " + entries.size() + " cached plans");
+        } catch (IOException | JsonParseException | IllegalStateException | IllegalArgumentException
+                 | UnsupportedOperationException e) {
+            // A step that no longer exists, or a broken file, drops the whole cache
+            entries.clear();
+            System.err.println("Failed to load plan cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the entries for the saver, which picks up the latest copy once the delay has passed
+     */
+    private static void scheduleSave() {
+        if (pendingSave.getAndSet(new LinkedHashMap<>(entries)) == null) {
+            SAVER.schedule(JumpPlanCache::writePending, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Synchronized so a copy taken earlier is never written over one taken later
+    private static synchronized void writePending() {
+        Map<String, List<Step>> pending = pendingSave.getAndSet(null);
+        if (pending != null) {
+            write(pending);
+        }
+    }
+
+    private static void write(Map<String, List<Step>> snapshot) {
+        try {
+            Path file = cacheFile();
+            Files.createDirectories(file.getParent());
+
+            JsonObject plans = new JsonObject();
+            for (Map.Entry<String, List<Step>> entry : snapshot.entrySet()) {
+                JsonArray steps = new JsonArray();
+                for (Step step : entry.getValue()) {
+                    steps.add(step.name());
+                }
+                plans.add(entry.getKey(), steps);
+            }
+
+            JsonObject root = new JsonObject();
+            root.addProperty("version", VERSION);
+            root.add("plans", plans);
+            Files.writeString(file, GSON.toJson(root));
+        } catch (IOException e) {
+            System.err.println("Failed to save plan cache: " + e.getMessage());
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.ariesninja.skulkpk.client.core.data.Step;
 import com.ariesninja.skulkpk.client.core.data.schemes.Pattern;
 import com.ariesninja.skulkpk.client.core.physics.*;
 import com.ariesninja.skulkpk.client.core.utils.ChatMessageUtil;
+import com.ariesninja.skulkpk.client.pk.MovementPlanner;
+import com.ariesninja.skulkpk.client.pk.MovementPlanner.MovementPlan;
 import com.jcraft.jorbis.Block;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.player.PlayerEntity;
@@ -27,6 +29,7 @@ public class JumpPlanner {
         private final Vec3d recommendedDirection;
         private final BlockPos jumpBlockPos;
         private final BlockPos targetBlockPos;
+        private ObstructionProfile obstructionProfile = null; // Scanned on first use, and again once stale
 
         public JumpLogistics(Vec3d momentumStartPos, Vec3d jumpPos, Vec3d targetPos, double distance,
                              double heightDifference, double offset,
@@ -52,6 +55,17 @@ public class JumpPlanner {
         public Vec3d getRecommendedDirection() { return recommendedDirection; }
         public BlockPos getJumpBlockPos() { return jumpBlockPos; }
         public BlockPos getTargetBlockPos() { return targetBlockPos; }
+
+        /**
+         * Obstructions of this jump, scanned from the world the first time they are asked for, and again once a
+         * block they were scanned from has changed
+         */
+        public ObstructionProfile getObstructionProfile(MinecraftClient client) {
+            if (obstructionProfile == null || obstructionProfile.isStale()) {
+                obstructionProfile = ObstructionProfile.scan(client, this);
+            }
+            return obstructionProfile;
+        }
     }
 
     /**
@@ -59,12 +73,19 @@ public class JumpPlanner {
      */
     public static class StepSequence {
         private final List<Step> steps;
+        private final MovementPlan plan; // Inputs for PLANNED_INPUTS steps, if any
 
         public StepSequence(List<Step> steps) {
+            this(steps, null);
+        }
+
+        public StepSequence(List<Step> steps, MovementPlan plan) {
             this.steps = new ArrayList<>(steps);
+            this.plan = plan;
         }
 
         public List<Step> getSteps() { return Collections.unmodifiableList(steps); }
+        public MovementPlan getPlan() { return plan; }
 
         @Override
         public String toString() {
@@ -107,10 +128,29 @@ public class JumpPlanner {
     }
 
     /**
-     * Generates a step sequence based on the provided logistics
-     * This is where the main planning logic would be implemented
+     * Generates a step sequence based on the provided logistics, reusing the steps of an earlier jump of the same
+     * shape when there is one
      */
     private StepSequence generateStepSequence(MinecraftClient client, JumpLogistics logistics) {
+        List<Step> cached = JumpPlanCache.get(client, logistics);
+        if (cached != null) {
+            System.out.println("JumpPlanner: Reusing cached steps " + cached);
+            return new StepSequence(cached);
+        }
+
+        StepSequence sequence = planStepSequence(client, logistics);
+        // Searched plans start from where the player stands right now, so only fixed strategies are kept
+        if (sequence != null && sequence.getPlan() == null) {
+            JumpPlanCache.put(client, logistics, sequence.getSteps());
+        }
+        return sequence;
+    }
+
+    /**
+     * Plans a step sequence based on the provided logistics
+     * This is where the main planning logic would be implemented
+     */
+    private StepSequence planStepSequence(MinecraftClient client, JumpLogistics logistics) {
         List<Step> steps = new ArrayList<>();
 
         // Run physics-based checks to determine complexity
@@ -119,17 +159,18 @@ public class JumpPlanner {
         boolean requiresAdvancedMomentum = Momentum.requiresAdvancedMomentum(logistics);
         boolean requiresObstacleAvoidance = Avoidance.requiresObstacleAvoidance(logistics);
 
-        if (Obstructions.isNeoJump(client, logistics)) {
+        ObstructionProfile obstructions = logistics.getObstructionProfile(client);
+        if (obstructions.isNeoJump()) {
 
             // Use the align + neo A strategy for minor neos
-            if (Obstructions.isMinorNeo(client, logistics)) {
+            if (obstructions.isMinorNeo()) {
                 steps.add(Step.UNIT_SAFE_CORNER);
                 steps.add(Step.NEO_A);
                 return new StepSequence(steps);
             }
 
             // Use technic AP for triple neo with AP pattern
-            if (Patterns.doesJumpMatchPattern(client, logistics.getJumpBlockPos(), logistics.getTargetBlockPos(), Pattern.tripleNeoAP)) {
+            if (Patterns.doesJumpMatchPattern(client, logistics.getJumpBlockPos(), logistics.getTargetBlockPos(), Pattern.TRIPLE_NEO_AP)) {
                 steps.add(Step.UNIT_SAFE_CORNER_BACK);
                 steps.add(Step.NEO_3_AP);
                 return new StepSequence(steps);
@@ -147,8 +188,16 @@ public class JumpPlanner {
             return new StepSequence(steps);
         }
 
+        // Search for inputs that land on the target when no fixed strategy fits
+        MovementPlan plan = MovementPlanner.plan(client.player, logistics.getTargetBlockPos());
+        if (plan != null) {
+            System.out.println("JumpPlanner: Found " + plan);
+            steps.add(Step.PLANNED_INPUTS);
+            return new StepSequence(steps, plan);
+        }
+
         // Inform the user that this jump isn't supported yet via chat
-        ChatMessageUtil.sendError(client, "This jump requires advanced planning and is not yet supported. " +
+        ChatMessageUtil.sendError(client, "This jump requires advanced planning and no plan was found in time. " +
                 "Please report this jump to the developers for future support.");
         return null; // Unsupported jump type
     }
@@ -35,6 +35,16 @@ public class Keybinds {
             )
     );
 
+    // Unbound by default, only needed to check the simulation against real movement
+    public static final KeyBinding RECORD_KEY = KeyBindingHelper.registerKeyBinding(
+            new KeyBinding(
+                    "key.skulkpk.record",
+                    InputUtil.Type.KEYSYM,
+                    GLFW.GLFW_KEY_UNKNOWN,
+                    CATEGORY
+            )
+    );
+
 //    public static final KeyBinding TEST_KEY_1 = KeyBindingHelper.registerKeyBinding(
 //            new KeyBinding(
 //                    "key.skulkpk.test",
@@ -3,10 +3,12 @@ package com.ariesninja.skulkpk.client.core;
 import com.ariesninja.skulkpk.client.core.data.Step;
 import com.ariesninja.skulkpk.client.core.JumpPlanner.JumpLogistics;
 import com.ariesninja.skulkpk.client.core.physics.Dist;
-import com.ariesninja.skulkpk.client.core.physics.Obstructions;
-import com.ariesninja.skulkpk.client.core.physics.utils.Ledge;
+import com.ariesninja.skulkpk.client.core.physics.JumpTimingSolver;
 import com.ariesninja.skulkpk.client.core.utils.ChatMessageUtil;
-import com.ariesninja.skulkpk.client.pk.AutoJumpHelper;
+import com.ariesninja.skulkpk.client.pk.EdgePredictor;
+import com.ariesninja.skulkpk.client.pk.MovementPlanner;
+import com.ariesninja.skulkpk.client.pk.MovementPlanner.MovementPlan;
+import com.ariesninja.skulkpk.client.pk.MovementPlanner.Segment;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
@@ -27,6 +29,8 @@ public class PlayerController {
     // Specific constants
     private static final int ROTATION_DURATION = 5; // ticks (50ms)
     private static final float NEO_ROTATION_OFFSET = 3.2f; // Degrees
+    private static final double PLAN_DIVERGENCE = 0.3; // blocks off the plan's path before planning again
+    private static final int MAX_REPLANS = 3;
 
     // Step execution state
     private static Step currentStep = null;
@@ -34,6 +38,16 @@ public class PlayerController {
     private static RoughActionState roughState = null;
     private static GenericActionState genericState = null;
 
+    // PLANNED_INPUTS state: the plan and how far into it the player is
+    private static MovementPlan currentPlan = null;
+    private static int planSegment = 0;
+    private static int planSegmentTick = 0;
+    private static int planTick = 0;
+    private static int replans = 0;
+
+    // ROUGH_MOMENTUM jump timing, kept from tick to tick while the player walks as predicted
+    private static final JumpTimingSolver.Tracker jumpTiming = new JumpTimingSolver.Tracker();
+
     // Rough action state tracking
     private static class RoughActionState {
         boolean isActive = false;
@@ -73,8 +87,20 @@ public class PlayerController {
      * Executes a step with the given logistics data
      */
     public static void executeStep(Step step, JumpLogistics logistics) {
+        executeStep(step, logistics, null);
+    }
+
+    /**
+     * Executes a step with the given logistics data, and the plan PLANNED_INPUTS steps hold the inputs of
+     */
+    public static void executeStep(Step step, JumpLogistics logistics, MovementPlan plan) {
         currentStep = step;
         currentLogistics = logistics;
+        currentPlan = plan;
+        planSegment = 0;
+        planSegmentTick = 0;
+        planTick = 0;
+        replans = 0;
 
         // Add null checks to prevent NullPointerException
         if (step == null) {
@@ -122,6 +148,7 @@ public class PlayerController {
                 // Target position is near the jump position (precise)
                 if (currentLogistics != null) {
                     roughState.hasEnteredThreshold = false;
+                    jumpTiming.reset();
                     roughState.targetPosition = currentLogistics.getJumpPos().add(0, -0.45, 0);
                     roughState.nextStepPosition = currentLogistics.getTargetPos();
                 }
@@ -178,6 +205,7 @@ public class PlayerController {
     public static void clearCurrentStep(MinecraftClient client) {
         currentStep = null;
         currentLogistics = null;
+        currentPlan = null;
         if (roughState != null) {
             roughState.isActive = false;
         }
@@ -277,6 +305,9 @@ public class PlayerController {
             case NEO_A:
                 handleNeoA(client);
                 break;
+            case PLANNED_INPUTS:
+                handlePlannedInputs(client);
+                break;
 
             default:
                 // Other actions can be handled here
@@ -284,6 +315,68 @@ public class PlayerController {
         }
     }
 
+    /**
+     * PLANNED_INPUTS: Hold the keys and yaw of each plan segment for its ticks. The keys pressed here move the
+     * player on the next tick, which is the first tick the plan was simulated from. Every tick the player is
+     * checked against the path the plan predicted, and planned again from where they are once they drift off it.
+     */
+    private static void handlePlannedInputs(MinecraftClient client) {
+        if (currentPlan != null && planTick > 0 && planTick <= currentPlan.getPath().size()) {
+            double drift = client.player.getPos().distanceTo(currentPlan.getPath().get(planTick - 1));
+            if (drift > PLAN_DIVERGENCE && !replan(client, drift)) {
+                return;
+            }
+        }
+
+        if (currentPlan == null || planSegment >= currentPlan.getSegments().size()) {
+            if (currentPlan == null) {
+                System.err.println("PlayerController: PLANNED_INPUTS has no plan!");
+            }
+            stopAllMovement(client);
+            genericState.isActive = false;
+            System.out.println("PlayerController: PLANNED_INPUTS completed");
+            return;
+        }
+
+        Segment segment = currentPlan.getSegments().get(planSegment);
+        client.player.setYaw(segment.getYaw());
+        client.options.forwardKey.setPressed(segment.getGait().getForward());
+        client.options.sprintKey.setPressed(segment.getGait().getSprint());
+        client.options.jumpKey.setPressed(segment.getGait().getJump());
+        client.options.sneakKey.setPressed(segment.getGait().getSneak());
+
+        planTick++;
+        planSegmentTick++;
+        if (planSegmentTick >= segment.getTicks()) {
+            planSegment++;
+            planSegmentTick = 0;
+        }
+    }
+
+    /**
+     * Replaces the plan with one from the player's current state. Returns false, with PLANNED_INPUTS stopped,
+     * if that fails or the plan was replaced too often already.
+     */
+    private static boolean replan(MinecraftClient client, double drift) {
+        MovementPlan plan = replans < MAX_REPLANS
+                ? MovementPlanner.plan(client.player, currentLogistics.getTargetBlockPos())
+                : null;
+        if (plan == null) {
+            stopAllMovement(client);
+            genericState.isActive = false;
+            System.err.println("PlayerController: PLANNED_INPUTS aborted, " + drift + " blocks off the plan");
+            return false;
+        }
+
+        System.out.println("PlayerController: PLANNED_INPUTS replanned, " + drift + " blocks off the plan - " + plan);
+        replans++;
+        currentPlan = plan;
+        planSegment = 0;
+        planSegmentTick = 0;
+        planTick = 0;
+        return true;
+    }
+
     /**
      * ROUGH_START: Point camera toward momentum start, move forward until nearby, then shift move to precise position
      */
@@ -385,12 +478,8 @@ public class PlayerController {
         }
 
         // Check if we're at the edge of a block (about to fall)
-        boolean atBlockEdge = Ledge.shouldAutoJump(0.001);
         if (client.player == null) return;
-        boolean atBlockEdgeLegacy = AutoJumpHelper.INSTANCE.shouldAutoJump(client.player, client);
-
-        System.out.println("At block edge (legacy): " + atBlockEdgeLegacy +
-                ", At block edge (new): " + atBlockEdge);
+        boolean atBlockEdge = EdgePredictor.isAtEdge();
 
         // Update last valid position if we're still on solid ground
         if (!atBlockEdge) {
@@ -401,6 +490,15 @@ public class PlayerController {
                 ", Has entered threshold: " + roughState.hasEnteredThreshold +
                 ", At block edge: " + atBlockEdge);
 
+        // Jump on the last tick that still lands on the target, rather than waiting for the edge
+        if (roughState.hasEnteredThreshold && roughState.isActive) {
+            JumpTimingSolver.Solution timing = jumpTiming.update(client.player, currentLogistics.getTargetBlockPos());
+            if (timing != null && timing.getJumpTick() == 0) {
+                roughState.isActive = false;
+                System.out.println("PlayerController: ROUGH_MOMENTUM completed - latest jump tick, margin " + timing.getMargin());
+            }
+        }
+
         // We're at the edge of a block and about to fall
         if (atBlockEdge && roughState.lastValidPosition != null && roughState.hasEnteredThreshold) {
             roughState.isActive = false;
@@ -669,7 +767,7 @@ public class PlayerController {
                 float roundedYaw = Math.round(currentYaw / 90.0f) * 90.0f;
                 client.player.setYaw(roundedYaw);
                 // Continue straight until our X or Z (whichever is the direction of the jump) is beyond the clamped position of the players hitbox (.7 for positive, .3 for negative) on the BLOCK AFTER the last prop
-                BlockPos lastProp = Obstructions.getBlockAfterLastProp(client, currentLogistics);
+                BlockPos lastProp = currentLogistics.getObstructionProfile(client).getBlockAfterLastProp();
                 System.out.println("Last prop position: " + lastProp);
                 if (isXFacing) {
                     // X facing jump
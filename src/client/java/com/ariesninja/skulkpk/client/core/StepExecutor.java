@@ -15,6 +15,7 @@ public class StepExecutor {
 
     private final JumpPlanner jumpPlanner;
     private StepSequence currentSequence = null;
+    private JumpAnalysisResult currentAnalysis = null; // Analysis the running sequence was planned from
     private int currentStepIndex = 0;
     private boolean isExecuting = false;
 
@@ -35,6 +36,12 @@ public class StepExecutor {
             return;
         }
 
+        // The published result may still be for an earlier selection until the new analysis lands
+        if (BlockSelector.isAnalysisPending()) {
+            ChatMessageUtil.sendWarn(client, "Jump is still being analyzed, try again in a moment.");
+            return;
+        }
+
         // First, try to create logistics from current JumpAnalyzer state
         if (!createLogisticsFromAnalyzer()) {
             ChatMessageUtil.sendError(client, "No valid jump selected! Use SELECT key first.");
@@ -61,16 +68,25 @@ public class StepExecutor {
     }
 
     /**
-     * Creates JumpLogistics from the current JumpAnalyzer state
+     * Creates JumpLogistics from the current JumpAnalyzer result, if it is for the selected block
      */
     private boolean createLogisticsFromAnalyzer() {
-        BlockPos jumpFromBlock = JumpAnalyzer.getJumpFromBlock();
-        BlockPos targetBlock = JumpAnalyzer.getOptimizedTargetBlock();
-        BlockPos momentumStartBlock = JumpAnalyzer.getMomentumStartBlock();
-
-        if (jumpFromBlock == null || targetBlock == null) {
+        JumpAnalysisResult analysis = JumpAnalyzer.getCurrentResult();
+        if (analysis == null || !analysis.isSuccess()) {
             return false;
         }
+        // A result left over from a cleared or replaced selection
+        BlockPos selected = BlockSelector.getSelectedBlock();
+        if (selected == null || !selected.equals(analysis.getTarget())) {
+            return false;
+        }
+
+        BlockPos jumpFromBlock = analysis.getJumpFromBlock();
+        BlockPos targetBlock = analysis.getOptimizedTargetBlock();
+        BlockPos momentumStartBlock = analysis.getMomentumStartBlock();
+
+        // Keep executing against this result even if a newer analysis is published meanwhile
+        currentAnalysis = analysis;
 
         // Use momentum start if available, otherwise fall back to jump block
         Vec3d momentumStartPos = momentumStartBlock != null ?
@@ -129,19 +145,16 @@ public class StepExecutor {
         Step currentStep = currentSequence.getSteps().get(currentStepIndex);
 
         // Create logistics for this step (reuse the same logistics for all steps in sequence)
-        BlockPos jumpFrom = JumpAnalyzer.getJumpFromBlock();
-        BlockPos target = JumpAnalyzer.getOptimizedTargetBlock();
-
-        if (jumpFrom == null || target == null) {
+        if (currentAnalysis == null) {
             ChatMessageUtil.sendError(MinecraftClient.getInstance(), "Lost jump data during execution!");
             stopExecution();
             return;
         }
 
-        JumpLogistics logistics = createLogisticsForStep(jumpFrom, target);
+        JumpLogistics logistics = createLogisticsForStep(currentAnalysis);
 
         // Execute the step using PlayerController
-        PlayerController.executeStep(currentStep, logistics);
+        PlayerController.executeStep(currentStep, logistics, currentSequence.getPlan());
 
         System.out.println("StepExecutor: Executing step " + (currentStepIndex + 1) + "/" +
                           currentSequence.getSteps().size() + " - " + currentStep);
@@ -150,8 +163,10 @@ public class StepExecutor {
     /**
      * Creates JumpLogistics for a specific step
      */
-    private JumpLogistics createLogisticsForStep(BlockPos jumpFromBlock, BlockPos targetBlock) {
-        BlockPos momentumStartBlock = JumpAnalyzer.getMomentumStartBlock();
+    private JumpLogistics createLogisticsForStep(JumpAnalysisResult analysis) {
+        BlockPos jumpFromBlock = analysis.getJumpFromBlock();
+        BlockPos targetBlock = analysis.getOptimizedTargetBlock();
+        BlockPos momentumStartBlock = analysis.getMomentumStartBlock();
 
         // Use momentum start if available, otherwise fall back to jump block
         Vec3d momentumStartPos = momentumStartBlock != null ?
@@ -203,6 +218,7 @@ public class StepExecutor {
     private void completeExecution() {
         isExecuting = false;
         currentSequence = null;
+        currentAnalysis = null;
         currentStepIndex = 0;
         ChatMessageUtil.sendSuccess(MinecraftClient.getInstance(), "Sequence execution completed!");
     }
@@ -214,6 +230,7 @@ public class StepExecutor {
         if (isExecuting) {
             isExecuting = false;
             currentSequence = null;
+            currentAnalysis = null;
             currentStepIndex = 0;
             PlayerController.clearCurrentStep(MinecraftClient.getInstance());
             ChatMessageUtil.sendWarn(MinecraftClient.getInstance(), "Sequence execution stopped!");
@@ -14,6 +14,9 @@ public enum Step {
     UNIT_SAFE_CORNER, // Move to a safe corner position for unit jumps
     UNIT_SAFE_CORNER_BACK,  // Move to a safe corner position for unit jumps, at the back
     NEO_A,             // Perform a specific Neo jump maneuver
-    NEO_3_AP        // Perform a triple Neo jump with AP pattern
+    NEO_3_AP,       // Perform a triple Neo jump with AP pattern
+
+    // Searched action types
+    PLANNED_INPUTS  // Hold the inputs of a simulated movement plan, segment by segment
 
 }
@@ -0,0 +1,174 @@
+package com.ariesninja.skulkpk.client.core.data.schemes;
+
+/**
+ * A jump pattern compiled into care and value bitmasks over a square neighbourhood of the start block, once for
+ * each direction a jump can face and each handedness.
+ *
+ * Cells of the neighbourhood are numbered by cell(dx, dz). A solidity mask sets the bit of every solid cell, and a
+ * pattern matches it when the bits it cares about equal its values: (solidity & care) == value, word by word.
+ * On diagonal directions every pattern step is one diagonal block step, so the pattern is rotated by 45 degrees.
+ */
+public final class CompiledPattern {
+
+    // Neighbourhood reaches this many blocks from the start block on both axes
+    public static final int RADIUS = 10;
+    public static final int SIDE = 2 * RADIUS + 1;
+    public static final int WORDS = (SIDE * SIDE + 63) >>> 6;
+
+    // Directions pattern rows run in, as x and z steps. The axis directions come first.
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
+            {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+    public static final int DIRECTION_COUNT = DIRECTIONS.length;
+    // Every direction as written, and mirrored across its rows
+    public static final int VARIANTS = DIRECTION_COUNT * 2;
+
+    private final String name;
+    // Null for variants that don't fit within RADIUS
+    private final long[][] care = new long[VARIANTS][];
+    private final long[][] value = new long[VARIANTS][];
+
+    private CompiledPattern(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Compiles a pattern where 0 = empty space, 1 = solid block and 9 = doesn't matter. The middle value of the
+     * first row is the start block, and rows run away from the target.
+     */
+    public static CompiledPattern compile(String name, int[][] pattern) {
+        int patternLength = pattern.length;
+        int patternWidth = pattern[0].length;
+        if (patternWidth % 2 == 0) {
+            throw new IllegalArgumentException("Pattern width must be odd");
+        }
+        if (patternLength > RADIUS + 1 || patternWidth / 2 > RADIUS) {
+            throw new IllegalArgumentException("Pattern " + name + " doesn't fit within " + RADIUS + " blocks");
+        }
+        for (int[] row : pattern) {
+            if (row.length != patternWidth) {
+                throw new IllegalArgumentException("Pattern " + name + " has rows of different widths");
+            }
+            for (int cell : row) {
+                if (cell != 0 && cell != 1 && cell != 9) {
+                    throw new IllegalArgumentException("Pattern " + name + " has unknown value " + cell);
+                }
+            }
+        }
+
+        CompiledPattern compiled = new CompiledPattern(name);
+        for (int variant = 0; variant < VARIANTS; variant++) {
+            int directionX = DIRECTIONS[variant / 2][0];
+            int directionZ = DIRECTIONS[variant / 2][1];
+            int lateralX = lateralX(directionX, directionZ);
+            int lateralZ = lateralZ(directionX, directionZ);
+            if (variant % 2 == 1) {
+                lateralX = -lateralX;
+                lateralZ = -lateralZ;
+            }
+
+            // Diagonal rows reach further along each axis than straight ones
+            int reachX = Math.abs(directionX) * (patternLength - 1) + Math.abs(lateralX) * (patternWidth / 2);
+            int reachZ = Math.abs(directionZ) * (patternLength - 1) + Math.abs(lateralZ) * (patternWidth / 2);
+            if (reachX > RADIUS || reachZ > RADIUS) {
+                continue;
+            }
+
+            long[] care = new long[WORDS];
+            long[] value = new long[WORDS];
+            for (int i = 0; i < patternLength; i++) {
+                for (int j = 0; j < patternWidth; j++) {
+                    if (pattern[i][j] == 9) {
+                        continue;
+                    }
+                    int cell = cell(i * directionX + (j - patternWidth / 2) * lateralX,
+                            i * directionZ + (j - patternWidth / 2) * lateralZ);
+                    long bit = 1L << (cell & 63);
+                    care[cell >>> 6] |= bit;
+                    if (pattern[i][j] == 1) {
+                        value[cell >>> 6] |= bit;
+                    }
+                }
+            }
+            compiled.care[variant] = care;
+            compiled.value[variant] = value;
+        }
+        return compiled;
+    }
+
+    /**
+     * Columns of axis directions run along z and x of the row direction, and those of diagonal directions along
+     * the other diagonal
+     */
+    private static int lateralX(int directionX, int directionZ) {
+        return directionX != 0 && directionZ != 0 ? -directionZ : directionZ;
+    }
+
+    private static int lateralZ(int directionX, int directionZ) {
+        return directionX;
+    }
+
+    /**
+     * Bit index of the cell dx and dz blocks away from the start block
+     */
+    public static int cell(int dx, int dz) {
+        return (dx + RADIUS) * SIDE + (dz + RADIUS);
+    }
+
+    /**
+     * Whether the cell dx and dz blocks away from the start block is set in the mask, false outside of it
+     */
+    public static boolean isSet(long[] mask, int dx, int dz) {
+        if (Math.abs(dx) > RADIUS || Math.abs(dz) > RADIUS) {
+            return false;
+        }
+        int cell = cell(dx, dz);
+        return (mask[cell >>> 6] & (1L << (cell & 63))) != 0;
+    }
+
+    /**
+     * Direction whose rows run along the given x and z steps, each -1, 0 or 1
+     */
+    public static int direction(int directionX, int directionZ) {
+        for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+            if (DIRECTIONS[direction][0] == directionX && DIRECTIONS[direction][1] == directionZ) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("Not a direction: " + directionX + ", " + directionZ);
+    }
+
+    /**
+     * Whether the pattern matches the mask facing the given direction, either way around
+     */
+    public boolean matches(long[] solidity, int direction) {
+        return matchesVariant(solidity, direction * 2) || matchesVariant(solidity, direction * 2 + 1);
+    }
+
+    /**
+     * Whether one variant matches, where variant = direction * 2, plus 1 when mirrored
+     */
+    public boolean matchesVariant(long[] solidity, int variant) {
+        long[] care = this.care[variant];
+        long[] value = this.value[variant];
+        if (care == null) {
+            return false;
+        }
+        for (int word = 0; word < WORDS; word++) {
+            if ((solidity[word] & care[word]) != value[word]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledPattern(" + name + ")";
+    }
+}
@@ -12,5 +12,10 @@ public class Pattern {
             {0, 1, 1, 1, 0},
             {0, 0, 9, 0, 0}
     };
-    
+
+    // Every pattern above, compiled for matching in one pass
+    public static final PatternLibrary LIBRARY = new PatternLibrary();
+
+    public static final CompiledPattern TRIPLE_NEO_AP = LIBRARY.add("tripleNeoAP", tripleNeoAP);
+
 }
@@ -0,0 +1,43 @@
+package com.ariesninja.skulkpk.client.core.data.schemes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of compiled patterns matched together against one solidity mask
+ */
+public final class PatternLibrary {
+
+    private final List<CompiledPattern> patterns = new ArrayList<>();
+
+    /**
+     * Compiles a pattern into the library and returns it
+     */
+    public CompiledPattern add(String name, int[][] pattern) {
+        CompiledPattern compiled = CompiledPattern.compile(name, pattern);
+        patterns.add(compiled);
+        return compiled;
+    }
+
+    /**
+     * Every pattern of the library that matches the mask facing the given direction, in the order they were added
+     */
+    public List<CompiledPattern> matchAll(long[] solidity, int direction) {
+        List<CompiledPattern> matches = new ArrayList<>();
+        for (CompiledPattern pattern : patterns) {
+            if (pattern.matches(solidity, direction)) {
+                matches.add(pattern);
+            }
+        }
+        return matches;
+    }
+
+    public List<CompiledPattern> getPatterns() {
+        return Collections.unmodifiableList(patterns);
+    }
+
+    public int size() {
+        return patterns.size();
+    }
+}
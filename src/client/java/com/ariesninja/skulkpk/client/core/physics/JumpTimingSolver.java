@@ -0,0 +1,233 @@
+package com.ariesninja.skulkpk.client.core.physics;
+
+import com.ariesninja.skulkpk.client.utils.entity.PrimitiveSimulatedPlayer;
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer;
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch;
+import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the last tick a player can jump on and still land on a target block, and how much room that landing has.
+ *
+ * The walk up to the jump is simulated once, tick by tick. Every ground tick of it hands its state, jump cooldown
+ * included, to one candidate of a SimulationBatch that holds jump on that tick, so only the jumps themselves are
+ * simulated side by side, and a jump only happens where the game would allow one. A candidate that doesn't leave
+ * the ground on its first tick couldn't jump yet, and doesn't count.
+ */
+public class JumpTimingSolver {
+
+    // Ground ticks tried as jump ticks
+    public static final int MAX_GROUND_TICKS = 12;
+    // Air ticks followed per jump before giving up on it
+    private static final int MAX_AIR_TICKS = 60;
+    // Half the width of the player's collision box
+    private static final double HALF_WIDTH = 0.3;
+
+    public static class Solution {
+        private final int jumpTick;
+        private final int landingTick;
+        private final Vec3d landingPos;
+        private final double margin;
+
+        Solution(int jumpTick, int landingTick, Vec3d landingPos, double margin) {
+            this.jumpTick = jumpTick;
+            this.landingTick = landingTick;
+            this.landingPos = landingPos;
+            this.margin = margin;
+        }
+
+        /**
+         * Ticks to keep walking before jumping, 0 to jump on the next tick
+         */
+        public int getJumpTick() {
+            return jumpTick;
+        }
+
+        /**
+         * Ticks after the jump until the player lands
+         */
+        public int getLandingTick() {
+            return landingTick;
+        }
+
+        public Vec3d getLandingPos() {
+            return landingPos;
+        }
+
+        /**
+         * How far the landing could shift sideways and still be on the target block
+         */
+        public double getMargin() {
+            return margin;
+        }
+
+        /**
+         * The same solution seen the given number of walked ticks later
+         */
+        Solution after(int ticks) {
+            return ticks == 0 ? this : new Solution(jumpTick - ticks, landingTick, landingPos, margin);
+        }
+
+        @Override
+        public String toString() {
+            return "Solution(jumpTick=" + jumpTick + ", landingTick=" + landingTick + ", landingPos=" + landingPos
+                    + ", margin=" + margin + ")";
+        }
+    }
+
+    /**
+     * Solves for the player from their current state, keeping the movement keys of their last input
+     */
+    public static Solution solve(ClientPlayerEntity player, BlockPos target) {
+        return solve(SimulatedPlayer.Companion.fromClientPlayer(inputOf(player)), target);
+    }
+
+    private static SimulatedPlayer.SimulatedPlayerInput inputOf(ClientPlayerEntity player) {
+        return new SimulatedPlayer.SimulatedPlayerInput(
+                new DirectionalInput(player.input.playerInput),
+                false, // jumps are tried by the solver
+                player.isSprinting(),
+                player.isSneaking()
+        );
+    }
+
+    /**
+     * Returns the latest jump tick that lands on top of the target block, or null if no tick within
+     * MAX_GROUND_TICKS does. The start player isn't ticked. Must be called on the client thread.
+     */
+    public static Solution solve(SimulatedPlayer start, BlockPos target) {
+        if (!start.getOnGround()) {
+            return null;
+        }
+
+        SimulatedPlayer.SimulatedPlayerInput walk = start.getInput();
+        SimulatedPlayer.SimulatedPlayerInput jump = new SimulatedPlayer.SimulatedPlayerInput(
+                walk.getDirectionalInput(),
+                true,
+                walk.getSprinting(),
+                walk.playerInput.sneak()
+        );
+
+        List<SimulatedPlayer.SimulatedPlayerInput> inputs = List.of(jump, walk);
+        List<SimulationBatch.Candidate> candidates = new ArrayList<>(MAX_GROUND_TICKS);
+
+        PrimitiveSimulatedPlayer walker = new PrimitiveSimulatedPlayer(start.clone());
+        for (int tick = 0; tick < MAX_GROUND_TICKS && walker.getOnGround(); tick++) {
+            SimulatedPlayer state = start.clone();
+            walker.writeTo(state);
+            candidates.add(new SimulationBatch.Candidate(start.getYaw(), inputs, walk.getSprinting(), state));
+            walker.tick();
+        }
+
+        // Once below the target block a jump can't end on it
+        List<SimulationBatch.Outcome> outcomes = SimulationBatch.simulate(start, candidates, MAX_AIR_TICKS, target.getY());
+
+        // Candidates start on consecutive ticks, up to the first the walk left the ground on
+        for (int tick = outcomes.size() - 1; tick >= 0; tick--) {
+            SimulationBatch.Outcome outcome = outcomes.get(tick);
+            // Taking off on the tick jump is held is the jump itself, a later takeoff walked off the edge instead
+            if (outcome.getStatus() != SimulationBatch.Status.LANDED || outcome.getTakeoffTick() != 1) {
+                continue;
+            }
+            Vec3d pos = outcome.getPos();
+            double margin = margin(pos, target);
+            if (margin > 0.0 && pos.y <= target.getY() + 1.5) {
+                return new Solution(tick, outcome.getTicks(), pos, margin);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Follows one player toward a target from tick to tick. A solution is kept while the player walks the way the
+     * solver predicted, with its jump tick counted down, and the solver only runs again once the player strays from
+     * that walk, turns, changes keys or gets another target. Jump ticks past the kept one already failed to land.
+     */
+    public static class Tracker {
+
+        // Distance the player may stray from the predicted walk before it is solved again
+        private static final double TOLERANCE = 0.05;
+        // Ticks a failed solve is kept for. The ticks it newly reaches are still far enough ahead to jump on.
+        private static final int FAILED_TICKS = 4;
+
+        private BlockPos target = null;
+        private DirectionalInput directionalInput = null;
+        private boolean sprinting = false;
+        private boolean sneaking = false;
+        private float yaw = 0.0f;
+        private Solution solution = null;
+        // Position after each tick of walking from the solved state, starting with the solved state itself
+        private Vec3d[] walk = new Vec3d[0];
+        private int elapsed = 0;
+
+        /**
+         * Solution for the player's current state, solved again only if needed. Must be called once every tick.
+         */
+        public Solution update(ClientPlayerEntity player, BlockPos target) {
+            SimulatedPlayer.SimulatedPlayerInput input = inputOf(player);
+            if (isOnWalk(player, input, target)) {
+                elapsed++;
+            } else {
+                solveFor(player, input, target);
+            }
+            return solution == null ? null : solution.after(elapsed);
+        }
+
+        public void reset() {
+            target = null;
+            solution = null;
+            walk = new Vec3d[0];
+            elapsed = 0;
+        }
+
+        private boolean isOnWalk(ClientPlayerEntity player, SimulatedPlayer.SimulatedPlayerInput input, BlockPos target) {
+            return elapsed + 1 < walk.length
+                    && target.equals(this.target)
+                    && input.getDirectionalInput().equals(directionalInput)
+                    && input.getSprinting() == sprinting
+                    && input.playerInput.sneak() == sneaking
+                    && player.getYaw() == yaw
+                    && player.isOnGround()
+                    && player.getPos().distanceTo(walk[elapsed + 1]) <= TOLERANCE;
+        }
+
+        private void solveFor(ClientPlayerEntity player, SimulatedPlayer.SimulatedPlayerInput input, BlockPos target) {
+            SimulatedPlayer start = SimulatedPlayer.Companion.fromClientPlayer(input);
+            this.target = target;
+            this.directionalInput = input.getDirectionalInput();
+            this.sprinting = input.getSprinting();
+            this.sneaking = input.playerInput.sneak();
+            this.yaw = player.getYaw();
+            this.solution = solve(start, target);
+            this.elapsed = 0;
+
+            if (!start.getOnGround()) {
+                walk = new Vec3d[0];
+                return;
+            }
+            // The walk up to the jump, which the solve already went through
+            int ticks = solution != null ? solution.getJumpTick() : FAILED_TICKS;
+            walk = new Vec3d[ticks + 1];
+            walk[0] = start.getPos();
+            PrimitiveSimulatedPlayer walker = new PrimitiveSimulatedPlayer(start.clone());
+            for (int tick = 1; tick <= ticks; tick++) {
+                walker.tick();
+                walk[tick] = walker.getPos();
+            }
+        }
+    }
+
+    /**
+     * Overlap of the player's box with the target block on the tighter horizontal axis
+     */
+    private static double margin(Vec3d pos, BlockPos target) {
+        double x = Math.min(pos.x + HALF_WIDTH - target.getX(), target.getX() + 1.0 - (pos.x - HALF_WIDTH));
+        double z = Math.min(pos.z + HALF_WIDTH - target.getZ(), target.getZ() + 1.0 - (pos.z - HALF_WIDTH));
+        return Math.min(x, z);
+    }
+}
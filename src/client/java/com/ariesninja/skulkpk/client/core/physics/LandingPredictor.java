@@ -0,0 +1,143 @@
+package com.ariesninja.skulkpk.client.core.physics;
+
+import com.ariesninja.skulkpk.client.utils.entity.TrajectoryCache.Trajectory;
+import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Follows a jump through its trajectory and tells where it ends, giving up as soon as the target is out of reach.
+ */
+public class LandingPredictor {
+
+    // How close the feet have to come to the target to count as reaching it
+    public static final double REACH_TOLERANCE = 0.5;
+
+    // Vanilla air physics, as SimulatedPlayer.travel applies them
+    private static final double GRAVITY = 0.08;
+    private static final double VERTICAL_DRAG = 0.9800000190734863;
+    private static final double HORIZONTAL_DRAG = 0.91f;
+    // Sprinting air strafe speed, the most a tick of input can add
+    private static final double AIR_ACCELERATION = 0.026f;
+
+    public enum Outcome {
+        /**
+         * Came within REACH_TOLERANCE of the target
+         */
+        REACHED,
+        /**
+         * Touched the ground somewhere else
+         */
+        LANDED,
+        /**
+         * Dropped below the floor
+         */
+        FELL,
+        /**
+         * Still in the air, but can't come close to the target any more
+         */
+        UNREACHABLE,
+        /**
+         * Still in the air after the tick limit
+         */
+        TIMED_OUT
+    }
+
+    public static class Prediction {
+        private final Outcome outcome;
+        private final int tick;
+        private final Vec3d pos;
+
+        Prediction(Outcome outcome, int tick, Vec3d pos) {
+            this.outcome = outcome;
+            this.tick = tick;
+            this.pos = pos;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Tick of the trajectory the outcome was decided on
+         */
+        public int getTick() {
+            return tick;
+        }
+
+        public Vec3d getPos() {
+            return pos;
+        }
+
+        public boolean isReached() {
+            return outcome == Outcome.REACHED;
+        }
+
+        @Override
+        public String toString() {
+            return "Prediction(outcome=" + outcome + ", tick=" + tick + ", pos=" + pos + ")";
+        }
+    }
+
+    /**
+     * Steps through the ticks after fromTick until the path reaches the target, lands, drops below floorY
+     * or can no longer reach the target, for at most maxTicks ticks.
+     * The state at fromTick, the first tick of the jump, is not checked against the target.
+     */
+    public static Prediction predict(PlayerEntity player, Trajectory path, int fromTick, int maxTicks, Vec3d target, double floorY) {
+        // The bound assumes plain falling, which these break
+        boolean ballistic = !player.hasNoGravity()
+                && !player.getAbilities().flying
+                && !player.isTouchingWater()
+                && !player.hasStatusEffect(StatusEffects.SLOW_FALLING)
+                && !player.hasStatusEffect(StatusEffects.LEVITATION);
+
+        int tick = fromTick;
+        while (!path.isOnGround(tick) && tick < fromTick + maxTicks) {
+            tick++;
+            if (path.getY(tick) < floorY) {
+                return new Prediction(Outcome.FELL, tick, path.getPos(tick));
+            }
+            if (path.distanceTo(tick, target) < REACH_TOLERANCE) {
+                return new Prediction(Outcome.REACHED, tick, path.getPos(tick));
+            }
+            if (ballistic && !path.isOnGround(tick) && !canReach(path, tick, target, floorY)) {
+                return new Prediction(Outcome.UNREACHABLE, tick, path.getPos(tick));
+            }
+        }
+        return new Prediction(path.isOnGround(tick) ? Outcome.LANDED : Outcome.TIMED_OUT, tick, path.getPos(tick));
+    }
+
+    /**
+     * Whether the player, in the air at this tick, can still pass within REACH_TOLERANCE of the target before
+     * dropping below floorY or below the target. The fall is followed exactly, the horizontal distance is bounded
+     * by full air acceleration every tick, and collisions can only take away from both.
+     */
+    static boolean canReach(Trajectory path, int tick, Vec3d target, double floorY) {
+        double dx = target.x - path.getX(tick);
+        double dz = target.z - path.getZ(tick);
+        double gap = Math.sqrt(dx * dx + dz * dz) - REACH_TOLERANCE;
+        double lowest = Math.max(floorY, target.y - REACH_TOLERANCE);
+
+        double y = path.getY(tick);
+        double velocityY = path.getVelocityY(tick);
+        double velocityX = path.getVelocityX(tick);
+        double velocityZ = path.getVelocityZ(tick);
+        double speed = Math.sqrt(velocityX * velocityX + velocityZ * velocityZ);
+        double reach = 0.0;
+
+        // Once falling below the lowest useful height it never comes back up
+        while (y >= lowest || velocityY > 0.0) {
+            if (Math.abs(y - target.y) < REACH_TOLERANCE && reach >= gap) {
+                return true;
+            }
+
+            speed += AIR_ACCELERATION;
+            reach += speed;
+            y += velocityY;
+            speed *= HORIZONTAL_DRAG;
+            velocityY = (velocityY - GRAVITY) * VERTICAL_DRAG;
+        }
+        return false;
+    }
+}
@@ -1,10 +1,12 @@
 package com.ariesninja.skulkpk.client.core.physics;
 
 import com.ariesninja.skulkpk.client.core.JumpPlanner.JumpLogistics;
+import com.ariesninja.skulkpk.client.core.physics.LandingPredictor.Prediction;
 import com.ariesninja.skulkpk.client.core.physics.utils.SimWrapper;
 import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer;
 import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer.SimulatedPlayerInput;
-import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayerCache;
+import com.ariesninja.skulkpk.client.utils.entity.TrajectoryCache;
+import com.ariesninja.skulkpk.client.utils.entity.TrajectoryCache.Trajectory;
 import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput;
 import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap;
 import net.minecraft.entity.player.PlayerEntity;
@@ -37,43 +39,37 @@ public class Momentum {
         SimulatedPlayerInput input = SimWrapper.SPI_FWD_S();
         // Set the simulated player's input
         DAC.setInput(input);
-        // Rotate the simulated player to face toward the target position
-        // Get the sim cache
-        SimulatedPlayerCache DACCache = new SimulatedPlayerCache(DAC);
-        // Tick the simulated player until they are expected to fall off the block on the next tick
-        int ticks = 0;
-        DACCache.simulate();
-        while (DACCache.getSnapshotAt(4).getOnGround() && ticks < 500) {
-            ticks++;
-            DAC.tick();
+        // Trajectories are cached by start state, so asking about the same jump again doesn't re-simulate it
+        Trajectory ahead = TrajectoryCache.get(DAC);
+        boolean groundedAhead = ahead.isOnGround(4);
+        // Walk until they are expected to fall off the block on the next tick
+        int jumpTick = groundedAhead ? 4 + 500 : 4;
+        Trajectory path = TrajectoryCache.get(DAC, jumpTick);
+        if (groundedAhead) {
+            System.out.println("Momentum jump failed (stuck): " + path.getPos(jumpTick));
         }
-        if (ticks >= 500) {
-            System.out.println("Momentum jump failed (stuck): " + DAC.getPos());
-        }
-        System.out.println("Simulated player position before jump: " + DAC.getPos());
-        // Jump the simulated player
-        DAC.jump();
-        DAC.tick();
-        // Tick the player until they land, then check if they are on the target block
-        ticks = 0;
-        while (!DAC.getOnGround() && ticks < 500) {
-            ticks++;
-            DAC.tick();
-            if (DAC.getPos().y < logistics.getJumpPos().y - 0.5) {
-                // If the player falls below the jump position, they cannot make the jump
-                System.out.println("Momentum jump failed (low): " + DAC.getPos());
-                System.out.println("Target position: " + logistics.getTargetPos());
-                return true;
-            }
-            if (DAC.getPos().distanceTo(logistics.getTargetPos()) < 0.5) {
+        System.out.println("Simulated player position before jump: " + path.getPos(jumpTick));
+        // Follow the jump until it lands, giving up once the target is out of reach
+        Prediction landing = LandingPredictor.predict(player, path, jumpTick + 1, 500, logistics.getTargetPos(),
+                logistics.getJumpPos().y - 0.5);
+        switch (landing.getOutcome()) {
+            case REACHED:
                 // If the player lands on the target position, they can make the jump
-                System.out.println("Momentum jump successful: " + DAC.getPos());
+                System.out.println("Momentum jump successful: " + landing.getPos() + " (tick " + landing.getTick() + ")");
                 System.out.println("Target position: " + logistics.getTargetPos());
                 return false;
-            }
+            case FELL:
+                // If the player falls below the jump position, they cannot make the jump
+                System.out.println("Momentum jump failed (low): " + landing.getPos());
+                break;
+            case UNREACHABLE:
+                System.out.println("Momentum jump failed (out of reach): " + landing.getPos());
+                break;
+            default:
+                // If the player lands but is not on the target position, they cannot make the jump
+                System.out.println("Momentum jump failed: " + landing.getPos());
+                break;
         }
-        // If the player lands but is not on the target position, they cannot make the jump
-        System.out.println("Momentum jump failed: " + DAC.getPos());
         System.out.println("Target position: " + logistics.getTargetPos());
         return true;
     }
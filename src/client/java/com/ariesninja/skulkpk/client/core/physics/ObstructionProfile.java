@@ -0,0 +1,211 @@
+package com.ariesninja.skulkpk.client.core.physics;
+
+import com.ariesninja.skulkpk.client.core.JumpPlanner;
+import com.ariesninja.skulkpk.client.core.data.schemes.CompiledPattern;
+import com.ariesninja.skulkpk.client.pk.ObstructionWatcher;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The obstructions of one jump, scanned once and read by everything that plans or executes it.
+ *
+ * Props are the solid blocks at head height on the line from the jump block to the target block. They are only
+ * counted for jumps of 1 to 3 blocks, the ones neo strategies handle.
+ *
+ * A profile goes stale once one of the blocks it was scanned from changes, see ObstructionWatcher, and is then
+ * scanned again by the logistics holding it.
+ */
+public class ObstructionProfile {
+
+    // Head clearance is counted up to this many blocks
+    public static final int MAX_HEAD_CLEARANCE = 4;
+
+    private final List<BlockPos> props;
+    private final BlockPos blockAfterLastProp;
+    private final int headClearance;
+    // Blocks the result depends on: the head column above the jump block and the line at head height
+    private final LongOpenHashSet scanned;
+    private boolean stale = false;
+
+    private ObstructionProfile(List<BlockPos> props, BlockPos blockAfterLastProp, int headClearance,
+                               LongOpenHashSet scanned) {
+        this.props = Collections.unmodifiableList(props);
+        this.blockAfterLastProp = blockAfterLastProp;
+        this.headClearance = headClearance;
+        this.scanned = scanned;
+    }
+
+    public static ObstructionProfile scan(MinecraftClient client, JumpPlanner.JumpLogistics logistics) {
+        // World check
+        if (client.world == null || client.player == null) {
+            return new ObstructionProfile(List.of(), null, 0, new LongOpenHashSet()); // No world or player context
+        }
+
+        BlockPos jumpPos = logistics.getJumpBlockPos();
+        BlockPos targetPos = logistics.getTargetBlockPos();
+        int headClearance = headClearance(client, jumpPos);
+
+        LongOpenHashSet scanned = new LongOpenHashSet();
+        for (int y = 1; y <= MAX_HEAD_CLEARANCE; y++) {
+            scanned.add(BlockPos.asLong(jumpPos.getX(), jumpPos.getY() + y, jumpPos.getZ()));
+        }
+
+        // Check distance is between 1 and 3 inclusive
+        double distance = logistics.getDistance();
+        if (distance < 1 || distance > 3) {
+            return ObstructionWatcher.INSTANCE.watch(new ObstructionProfile(List.of(), null, headClearance, scanned));
+        }
+
+        // Check that blocks at the players head height are obstructing the jump, reading the layer once
+        BlockPos jumpPosHead = jumpPos.up();
+        long[] solidity = Patterns.solidityMask(client, jumpPosHead, jumpPosHead.getY());
+
+        List<BlockPos> props = new ArrayList<>();
+        for (int[] cell : lineCells(targetPos.getX() - jumpPos.getX(), targetPos.getZ() - jumpPos.getZ())) {
+            scanned.add(BlockPos.asLong(jumpPosHead.getX() + cell[0], jumpPosHead.getY(), jumpPosHead.getZ() + cell[1]));
+            if (CompiledPattern.isSet(solidity, cell[0], cell[1])) {
+                props.add(jumpPosHead.add(cell[0], 0, cell[1])); // Found an obstruction
+            }
+        }
+
+        BlockPos blockAfterLastProp = null;
+        if (!props.isEmpty()) {
+            // Determine direction of the jump, and the next block after the last prop
+            int dx = Integer.signum(targetPos.getX() - jumpPos.getX());
+            int dz = Integer.signum(targetPos.getZ() - jumpPos.getZ());
+            blockAfterLastProp = props.get(props.size() - 1).add(dx, 0, dz);
+        }
+
+        return ObstructionWatcher.INSTANCE.watch(new ObstructionProfile(props, blockAfterLastProp, headClearance, scanned));
+    }
+
+    /**
+     * Non-solid blocks directly above the jump block, up to MAX_HEAD_CLEARANCE
+     */
+    private static int headClearance(MinecraftClient client, BlockPos jumpPos) {
+        BlockPos.Mutable pos = jumpPos.mutableCopy();
+        for (int clearance = 0; clearance < MAX_HEAD_CLEARANCE; clearance++) {
+            pos.move(0, 1, 0);
+            if (client.world.getBlockState(pos).isSolidBlock(client.world, pos)) {
+                return clearance;
+            }
+        }
+        return MAX_HEAD_CLEARANCE;
+    }
+
+    /**
+     * Cells the line between the centers of two blocks dx and dz apart passes through, from the first block to the
+     * second. Where the line crosses a corner exactly, both cells beside the corner are included.
+     */
+    static List<int[]> lineCells(int dx, int dz) {
+        int stepX = Integer.signum(dx);
+        int stepZ = Integer.signum(dz);
+        int lengthX = Math.abs(dx);
+        int lengthZ = Math.abs(dz);
+
+        List<int[]> cells = new ArrayList<>();
+        cells.add(new int[]{0, 0});
+        int x = 0;
+        int z = 0;
+        while (Math.abs(x) < lengthX || Math.abs(z) < lengthZ) {
+            // Compare when the line crosses the next x and z boundaries, scaled by 2 * lengthX * lengthZ
+            long crossX = lengthX == 0 ? Long.MAX_VALUE : (long) (2 * Math.abs(x) + 1) * lengthZ;
+            long crossZ = lengthZ == 0 ? Long.MAX_VALUE : (long) (2 * Math.abs(z) + 1) * lengthX;
+
+            if (crossX == crossZ) {
+                cells.add(new int[]{x + stepX, z});
+                cells.add(new int[]{x, z + stepZ});
+                x += stepX;
+                z += stepZ;
+            } else if (crossX < crossZ) {
+                x += stepX;
+            } else {
+                z += stepZ;
+            }
+            cells.add(new int[]{x, z});
+        }
+        return cells;
+    }
+
+    public int getPropCount() {
+        return props.size();
+    }
+
+    /**
+     * Props in order from the jump block to the target block
+     */
+    public List<BlockPos> getProps() {
+        return props;
+    }
+
+    /**
+     * The prop closest to the target, or null
+     */
+    public BlockPos getLastProp() {
+        return props.isEmpty() ? null : props.get(props.size() - 1);
+    }
+
+    /**
+     * The block one step past the last prop toward the target, or null
+     */
+    public BlockPos getBlockAfterLastProp() {
+        return blockAfterLastProp;
+    }
+
+    public int getHeadClearance() {
+        return headClearance;
+    }
+
+    /**
+     * Whether the block at x, y, z is one the profile was scanned from
+     */
+    public boolean reads(int x, int y, int z) {
+        return scanned.contains(BlockPos.asLong(x, y, z));
+    }
+
+    /**
+     * Whether any block the profile was scanned from is in the chunk
+     */
+    public boolean readsChunk(int chunkX, int chunkZ) {
+        LongIterator blocks = scanned.iterator();
+        while (blocks.hasNext()) {
+            long pos = blocks.nextLong();
+            if (BlockPos.unpackLongX(pos) >> 4 == chunkX && BlockPos.unpackLongZ(pos) >> 4 == chunkZ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a block the profile was scanned from has changed since
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    // Check if the jump is a Neo jump, which requires specific conditions
+    public boolean isNeoJump() {
+        return getPropCount() > 0;
+    }
+
+    // Minor Neo jumps are those with 1-2 props
+    public boolean isMinorNeo() {
+        return getPropCount() > 0 && getPropCount() < 3;
+    }
+
+    @Override
+    public String toString() {
+        return "ObstructionProfile(props=" + props + ", headClearance=" + headClearance + ")";
+    }
+}
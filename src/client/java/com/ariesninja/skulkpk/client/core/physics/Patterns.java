@@ -1,24 +1,67 @@
 package com.ariesninja.skulkpk.client.core.physics;
 
+import com.ariesninja.skulkpk.client.core.data.schemes.CompiledPattern;
+import com.ariesninja.skulkpk.client.core.data.schemes.PatternLibrary;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class Patterns {
 
-    private static boolean matchesPattern(MinecraftClient client, BlockPos pos, int patternValue) {
-        if (client == null || client.world == null || pos == null) {
-            return false; // Invalid state, cannot check pattern
+    // Raw patterns compiled on first use, by identity since they are constants
+    private static final Map<int[][], CompiledPattern> compiled = new IdentityHashMap<>();
+
+    /**
+     * Reads the layer the patterns are checked on (one below the start position) into a mask with the bit of
+     * every solid cell set, see CompiledPattern.cell
+     */
+    public static long[] solidityMask(MinecraftClient client, BlockPos startPos) {
+        return solidityMask(client, startPos, startPos.getY() - 1);
+    }
+
+    /**
+     * Reads layer y around the origin into a mask with the bit of every solid cell set
+     */
+    public static long[] solidityMask(MinecraftClient client, BlockPos origin, int y) {
+        long[] solidity = new long[CompiledPattern.WORDS];
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        for (int dx = -CompiledPattern.RADIUS; dx <= CompiledPattern.RADIUS; dx++) {
+            for (int dz = -CompiledPattern.RADIUS; dz <= CompiledPattern.RADIUS; dz++) {
+                pos.set(origin.getX() + dx, y, origin.getZ() + dz);
+                if (client.world.getBlockState(pos).isSolidBlock(client.world, pos)) {
+                    int cell = CompiledPattern.cell(dx, dz);
+                    solidity[cell >>> 6] |= 1L << (cell & 63);
+                }
+            }
+        }
+        return solidity;
+    }
+
+    /**
+     * Direction of the patterns for a jump, from the end position back to the start position: diagonal only for
+     * jumps at exactly 45 degrees, and along the dominant axis for every other one.
+     *
+     * Diagonal variants step one diagonal block per row, so they skip the cells orthogonally next to the start.
+     * An offset jump like (2, 1) still runs off and lands along its dominant axis, where those cells matter.
+     */
+    public static int direction(BlockPos startPos, BlockPos endPos) {
+        int deltaX = startPos.getX() - endPos.getX();
+        int deltaZ = startPos.getZ() - endPos.getZ();
+        if (deltaX == 0 && deltaZ == 0) {
+            throw new IllegalArgumentException("Pattern check needs the start and end to be apart");
         }
-        // Check if the block at the position matches the pattern value
-        // 0 = empty space, 1 = solid block, 9 = doesn't matter
-        if (patternValue == 0) {
-            return !client.world.getBlockState(pos).isSolidBlock(client.world, pos);
-        } else if (patternValue == 1) {
-            return client.world.getBlockState(pos).isSolidBlock(client.world, pos);
-        } else if (patternValue == 9) {
-            return true;
+
+        if (Math.abs(deltaX) == Math.abs(deltaZ)) {
+            return CompiledPattern.direction(Integer.signum(deltaX), Integer.signum(deltaZ));
+        }
+        if (Math.abs(deltaX) > Math.abs(deltaZ)) {
+            return CompiledPattern.direction(Integer.signum(deltaX), 0);
         }
-        return false;
+        return CompiledPattern.direction(0, Integer.signum(deltaZ));
     }
 
     public static boolean doesJumpMatchPattern(MinecraftClient client, BlockPos startPos, BlockPos endPos, int[][] pattern) {
@@ -27,48 +70,27 @@ public class Patterns {
         // 1 = solid block
         // 9 = doesn't matter
         // The pattern is checked against the blocks behind the start pos, i.e. the middle value of the first row represents the start block.
-        int patternLength = pattern.length;
-        int patternWidth = pattern[0].length;
-        // If width is even, throw
-        if (patternWidth % 2 == 0) {
-            throw new IllegalArgumentException("Pattern width must be odd");
-        }
-        // Get the y coordinate of the start position
-        int startY = startPos.getY() - 1;
-        // Using the delta between the start and end positions, find which direction in the world correlates to the pattern's width
-        int deltaX = startPos.getX() - endPos.getX();
-        int deltaZ = startPos.getZ() - endPos.getZ();
-        // Determine the direction of the pattern based on the delta
-        int patternDirectionX = 0;
-        int patternDirectionZ = 0;
-        if (Math.abs(deltaX) > Math.abs(deltaZ)) {
-            // X direction is dominant
-            patternDirectionX = Integer.signum(deltaX);
-        } else if (Math.abs(deltaZ) > Math.abs(deltaX)) {
-            // Z direction is dominant
-            patternDirectionZ = Integer.signum(deltaZ);
-        } else {
-            // Both deltas are equal, treat as diagonal, invalid for this pattern check
-            throw new IllegalArgumentException("Pattern check does not support diagonal jumps");
+        return doesJumpMatchPattern(client, startPos, endPos,
+                compiled.computeIfAbsent(pattern, p -> CompiledPattern.compile("pattern", p)));
+    }
+
+    public static boolean doesJumpMatchPattern(MinecraftClient client, BlockPos startPos, BlockPos endPos, CompiledPattern pattern) {
+        int direction = direction(startPos, endPos);
+        if (client == null || client.world == null) {
+            return false; // Invalid state, cannot check pattern
         }
-        // Calculate the starting position for the pattern check
-        int startX = startPos.getX();
-        int startZ = startPos.getZ();
-        // Begin checking the pattern systematically where i and j represent some combination of X and Z (or their negatives). Y stays constant.
-        for (int i = 0; i < patternLength; i++) {
-            for (int j = 0; j < patternWidth; j++) {
-                // Calculate the current block position based on the pattern
-                int currentX = startX + (i * patternDirectionX) + (j - (patternWidth / 2)) * patternDirectionZ;
-                int currentZ = startZ + (i * patternDirectionZ) + (j - (patternWidth / 2)) * patternDirectionX;
-                BlockPos currentPos = new BlockPos(currentX, startY, currentZ);
+        return pattern.matches(solidityMask(client, startPos), direction);
+    }
 
-                // Check if the block matches the pattern
-                if (!matchesPattern(client, currentPos, pattern[i][j])) {
-                    return false; // Pattern does not match
-                }
-            }
+    /**
+     * Every pattern of the library the jump matches, reading the world once for all of them
+     */
+    public static List<CompiledPattern> matchingPatterns(MinecraftClient client, BlockPos startPos, BlockPos endPos, PatternLibrary library) {
+        int direction = direction(startPos, endPos);
+        if (client == null || client.world == null) {
+            return List.of(); // Invalid state, cannot check patterns
         }
-        return true; // All blocks match the pattern
+        return library.matchAll(solidityMask(client, startPos), direction);
     }
 
 }
@@ -1,6 +1,7 @@
 package com.ariesninja.skulkpk.client.core.rendering;
 
 import com.ariesninja.skulkpk.client.core.BlockSelector;
+import com.ariesninja.skulkpk.client.core.JumpAnalysisResult;
 import com.ariesninja.skulkpk.client.core.JumpAnalyzer;
 import me.x150.renderer.render.Renderer3d;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
@@ -50,20 +51,25 @@ public class SelectionRenderer {
             if (selectedBlock != null && context.consumers() instanceof VertexConsumerProvider.Immediate) {
                 MatrixStack matrixStack = context.matrixStack();
 
-                // Highlight the optimized target block in red (if available, otherwise use selected block)
-                BlockPos targetToHighlight = JumpAnalyzer.getOptimizedTargetBlock();
+                // Read the published analysis once so every highlight comes from the same result
+                JumpAnalysisResult analysis = JumpAnalyzer.getCurrentResult();
+                if (analysis == null || !analysis.isSuccess()) {
+                    return; // Analysis has not produced a target yet
+                }
 
+                // Highlight the optimized target block in red
+                BlockPos targetToHighlight = analysis.getOptimizedTargetBlock();
                 Renderer3d.renderEdged(Objects.requireNonNull(matrixStack), new Color(255, 180, 180, 120), new Color(255, 0, 0), targetToHighlight.toCenterPos().add(-0.5, -0.5, -0.5), new Vec3d(1.0, 1.0, 1.0));
 
                 // Highlight the jump-from block in blue
-                BlockPos jumpFromBlock = JumpAnalyzer.getJumpFromBlock();
+                BlockPos jumpFromBlock = analysis.getJumpFromBlock();
                 if (jumpFromBlock != null && !jumpFromBlock.equals(targetToHighlight)) {
                     Renderer3d.renderEdged(matrixStack, new Color(180, 180, 255, 120), new Color(0, 0, 255), jumpFromBlock.toCenterPos().add(-0.5, -0.5, -0.5), new Vec3d(1.0, 1.0, 1.0));
                 }
 
                 // Render the momentum path in rainbow colors
-                Vec3d momentumPoint = JumpAnalyzer.getMomentumPoint();
-                Vec3d jumpPoint = JumpAnalyzer.getJumpPoint();
+                Vec3d momentumPoint = analysis.getMomentumPoint();
+                Vec3d jumpPoint = analysis.getJumpPoint();
                 if (momentumPoint != null && jumpPoint != null) {
                     Renderer3d.renderLine(matrixStack, getRainbowColor(), momentumPoint, jumpPoint);
                 }
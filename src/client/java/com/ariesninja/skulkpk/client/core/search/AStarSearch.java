@@ -0,0 +1,174 @@
+package com.ariesninja.skulkpk.client.core.search;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.Arrays;
+
+/**
+ * Best-first search over {@code long} node keys (usually {@link net.minecraft.util.math.BlockPos#asLong}).
+ * With a consistent heuristic this is A*; with a zero heuristic and unit costs it settles nodes in breadth-first order.
+ *
+ * An instance is reusable but not thread-safe, so keep one per thread.
+ */
+public final class AStarSearch {
+
+    /**
+     * The graph being searched
+     */
+    public interface Graph {
+        /**
+         * Reports every neighbour of the node through {@link AStarSearch#offer}
+         */
+        void expand(AStarSearch search, long node);
+
+        /**
+         * Lower bound of the remaining cost from the node to the goal. Must never overestimate.
+         */
+        double heuristic(long node);
+    }
+
+    /**
+     * Called once for every settled node, in order of cost
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * @return true to stop the search at this node
+         */
+        boolean visit(long node, double cost);
+    }
+
+    private final Long2DoubleOpenHashMap costs = new Long2DoubleOpenHashMap();
+    private final LongOpenHashSet settled = new LongOpenHashSet();
+
+    // Binary min-heap of open nodes, ordered by cost + heuristic. Stale entries are skipped when popped.
+    private long[] heapNodes = new long[256];
+    private double[] heapPriorities = new double[256];
+    private int heapSize = 0;
+
+    private Graph graph;
+    private double maxCost;
+    private double currentCost;
+    private int expandedNodes;
+
+    public AStarSearch() {
+        costs.defaultReturnValue(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Searches from the start node until the visitor stops it or every node within the cost budget is settled.
+     *
+     * @return true if the visitor stopped the search
+     */
+    public boolean search(long start, Graph graph, double maxCost, Visitor visitor) {
+        reset();
+        this.graph = graph;
+        this.maxCost = maxCost;
+
+        costs.put(start, 0.0);
+        push(start, graph.heuristic(start));
+
+        try {
+            while (heapSize > 0) {
+                long node = heapNodes[0];
+                pop();
+
+                if (!settled.add(node)) {
+                    continue; // Already reached more cheaply
+                }
+
+                currentCost = costs.get(node);
+                if (visitor.visit(node, currentCost)) {
+                    return true;
+                }
+
+                expandedNodes++;
+                graph.expand(this, node);
+            }
+            return false;
+        } finally {
+            this.graph = null;
+        }
+    }
+
+    /**
+     * Offers a neighbour of the node being expanded. Only valid inside {@link Graph#expand}.
+     */
+    public void offer(long neighbour, double stepCost) {
+        if (settled.contains(neighbour)) {
+            return;
+        }
+
+        double cost = currentCost + stepCost;
+        if (cost > maxCost || cost >= costs.get(neighbour)) {
+            return;
+        }
+
+        costs.put(neighbour, cost);
+        push(neighbour, cost + graph.heuristic(neighbour));
+    }
+
+    /**
+     * Whether the node was already settled by the running search
+     */
+    public boolean isSettled(long node) {
+        return settled.contains(node);
+    }
+
+    /**
+     * Number of nodes expanded by the last search
+     */
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    private void reset() {
+        costs.clear();
+        settled.clear();
+        heapSize = 0;
+        expandedNodes = 0;
+    }
+
+    private void push(long node, double priority) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapPriorities = Arrays.copyOf(heapPriorities, heapSize * 2);
+        }
+
+        int index = heapSize++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heapPriorities[parent] <= priority) {
+                break;
+            }
+            heapNodes[index] = heapNodes[parent];
+            heapPriorities[index] = heapPriorities[parent];
+            index = parent;
+        }
+        heapNodes[index] = node;
+        heapPriorities[index] = priority;
+    }
+
+    private void pop() {
+        long node = heapNodes[--heapSize];
+        double priority = heapPriorities[heapSize];
+
+        int index = 0;
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            if (child + 1 < heapSize && heapPriorities[child + 1] < heapPriorities[child]) {
+                child++;
+            }
+            if (priority <= heapPriorities[child]) {
+                break;
+            }
+            heapNodes[index] = heapNodes[child];
+            heapPriorities[index] = heapPriorities[child];
+            index = child;
+        }
+        heapNodes[index] = node;
+        heapPriorities[index] = priority;
+    }
+}
@@ -0,0 +1,242 @@
+package com.ariesninja.skulkpk.client.core.search;
+
+import com.ariesninja.skulkpk.client.core.world.Footprint;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Finds the longest straight walkable runway leading away from a point.
+ *
+ * A runway is walked at fixed sample spacing. The player must be able to stand at every sample on the
+ * current level, or one level up (a step), which then becomes the current level. Rays are marched from one
+ * footprint cell to the next (the set of at most 2x2 block columns the player's footprint touches). Cells made up
+ * of empty and full blocks only give the same answer wherever the footprint stands in them, so they are tested once
+ * per ray instead of once per sample, and remembered and shared between all rays cast by one finder. Cells with
+ * partial collision shapes (slabs, stairs, fences) depend on where the footprint stands in them, so every sample
+ * in them is tested, by every ray.
+ */
+public final class RunwayFinder {
+
+    public static final double SAMPLE_SPACING = 0.1;
+    public static final int MAX_SAMPLES = 200; // 20 blocks of runway
+
+    // Coarse sweep resolution, and the resolution refinement stops at
+    private static final double COARSE_STEP = Math.toRadians(5);
+    private static final double FINE_STEP = Math.toRadians(0.25);
+    // How many of the best coarse angles get refined
+    private static final int REFINED_ANGLES = 3;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte WALKABLE = 1;
+    private static final byte BLOCKED = 2;
+    private static final byte PARTIAL = 3; // Not remembered, tested at every sample
+
+    /**
+     * Whether the player can stand with their feet on level y, centered at x and z
+     */
+    @FunctionalInterface
+    public interface Surface {
+        boolean canStand(double x, int y, double z);
+
+        /**
+         * Whether canStand gives the same answer everywhere in a footprint cell, so it can be remembered for the
+         * whole cell. By default nothing is remembered.
+         */
+        default boolean isUniform(int minX, int maxX, int y, int minZ, int maxZ) {
+            return false;
+        }
+    }
+
+    /**
+     * End of a runway. The length is a whole number of samples, and y is the level of the last sample.
+     */
+    public record Runway(double angle, double length, double x, int y, double z) {}
+
+    private final Surface surface;
+    // Cell results by corner block, one map per combination of 1 or 2 columns on each axis
+    private final Long2ByteOpenHashMap[] cells = {
+            new Long2ByteOpenHashMap(), new Long2ByteOpenHashMap(), new Long2ByteOpenHashMap(), new Long2ByteOpenHashMap()
+    };
+    private int castRays = 0;
+
+    public RunwayFinder(Surface surface) {
+        this.surface = surface;
+    }
+
+    /**
+     * Finds the longest runway within ±90 degrees of the base direction, sweeping coarsely and then
+     * refining the best angles by halving the step around them.
+     *
+     * @param angle base direction in radians, with x = cos and z = sin
+     */
+    public Runway findLongest(double originX, int originY, double originZ, double angle) {
+        int coarseSteps = (int) Math.round(Math.PI / COARSE_STEP);
+        Runway[] coarse = new Runway[coarseSteps + 1];
+
+        for (int i = 0; i <= coarseSteps; i++) {
+            double offset = -Math.PI / 2 + i * COARSE_STEP;
+            coarse[i] = cast(originX, originY, originZ, angle, offset);
+        }
+
+        Runway best = null;
+        boolean[] refined = new boolean[coarse.length];
+
+        for (int round = 0; round < REFINED_ANGLES; round++) {
+            // Pick the longest coarse angle not refined yet, earlier angles win ties
+            int pick = -1;
+            for (int i = 0; i < coarse.length; i++) {
+                if (!refined[i] && (pick < 0 || coarse[i].length() > coarse[pick].length())) {
+                    pick = i;
+                }
+            }
+            if (pick < 0 || coarse[pick].length() <= 0 && best != null) {
+                break;
+            }
+            refined[pick] = true;
+
+            Runway candidate = refine(originX, originY, originZ, angle, coarse[pick]);
+            if (best == null || candidate.length() > best.length()) {
+                best = candidate;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Hill-climbs from a coarse angle, halving the step until it reaches the fine resolution
+     */
+    private Runway refine(double originX, int originY, double originZ, double angle, Runway start) {
+        Runway best = start;
+        for (double step = COARSE_STEP / 2; step >= FINE_STEP; step /= 2) {
+            double center = best.angle();
+            for (double offset : new double[]{center - step, center + step}) {
+                if (offset < -Math.PI / 2 || offset > Math.PI / 2) {
+                    continue;
+                }
+                Runway candidate = cast(originX, originY, originZ, angle, offset);
+                if (candidate.length() > best.length()) {
+                    best = candidate;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Walks a single ray from the origin at the given offset from the base angle
+     */
+    public Runway cast(double originX, int originY, double originZ, double angle, double offset) {
+        castRays++;
+
+        double dirX = Math.cos(angle + offset);
+        double dirZ = Math.sin(angle + offset);
+
+        // The footprint cell changes whenever one of its four edges crosses a block boundary
+        double[] edges = {originX - Footprint.HALF_WIDTH, originX + Footprint.HALF_WIDTH, originZ - Footprint.HALF_WIDTH, originZ + Footprint.HALF_WIDTH};
+        double[] next = new double[4];
+        double[] delta = new double[4];
+        for (int edge = 0; edge < 4; edge++) {
+            double dir = edge < 2 ? dirX : dirZ;
+            double position = edges[edge];
+            delta[edge] = dir == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dir);
+            if (dir > 0) {
+                next[edge] = (Math.floor(position) + 1 - position) * delta[edge];
+            } else if (dir < 0) {
+                double boundary = Math.ceil(position) - 1;
+                next[edge] = (position - boundary) * delta[edge];
+            } else {
+                next[edge] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        double enter = 0;
+        int y = originY;
+        int lastSample = 0;
+
+        while (lastSample < MAX_SAMPLES) {
+            int crossing = 0;
+            for (int edge = 1; edge < 4; edge++) {
+                if (next[edge] < next[crossing]) {
+                    crossing = edge;
+                }
+            }
+            double exit = next[crossing];
+
+            // Only cells a sample lands in are tested, cells the footprint merely clips are stepped over
+            int firstSample = Math.max(1, (int) Math.ceil(enter / SAMPLE_SPACING));
+            int samplesBefore = (int) Math.ceil(exit / SAMPLE_SPACING); // First sample past this cell
+            int cellLastSample = Math.min(MAX_SAMPLES, samplesBefore - 1);
+            boolean blocked = false;
+            for (int sample = firstSample; sample <= cellLastSample; sample++) {
+                double sampleX = originX + dirX * sample * SAMPLE_SPACING;
+                double sampleZ = originZ + dirZ * sample * SAMPLE_SPACING;
+
+                if (!canStand(sampleX, y, sampleZ)) {
+                    // Try one block up in case there's a step
+                    if (canStand(sampleX, y + 1, sampleZ)) {
+                        y++;
+                    } else {
+                        blocked = true;
+                        break;
+                    }
+                }
+                lastSample = sample;
+
+                // The rest of a uniform cell stands the same as this sample
+                if (!isPartial(sampleX, y, sampleZ)) {
+                    lastSample = cellLastSample;
+                    break;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+
+            // Move past the boundary
+            enter = exit;
+            next[crossing] += delta[crossing];
+        }
+
+        double length = lastSample * SAMPLE_SPACING;
+        return new Runway(offset, length, originX + dirX * length, y, originZ + dirZ * length);
+    }
+
+    /**
+     * Number of rays cast so far, for diagnostics
+     */
+    public int getCastRays() {
+        return castRays;
+    }
+
+    private boolean canStand(double x, int y, double z) {
+        Long2ByteOpenHashMap cache = cacheFor(x, z);
+        int minX = Footprint.minBlock(x);
+        int minZ = Footprint.minBlock(z);
+
+        long key = BlockPos.asLong(minX, y, minZ);
+        byte cached = cache.get(key);
+        if (cached == UNKNOWN) {
+            if (!surface.isUniform(minX, Footprint.maxBlock(x), y, minZ, Footprint.maxBlock(z))) {
+                cache.put(key, PARTIAL);
+                return surface.canStand(x, y, z);
+            }
+            cached = surface.canStand(x, y, z) ? WALKABLE : BLOCKED;
+            cache.put(key, cached);
+        } else if (cached == PARTIAL) {
+            return surface.canStand(x, y, z);
+        }
+        return cached == WALKABLE;
+    }
+
+    /**
+     * Whether the footprint cell at x and z on level y has partial shapes, once canStand has tested it
+     */
+    private boolean isPartial(double x, int y, double z) {
+        return cacheFor(x, z).get(BlockPos.asLong(Footprint.minBlock(x), y, Footprint.minBlock(z))) == PARTIAL;
+    }
+
+    private Long2ByteOpenHashMap cacheFor(double x, double z) {
+        return cells[(Footprint.maxBlock(x) - Footprint.minBlock(x)) << 1 | (Footprint.maxBlock(z) - Footprint.minBlock(z))];
+    }
+}
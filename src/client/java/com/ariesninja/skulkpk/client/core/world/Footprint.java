@@ -0,0 +1,164 @@
+package com.ariesninja.skulkpk.client.core.world;
+
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+
+/**
+ * Standing test for the player's 0.6x0.6 footprint against real collision shapes.
+ * The footprint touches at most 2x2 block columns, and each block in them is looked at once.
+ */
+public final class Footprint {
+
+    public static final double HALF_WIDTH = 0.3;
+    public static final double HEIGHT = 1.8;
+    public static final double STEP_HEIGHT = 0.6; // Vanilla player step height
+
+    private static final double EPSILON = 1.0E-7;
+
+    private Footprint() {
+    }
+
+    /**
+     * First block column the footprint touches on an axis
+     */
+    public static int minBlock(double center) {
+        return MathHelper.floor(center - HALF_WIDTH + EPSILON);
+    }
+
+    /**
+     * Last block column the footprint touches on an axis, either {@link #minBlock} or the one after it
+     */
+    public static int maxBlock(double center) {
+        return MathHelper.floor(center + HALF_WIDTH - EPSILON);
+    }
+
+    /**
+     * Whether the player can stand with their feet on level y, centered at x and z.
+     * Something under the footprint must reach between the level and a step above it, and nothing may
+     * intersect the player's body standing on top of the highest such support.
+     */
+    public static boolean canStand(WorldSnapshot world, double x, int y, double z) {
+        int minX = minBlock(x);
+        int maxX = maxBlock(x);
+        int minZ = minBlock(z);
+        int maxZ = maxBlock(z);
+
+        Probe probe = new Probe(x - HALF_WIDTH, x + HALF_WIDTH, z - HALF_WIDTH, z + HALF_WIDTH);
+
+        // Support: the highest collision top under the footprint, from the level up to a step above it
+        probe.begin(true, y - EPSILON, y + STEP_HEIGHT + EPSILON);
+        for (int blockY = y - 1; blockY <= y; blockY++) {
+            for (int blockX = minX; blockX <= maxX; blockX++) {
+                for (int blockZ = minZ; blockZ <= maxZ; blockZ++) {
+                    probe.scan(world, blockX, blockY, blockZ);
+                }
+            }
+        }
+
+        if (!probe.found) {
+            return false;
+        }
+
+        // Clearance: nothing may overlap the body standing on that support
+        double feetY = probe.top;
+        probe.begin(false, feetY + EPSILON, feetY + HEIGHT - EPSILON);
+        int topY = MathHelper.floor(feetY + HEIGHT - EPSILON);
+        for (int blockY = y - 1; blockY <= topY; blockY++) {
+            for (int blockX = minX; blockX <= maxX; blockX++) {
+                for (int blockZ = minZ; blockZ <= maxZ; blockZ++) {
+                    probe.scan(world, blockX, blockY, blockZ);
+                    if (probe.found) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether canStand gives the same answer for every center whose footprint touches exactly the given columns
+     * on level y. That holds when every block it looks at is empty or a full cube; partial shapes such as slabs
+     * and stairs (and ladders) support or block the footprint depending on where it is.
+     */
+    public static boolean isUniform(WorldSnapshot world, int minX, int maxX, int y, int minZ, int maxZ) {
+        // Support and clearance on full cubes never look past one block above the level
+        for (int blockY = y - 1; blockY <= y + 1; blockY++) {
+            for (int blockX = minX; blockX <= maxX; blockX++) {
+                for (int blockZ = minZ; blockZ <= maxZ; blockZ++) {
+                    if (world.hasPartialShape(blockX, blockY, blockZ)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walks the collision boxes of blocks under the footprint, looking for supports or obstructions
+     */
+    private static final class Probe implements VoxelShapes.BoxConsumer {
+        private final double minX;
+        private final double maxX;
+        private final double minZ;
+        private final double maxZ;
+
+        private boolean support;
+        private double low;
+        private double high;
+        private int blockX;
+        private int blockY;
+        private int blockZ;
+
+        boolean found;
+        double top;
+
+        Probe(double minX, double maxX, double minZ, double maxZ) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minZ = minZ;
+            this.maxZ = maxZ;
+        }
+
+        void begin(boolean support, double low, double high) {
+            this.support = support;
+            this.low = low;
+            this.high = high;
+            this.found = false;
+            this.top = Double.NEGATIVE_INFINITY;
+        }
+
+        void scan(WorldSnapshot world, int x, int y, int z) {
+            VoxelShape shape = world.getCollisionShape(x, y, z);
+            if (shape.isEmpty()) {
+                return;
+            }
+            blockX = x;
+            blockY = y;
+            blockZ = z;
+            shape.forEachBox(this);
+        }
+
+        @Override
+        public void consume(double boxMinX, double boxMinY, double boxMinZ, double boxMaxX, double boxMaxY, double boxMaxZ) {
+            // Boxes that only touch the footprint's edge don't count
+            if (blockX + boxMaxX <= minX + EPSILON || blockX + boxMinX >= maxX - EPSILON
+                    || blockZ + boxMaxZ <= minZ + EPSILON || blockZ + boxMinZ >= maxZ - EPSILON) {
+                return;
+            }
+
+            double boxTop = blockY + boxMaxY;
+            if (support) {
+                if (boxTop >= low && boxTop <= high) {
+                    found = true;
+                    top = Math.max(top, boxTop);
+                }
+            } else if (boxTop > low && blockY + boxMinY < high) {
+                found = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.ariesninja.skulkpk.client.core.world;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.LadderBlock;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable 16x16x16 block section packed into bitsets.
+ * Holds one bit per block for each of the solid, ladder, air and full-cube collision flags,
+ * plus the collision shapes of the few blocks that are neither empty nor a full cube.
+ */
+public final class PackedSection {
+
+    public static final int SOLID = 0;
+    public static final int LADDER = 1;
+    public static final int AIR = 2;
+    public static final int FULL_CUBE = 3;
+
+    private static final int FLAG_COUNT = 4;
+    private static final int WORDS_PER_FLAG = 4096 / 64;
+
+    /** Section made up entirely of air, shared by every empty or unloaded section */
+    public static final PackedSection EMPTY = createEmpty();
+
+    // [0, 64) solid, [64, 128) ladder, [128, 192) air, [192, 256) full cube
+    private final long[] bits;
+    // Collision shapes that are neither empty nor a full cube, by block index. Null if there are none.
+    private final Int2ObjectOpenHashMap<VoxelShape> partialShapes;
+
+    private PackedSection(long[] bits, Int2ObjectOpenHashMap<VoxelShape> partialShapes) {
+        this.bits = bits;
+        this.partialShapes = partialShapes;
+    }
+
+    private static PackedSection createEmpty() {
+        long[] bits = new long[WORDS_PER_FLAG * FLAG_COUNT];
+        Arrays.fill(bits, AIR * WORDS_PER_FLAG, (AIR + 1) * WORDS_PER_FLAG, -1L);
+        return new PackedSection(bits, null);
+    }
+
+    /**
+     * Packs a live chunk section. Must be called on the client thread.
+     *
+     * @param originY the world Y of the lowest block in the section
+     */
+    public static PackedSection capture(World world, ChunkSection section, int chunkX, int chunkZ, int originY) {
+        if (section == null || section.isEmpty()) {
+            return EMPTY;
+        }
+
+        long[] bits = new long[WORDS_PER_FLAG * FLAG_COUNT];
+        Int2ObjectOpenHashMap<VoxelShape> partialShapes = null;
+        BlockPos.Mutable mutable = new BlockPos.Mutable();
+
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    BlockState state = section.getBlockState(x, y, z);
+                    mutable.set((chunkX << 4) + x, originY + y, (chunkZ << 4) + z);
+
+                    int index = index(x, y, z);
+                    VoxelShape shape = state.getCollisionShape(world, mutable);
+                    setFlags(bits, index, flagsOf(world, mutable, state, shape));
+
+                    if (isPartial(shape)) {
+                        if (partialShapes == null) {
+                            partialShapes = new Int2ObjectOpenHashMap<>();
+                        }
+                        partialShapes.put(index, shape);
+                    }
+                }
+            }
+        }
+
+        return new PackedSection(bits, partialShapes);
+    }
+
+    /**
+     * Computes the packed flags of a block state, as a mask of {@code 1 << SOLID | 1 << LADDER | 1 << AIR | 1 << FULL_CUBE}
+     */
+    private static int flagsOf(World world, BlockPos pos, BlockState state, VoxelShape collisionShape) {
+        int flags = 0;
+        if (state.isSolidBlock(world, pos)) {
+            flags |= 1 << SOLID;
+        }
+        if (state.getBlock() instanceof LadderBlock) {
+            flags |= 1 << LADDER;
+        }
+        if (state.isAir()) {
+            flags |= 1 << AIR;
+        }
+        if (Block.isShapeFullCube(collisionShape)) {
+            flags |= 1 << FULL_CUBE;
+        }
+        return flags;
+    }
+
+    private static boolean isPartial(VoxelShape collisionShape) {
+        return !collisionShape.isEmpty() && !Block.isShapeFullCube(collisionShape);
+    }
+
+    /**
+     * Returns a copy of this section with a single block replaced, or this section if nothing changed.
+     * Must be called on the client thread.
+     */
+    public PackedSection with(World world, BlockPos pos, BlockState state) {
+        int index = index(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+        VoxelShape shape = state.getCollisionShape(world, pos);
+        int flags = flagsOf(world, pos, state, shape);
+        VoxelShape partial = isPartial(shape) ? shape : null;
+        VoxelShape previous = partialShapes != null ? partialShapes.get(index) : null;
+
+        if (flags(index) == flags && previous == partial) {
+            return this;
+        }
+
+        long[] copy = bits.clone();
+        setFlags(copy, index, flags);
+
+        Int2ObjectOpenHashMap<VoxelShape> shapes = partialShapes != null ? new Int2ObjectOpenHashMap<>(partialShapes) : null;
+        if (partial != null) {
+            if (shapes == null) {
+                shapes = new Int2ObjectOpenHashMap<>();
+            }
+            shapes.put(index, partial);
+        } else if (shapes != null) {
+            shapes.remove(index);
+        }
+
+        return new PackedSection(copy, shapes != null && !shapes.isEmpty() ? shapes : null);
+    }
+
+    /**
+     * Returns a copy of this section with every given block replaced, copied once for all of them, or this
+     * section if nothing changed. Blocks outside this section must not be passed. Must be called on the client thread.
+     */
+    public PackedSection with(World world, Map<BlockPos, BlockState> updates) {
+        long[] copy = null;
+        Int2ObjectOpenHashMap<VoxelShape> shapes = partialShapes;
+        boolean shapesCopied = false;
+
+        for (Map.Entry<BlockPos, BlockState> update : updates.entrySet()) {
+            BlockPos pos = update.getKey();
+            BlockState state = update.getValue();
+            int index = index(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+            VoxelShape shape = state.getCollisionShape(world, pos);
+            int flags = flagsOf(world, pos, state, shape);
+            VoxelShape partial = isPartial(shape) ? shape : null;
+            VoxelShape previous = shapes != null ? shapes.get(index) : null;
+
+            if (flags(copy != null ? copy : bits, index) == flags && previous == partial) {
+                continue;
+            }
+
+            if (copy == null) {
+                copy = bits.clone();
+            }
+            setFlags(copy, index, flags);
+
+            if (partial != previous) {
+                if (!shapesCopied) {
+                    shapes = shapes != null ? new Int2ObjectOpenHashMap<>(shapes) : new Int2ObjectOpenHashMap<>();
+                    shapesCopied = true;
+                }
+                if (partial != null) {
+                    shapes.put(index, partial);
+                } else {
+                    shapes.remove(index);
+                }
+            }
+        }
+
+        if (copy == null) {
+            return this;
+        }
+        return new PackedSection(copy, shapes != null && !shapes.isEmpty() ? shapes : null);
+    }
+
+    public boolean get(int flag, int localX, int localY, int localZ) {
+        int index = index(localX, localY, localZ);
+        return (bits[flag * WORDS_PER_FLAG + (index >>> 6)] >>> index & 1L) != 0;
+    }
+
+    /**
+     * Whether the collision shape of a block is neither empty nor a full cube
+     */
+    public boolean hasPartialShape(int localX, int localY, int localZ) {
+        return partialShapes != null && partialShapes.containsKey(index(localX, localY, localZ));
+    }
+
+    /**
+     * Returns the collision shape of a block, relative to the block's own corner
+     */
+    public VoxelShape getCollisionShape(int localX, int localY, int localZ) {
+        if (get(FULL_CUBE, localX, localY, localZ)) {
+            return VoxelShapes.fullCube();
+        }
+        if (partialShapes != null) {
+            VoxelShape shape = partialShapes.get(index(localX, localY, localZ));
+            if (shape != null) {
+                return shape;
+            }
+        }
+        return VoxelShapes.empty();
+    }
+
+    private int flags(int index) {
+        return flags(bits, index);
+    }
+
+    private static int flags(long[] bits, int index) {
+        int flags = 0;
+        for (int flag = SOLID; flag < FLAG_COUNT; flag++) {
+            if ((bits[flag * WORDS_PER_FLAG + (index >>> 6)] >>> index & 1L) != 0) {
+                flags |= 1 << flag;
+            }
+        }
+        return flags;
+    }
+
+    private static void setFlags(long[] bits, int index, int flags) {
+        for (int flag = SOLID; flag < FLAG_COUNT; flag++) {
+            int word = flag * WORDS_PER_FLAG + (index >>> 6);
+            if ((flags & (1 << flag)) != 0) {
+                bits[word] |= 1L << index;
+            } else {
+                bits[word] &= ~(1L << index);
+            }
+        }
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ariesninja.skulkpk.client.core.world;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Cache of the walkable Y levels of each block column, shared by every snapshot of a world.
+ * Columns are dropped when a block in them changes. An entry is only handed to snapshots that hold
+ * the same sections for its column and were taken after the column last changed.
+ */
+public final class WalkableColumns {
+
+    private static final int MAX_COLUMNS = 1 << 16;
+    // Change records kept before all of them are forgotten at once
+    private static final int MAX_CHANGES = 1 << 14;
+
+    private record Column(int[] levels, long sectionMask, long generation) {}
+
+    // Keyed by ChunkPos.toLong(x, z) of the block column
+    private final Long2ObjectOpenHashMap<Column> columns = new Long2ObjectOpenHashMap<>();
+    private final Long2LongOpenHashMap columnChanges = new Long2LongOpenHashMap();
+    // Keyed by ChunkPos.toLong(chunkX, chunkZ)
+    private final Long2LongOpenHashMap chunkChanges = new Long2LongOpenHashMap();
+
+    private long generation = 0;
+    // Changes up to this generation were forgotten, so everything taken before it counts as changed
+    private long forgottenUpTo = 0;
+
+    /**
+     * Current change generation, recorded by snapshots when they are taken
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drops the cached levels of a single block column. Called when a block in it changes.
+     */
+    public synchronized void invalidateColumn(int x, int z) {
+        long key = ChunkPos.toLong(x, z);
+        generation++;
+        boundChanges();
+        columnChanges.put(key, generation);
+        columns.remove(key);
+    }
+
+    /**
+     * Drops the cached levels of every column in a chunk
+     */
+    public synchronized void invalidateChunk(int chunkX, int chunkZ) {
+        generation++;
+        boundChanges();
+        chunkChanges.put(ChunkPos.toLong(chunkX, chunkZ), generation);
+
+        for (int x = chunkX << 4; x < (chunkX << 4) + 16; x++) {
+            for (int z = chunkZ << 4; z < (chunkZ << 4) + 16; z++) {
+                long key = ChunkPos.toLong(x, z);
+                columns.remove(key);
+                columnChanges.remove(key); // Covered by the chunk change from now on
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        forgetChanges();
+    }
+
+    /**
+     * Forgets every change once too many are recorded. Loaded chunks are changed over and over while exploring,
+     * and each of them would otherwise be remembered for as long as the world is.
+     */
+    private void boundChanges() {
+        if (columnChanges.size() + chunkChanges.size() >= MAX_CHANGES) {
+            forgetChanges();
+        }
+    }
+
+    private void forgetChanges() {
+        // Entries and snapshots from before now can't be checked against the changes anymore, so none are valid
+        forgottenUpTo = generation;
+        columns.clear();
+        columnChanges.clear();
+        chunkChanges.clear();
+    }
+
+    /**
+     * Returns the cached levels of a column if they are valid for the given snapshot, otherwise null
+     */
+    synchronized int[] get(int x, int z, long sectionMask, long snapshotGeneration) {
+        Column column = columns.get(ChunkPos.toLong(x, z));
+        if (column == null || column.sectionMask() != sectionMask) {
+            return null;
+        }
+
+        // Both the entry and the snapshot must have been taken after the column last changed
+        long changed = lastChanged(x, z);
+        return changed <= column.generation() && changed <= snapshotGeneration ? column.levels() : null;
+    }
+
+    synchronized void put(int x, int z, long sectionMask, long snapshotGeneration, int[] levels) {
+        // A snapshot older than the last change describes a column that no longer exists
+        if (lastChanged(x, z) > snapshotGeneration) {
+            return;
+        }
+
+        if (columns.size() >= MAX_COLUMNS) {
+            columns.clear();
+        }
+        columns.put(ChunkPos.toLong(x, z), new Column(levels, sectionMask, snapshotGeneration));
+    }
+
+    private long lastChanged(int x, int z) {
+        long changed = Math.max(columnChanges.get(ChunkPos.toLong(x, z)), chunkChanges.get(ChunkPos.toLong(x >> 4, z >> 4)));
+        return Math.max(changed, forgottenUpTo);
+    }
+}
@@ -0,0 +1,218 @@
+package com.ariesninja.skulkpk.client.core.world;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+
+/**
+ * Immutable view of the packed block sections around an analysis.
+ * Positions outside the captured sections read as air.
+ */
+public final class WorldSnapshot {
+
+    private static final int[] EMPTY_LEVELS = new int[0];
+
+    private final Long2ObjectMap<PackedSection> sections;
+    private final int bottomY;
+    private final int height;
+
+    private final WalkableColumns walkableColumns;
+    private final long generation;
+    // Which sections of each chunk column were captured, one bit per section from the bottom of the world
+    private final Long2LongOpenHashMap sectionMasks;
+    private final boolean cacheable;
+
+    // Where reads are recorded, null unless this is a recording view
+    private final LongSet blockReads;
+    private final LongSet columnReads;
+
+    public WorldSnapshot(Long2ObjectMap<PackedSection> sections, int bottomY, int height, WalkableColumns walkableColumns) {
+        this.sections = new Long2ObjectOpenHashMap<>(sections);
+        this.bottomY = bottomY;
+        this.height = height;
+        this.walkableColumns = walkableColumns;
+        this.generation = walkableColumns.getGeneration();
+        this.sectionMasks = new Long2LongOpenHashMap();
+        this.blockReads = null;
+        this.columnReads = null;
+
+        boolean fitsMask = true;
+        LongIterator keys = this.sections.keySet().iterator();
+        while (keys.hasNext()) {
+            long key = keys.nextLong();
+            int index = ChunkSectionPos.unpackY(key) - (bottomY >> 4);
+            if (index < 0 || index >= Long.SIZE) {
+                fitsMask = false; // Taller than any vanilla world, just skip the column cache
+                continue;
+            }
+            long column = ChunkPos.toLong(ChunkSectionPos.unpackX(key), ChunkSectionPos.unpackZ(key));
+            sectionMasks.put(column, sectionMasks.get(column) | 1L << index);
+        }
+        this.cacheable = fitsMask;
+    }
+
+    private WorldSnapshot(WorldSnapshot source, LongSet blockReads, LongSet columnReads) {
+        this.sections = source.sections;
+        this.bottomY = source.bottomY;
+        this.height = source.height;
+        this.walkableColumns = source.walkableColumns;
+        this.generation = source.generation;
+        this.sectionMasks = source.sectionMasks;
+        this.cacheable = source.cacheable;
+        this.blockReads = blockReads;
+        this.columnReads = columnReads;
+    }
+
+    /**
+     * Returns a view of the same blocks that adds every position read through it to blockReads,
+     * and every column read through {@link #getWalkableLevels} to columnReads (keyed by {@link ChunkPos#toLong(int, int)}).
+     * The sets are not synchronized, so the view must stay on one thread.
+     */
+    public WorldSnapshot recording(LongSet blockReads, LongSet columnReads) {
+        return new WorldSnapshot(this, blockReads, columnReads);
+    }
+
+    public int getBottomY() {
+        return bottomY;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isSolid(BlockPos pos) {
+        return read(PackedSection.SOLID, pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public boolean isSolid(int x, int y, int z) {
+        return read(PackedSection.SOLID, x, y, z);
+    }
+
+    public boolean isLadder(BlockPos pos) {
+        return read(PackedSection.LADDER, pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public boolean isLadder(int x, int y, int z) {
+        return read(PackedSection.LADDER, x, y, z);
+    }
+
+    public boolean isAir(BlockPos pos) {
+        return read(PackedSection.AIR, pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    public boolean isAir(int x, int y, int z) {
+        return read(PackedSection.AIR, x, y, z);
+    }
+
+    /**
+     * Returns the collision shape of a block, relative to the block's own corner
+     */
+    public VoxelShape getCollisionShape(int x, int y, int z) {
+        record(x, y, z);
+        PackedSection section = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        if (section == null) {
+            return VoxelShapes.empty();
+        }
+        return section.getCollisionShape(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Whether the collision shape of a block is neither empty nor a full cube
+     */
+    public boolean hasPartialShape(int x, int y, int z) {
+        record(x, y, z);
+        PackedSection section = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        return section != null && section.hasPartialShape(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Whether a player can stand at this position: a solid floor with two passable blocks above it,
+     * or the air block right above a ladder
+     */
+    public boolean isWalkable(int x, int y, int z) {
+        record(x, y - 1, z);
+        record(x, y, z);
+        record(x, y + 1, z);
+        return isWalkableUnrecorded(x, y, z);
+    }
+
+    private boolean isWalkableUnrecorded(int x, int y, int z) {
+        return (get(PackedSection.SOLID, x, y - 1, z) &&
+                !get(PackedSection.SOLID, x, y, z) &&
+                !get(PackedSection.SOLID, x, y + 1, z)) ||
+                (get(PackedSection.AIR, x, y, z) && get(PackedSection.LADDER, x, y - 1, z));
+    }
+
+    /**
+     * Returns every Y in the block column where {@link #isWalkable} holds, in ascending order.
+     * Columns are cached across snapshots until a block in them changes, so the array must not be modified.
+     */
+    public int[] getWalkableLevels(int x, int z) {
+        if (columnReads != null) {
+            columnReads.add(ChunkPos.toLong(x, z));
+        }
+
+        long sectionMask = sectionMasks.get(ChunkPos.toLong(x >> 4, z >> 4));
+        if (sectionMask == 0) {
+            return EMPTY_LEVELS; // Nothing captured here, so the whole column reads as air
+        }
+
+        if (cacheable) {
+            int[] cached = walkableColumns.get(x, z, sectionMask, generation);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        IntArrayList levels = new IntArrayList();
+        int bottomSection = bottomY >> 4;
+        int topSection = (bottomY + height - 1) >> 4;
+
+        for (int sectionY = bottomSection; sectionY <= topSection; sectionY++) {
+            if (!sections.containsKey(ChunkSectionPos.asLong(x >> 4, sectionY, z >> 4))) {
+                continue;
+            }
+
+            // Walkable levels stand on a block of this section, so they sit one above it
+            int originY = sectionY << 4;
+            for (int y = originY + 1; y <= originY + 16; y++) {
+                if (isWalkableUnrecorded(x, y, z)) {
+                    levels.add(y);
+                }
+            }
+        }
+
+        int[] result = levels.toIntArray();
+        if (cacheable) {
+            walkableColumns.put(x, z, sectionMask, generation, result);
+        }
+        return result;
+    }
+
+    private boolean read(int flag, int x, int y, int z) {
+        record(x, y, z);
+        return get(flag, x, y, z);
+    }
+
+    private void record(int x, int y, int z) {
+        if (blockReads != null) {
+            blockReads.add(BlockPos.asLong(x, y, z));
+        }
+    }
+
+    private boolean get(int flag, int x, int y, int z) {
+        PackedSection section = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        if (section == null) {
+            section = PackedSection.EMPTY;
+        }
+        return section.get(flag, x & 15, y & 15, z & 15);
+    }
+}
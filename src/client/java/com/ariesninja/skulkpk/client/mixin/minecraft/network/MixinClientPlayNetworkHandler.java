@@ -0,0 +1,67 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.ariesninja.skulkpk.client.mixin.minecraft.network;
+
+import com.ariesninja.skulkpk.client.event.EventManager;
+import com.ariesninja.skulkpk.client.event.events.BlockChangeEvent;
+import com.ariesninja.skulkpk.client.event.events.ChunkDeltaUpdateEvent;
+import com.ariesninja.skulkpk.client.event.events.ChunkLoadEvent;
+import com.ariesninja.skulkpk.client.event.events.ChunkUnloadEvent;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.BlockUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkDeltaUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.UnloadChunkS2CPacket;
+import net.minecraft.util.math.BlockPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class MixinClientPlayNetworkHandler {
+
+    @Inject(method = "onChunkData", at = @At("RETURN"))
+    private void injectChunkLoadEvent(ChunkDataS2CPacket packet, CallbackInfo ci) {
+        EventManager.INSTANCE.callEvent(new ChunkLoadEvent(packet.getChunkX(), packet.getChunkZ()));
+    }
+
+    @Inject(method = "onUnloadChunk", at = @At("RETURN"))
+    private void injectUnloadEvent(UnloadChunkS2CPacket packet, CallbackInfo ci) {
+        EventManager.INSTANCE.callEvent(new ChunkUnloadEvent(packet.pos().x, packet.pos().z));
+    }
+
+    @Inject(method = "onChunkDeltaUpdate", at = @At("RETURN"))
+    private void injectChunkDeltaEvent(ChunkDeltaUpdateS2CPacket packet, CallbackInfo ci) {
+        Map<BlockPos, BlockState> updates = new HashMap<>();
+        // The visited position is mutable and reused between blocks
+        packet.visitUpdates((pos, state) -> updates.put(pos.toImmutable(), state));
+        EventManager.INSTANCE.callEvent(new ChunkDeltaUpdateEvent(packet.sectionPos.getX(), packet.sectionPos.getZ(), updates));
+    }
+
+    @Inject(method = "onBlockUpdate", at = @At("RETURN"))
+    private void injectBlockStateChange(BlockUpdateS2CPacket packet, CallbackInfo ci) {
+        EventManager.INSTANCE.callEvent(new BlockChangeEvent(packet.getPos(), packet.getState()));
+    }
+
+}
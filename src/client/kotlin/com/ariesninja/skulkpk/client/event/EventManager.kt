@@ -197,6 +197,13 @@ object EventManager {
         }
     }
 
+    /**
+     * Whether any handler listens for the event, so hot paths can skip creating it
+     */
+    fun hasHandlers(eventClass: Class<out Event>): Boolean {
+        return registry[eventClass]?.isNotEmpty() == true
+    }
+
     /**
      * Call event to listeners
      *
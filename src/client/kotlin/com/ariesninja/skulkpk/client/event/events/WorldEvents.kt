@@ -42,8 +42,11 @@ class ChunkUnloadEvent(val x: Int, val z: Int) : Event()
 @Nameable("chunkLoad")
 class ChunkLoadEvent(val x: Int, val z: Int) : Event()
 
+/**
+ * A batch of block updates within one chunk section, with every changed block and its new state
+ */
 @Nameable("chunkDeltaUpdate")
-class ChunkDeltaUpdateEvent(val x: Int, val z: Int) : Event()
+class ChunkDeltaUpdateEvent(val x: Int, val z: Int, val updates: Map<BlockPos, BlockState>) : Event()
 
 @Nameable("blockChange")
 class BlockChangeEvent(val blockPos: BlockPos, val newState: BlockState) : Event()
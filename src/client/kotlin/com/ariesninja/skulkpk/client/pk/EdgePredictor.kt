@@ -0,0 +1,73 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.utils.client.mc
+import com.ariesninja.skulkpk.client.utils.entity.PlayerSimulationCache
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer
+import com.ariesninja.skulkpk.client.utils.entity.TrajectoryCache
+import com.ariesninja.skulkpk.client.utils.entity.TrajectoryCache.Trajectory
+import net.minecraft.entity.player.PlayerEntity
+
+/**
+ * Predicts when the local player walks off the block they stand on, by simulating the current input.
+ *
+ * The trajectory is looked up once per player tick and shared by every caller of that tick, so it is cheap to ask
+ * from several step handlers.
+ */
+object EdgePredictor {
+
+    const val NOT_LEAVING = -1
+
+    // Ticks looked ahead before the player counts as staying on the ground
+    private const val MAX_LOOKAHEAD = 20
+
+    private var trajectory: Trajectory? = null
+    private var trajectoryPlayer: PlayerEntity? = null
+    private var trajectoryAge = 0
+
+    /**
+     * Number of ticks until the player is no longer on the ground when keeping the current input, 0 if they are
+     * in the air already, or [NOT_LEAVING] if they stay on the ground for [MAX_LOOKAHEAD] ticks
+     */
+    @JvmStatic
+    fun ticksUntilLeavingGround(): Int {
+        val player = mc.player ?: return NOT_LEAVING
+        if (!player.isOnGround) {
+            return 0
+        }
+
+        val trajectory = currentTrajectory(player)
+        for (tick in 1..MAX_LOOKAHEAD) {
+            if (!trajectory.isOnGround(tick)) {
+                return tick
+            }
+        }
+        return NOT_LEAVING
+    }
+
+    /**
+     * Whether the player stands at the edge and drops off with the next tick, unless they jump or sneak already
+     */
+    @JvmStatic
+    fun isAtEdge(): Boolean {
+        val player = mc.player ?: return false
+        if (!player.isOnGround || mc.options.jumpKey.isPressed || player.isSneaking || mc.options.sneakKey.isPressed) {
+            return false
+        }
+        return ticksUntilLeavingGround() == 1
+    }
+
+    private fun currentTrajectory(player: PlayerEntity): Trajectory {
+        val cached = trajectory
+        if (cached != null && trajectoryPlayer === player && trajectoryAge == player.age) {
+            return cached
+        }
+
+        // Same input as the local simulation, from the current state
+        val input = PlayerSimulationCache.getSimulationForLocalPlayer().simulatedPlayer.input
+        return TrajectoryCache.get(SimulatedPlayer.fromClientPlayer(input)).also {
+            trajectory = it
+            trajectoryPlayer = player
+            trajectoryAge = player.age
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.core.BlockSelector
+import com.ariesninja.skulkpk.client.core.JumpAnalyzer
+import com.ariesninja.skulkpk.client.core.JumpDependencies
+import com.ariesninja.skulkpk.client.event.EventListener
+import com.ariesninja.skulkpk.client.event.events.BlockChangeEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkDeltaUpdateEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkLoadEvent
+import com.ariesninja.skulkpk.client.event.events.PlayerTickEvent
+import com.ariesninja.skulkpk.client.event.handler
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import java.util.EnumSet
+
+/**
+ * Watches block updates near the selected jump and re-runs only the analysis stages that read the
+ * changed blocks. Changes are collected as they arrive and handled once per tick, so a burst of
+ * updates causes a single re-analysis.
+ *
+ * Only touched from the client thread.
+ */
+object JumpDependencyWatcher : EventListener {
+
+    private val changedBlocks = LongOpenHashSet()
+    private val changedChunks = LongOpenHashSet()
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        if (BlockSelector.getSelectedBlock() != null) {
+            changedBlocks.add(event.blockPos.asLong())
+        }
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        if (BlockSelector.getSelectedBlock() != null) {
+            for (pos in event.updates.keys) {
+                changedBlocks.add(pos.asLong())
+            }
+        }
+    }
+
+    // A chunk loaded again may differ anywhere, so every stage that read it is affected
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        if (BlockSelector.getSelectedBlock() != null) {
+            changedChunks.add(ChunkPos.toLong(event.x, event.z))
+        }
+    }
+
+    @Suppress("unused")
+    private val tickHandler = handler<PlayerTickEvent> {
+        if (changedBlocks.isEmpty() && changedChunks.isEmpty()) {
+            return@handler
+        }
+
+        // Keep the changes for the result still being computed, its snapshot may predate them
+        if (BlockSelector.isAnalysisPending()) {
+            return@handler
+        }
+
+        val result = JumpAnalyzer.getCurrentResult()
+        val dependencies = result?.dependencies
+        if (BlockSelector.getSelectedBlock() != null && result != null && result.isSuccess && dependencies != null) {
+            val affected = EnumSet.noneOf(JumpDependencies.Stage::class.java)
+
+            val blocks = changedBlocks.iterator()
+            while (blocks.hasNext()) {
+                val pos = blocks.nextLong()
+                dependencies.collectAffectedByBlock(
+                    BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos), affected
+                )
+            }
+
+            val chunks = changedChunks.iterator()
+            while (chunks.hasNext()) {
+                val chunk = chunks.nextLong()
+                dependencies.collectAffectedByChunk(ChunkPos.getPackedX(chunk), ChunkPos.getPackedZ(chunk), affected)
+            }
+
+            if (affected.isNotEmpty()) {
+                BlockSelector.revalidate(result, affected)
+            }
+        }
+
+        changedBlocks.clear()
+        changedChunks.clear()
+    }
+
+    /**
+     * Forgets the changes collected so far. Called for a new selection, whose analysis reads the blocks as they are.
+     */
+    fun reset() {
+        changedBlocks.clear()
+        changedChunks.clear()
+    }
+}
@@ -0,0 +1,212 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.core.JumpGraph
+import com.ariesninja.skulkpk.client.core.utils.ModStateManager
+import com.ariesninja.skulkpk.client.event.EventListener
+import com.ariesninja.skulkpk.client.event.events.BlockChangeEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkDeltaUpdateEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkLoadEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkUnloadEvent
+import com.ariesninja.skulkpk.client.event.events.PlayerTickEvent
+import com.ariesninja.skulkpk.client.event.handler
+import com.ariesninja.skulkpk.client.utils.entity.CollisionSnapshot
+import com.ariesninja.skulkpk.client.utils.client.mc
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.world.World
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+
+/**
+ * Builds [JumpGraph] partitions for the loaded chunks around the player in the background.
+ * A partition is dropped as soon as a block it read changes, or its chunk unloads, and is rebuilt on a later tick.
+ * Partitions only cover a band of [BAND] blocks above and below the height they were built at, and are all
+ * dropped once the player climbs or falls [BAND_SLACK] blocks away from it.
+ *
+ * Only touched from the client thread, builds run on their own thread against a [WorldSnapshotTracker] snapshot,
+ * and simulate their jump edges against a [CollisionSnapshot] of the same region.
+ */
+object JumpGraphTracker : EventListener {
+
+    // Chunks around the player that get a partition
+    private const val RADIUS = 4
+    // Snapshots are packed on the client thread, so only one build is started per tick
+    private const val MAX_BUILDS_PER_TICK = 1
+    // Blocks above and below the band height a partition covers, like the analyzer's own snapshots
+    private const val BAND = 24
+    private const val BAND_SLACK = 8
+
+    private val buildPool = Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "Skulk Jump Graph").apply { isDaemon = true }
+    }
+
+    private val partitions = Long2ObjectOpenHashMap<JumpGraph.Partition>()
+    private val building = LongOpenHashSet()
+    // Chunks that changed while their build was running, so the build is thrown away
+    private val stale = LongOpenHashSet()
+    private var trackedWorld: World? = null
+    private var bandY = 0
+    private var lastCenter: ChunkPos? = null
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        // Partitions read MAX_JUMP_BLOCKS past their chunk
+        val pos = event.blockPos
+        for (chunkX in ((pos.x - JumpGraph.MAX_JUMP_BLOCKS) shr 4)..((pos.x + JumpGraph.MAX_JUMP_BLOCKS) shr 4)) {
+            for (chunkZ in ((pos.z - JumpGraph.MAX_JUMP_BLOCKS) shr 4)..((pos.z + JumpGraph.MAX_JUMP_BLOCKS) shr 4)) {
+                invalidate(chunkX, chunkZ)
+            }
+        }
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        invalidateAround(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        invalidateAround(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkUnloadHandler = handler<ChunkUnloadEvent> { event ->
+        invalidateAround(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val tickHandler = handler<PlayerTickEvent> {
+        val world = mc.world ?: return@handler
+        val player = mc.player ?: return@handler
+
+        if (world !== trackedWorld) {
+            partitions.clear()
+            building.clear()
+            stale.clear()
+            trackedWorld = world
+            bandY = player.blockY
+            lastCenter = null
+        }
+
+        if (!ModStateManager.isModEnabled()) {
+            return@handler
+        }
+
+        // Partitions of the old band can't answer for the player anymore
+        if (Math.abs(player.blockY - bandY) > BAND_SLACK) {
+            invalidateAll()
+            bandY = player.blockY
+        }
+
+        val center = player.chunkPos
+        if (center != lastCenter) {
+            // Sections no partition or nearby analysis reads again would only pile up
+            WorldSnapshotTracker.retainAround(world, center.x, center.z, RADIUS + 1)
+            lastCenter = center
+        }
+
+        // Forget partitions the player moved away from
+        val iterator = partitions.keys.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.nextLong()
+            if (ChunkPos.getPackedX(key) - center.x !in -RADIUS..RADIUS
+                || ChunkPos.getPackedZ(key) - center.z !in -RADIUS..RADIUS) {
+                iterator.remove()
+            }
+        }
+
+        // Start with the missing chunks closest to the player
+        var started = 0
+        for (ring in 0..RADIUS) {
+            for (dx in -ring..ring) {
+                for (dz in -ring..ring) {
+                    if (maxOf(Math.abs(dx), Math.abs(dz)) != ring) continue
+                    if (started >= MAX_BUILDS_PER_TICK) return@handler
+
+                    if (startBuild(world, player, center.x + dx, center.z + dz)) {
+                        started++
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the partitions built so far for the world, safe to hand to another thread
+     */
+    fun snapshot(world: World): JumpGraph {
+        if (world !== trackedWorld || partitions.isEmpty()) {
+            return JumpGraph.EMPTY
+        }
+        return JumpGraph(partitions)
+    }
+
+    /**
+     * Forgets every partition, so none of a previous connection outlive it. Builds still running are thrown away.
+     */
+    fun reset() {
+        invalidateAll()
+        trackedWorld = null
+        lastCenter = null
+    }
+
+    private fun startBuild(world: World, player: PlayerEntity, chunkX: Int, chunkZ: Int): Boolean {
+        val key = ChunkPos.toLong(chunkX, chunkZ)
+        if (partitions.containsKey(key) || building.contains(key) || !world.isChunkLoaded(chunkX, chunkZ)) {
+            return false
+        }
+
+        val margin = JumpGraph.MAX_JUMP_BLOCKS
+        val minY = maxOf(bandY - BAND, world.bottomY)
+        val maxY = minOf(bandY + BAND, world.bottomY + world.height - 1)
+        val region = BlockBox(
+            (chunkX shl 4) - margin, minY, (chunkZ shl 4) - margin,
+            (chunkX shl 4) + 15 + margin, maxY, (chunkZ shl 4) + 15 + margin
+        )
+        val snapshot = WorldSnapshotTracker.capture(world, region)
+        val check = SimulatedJumpCheck(player, CollisionSnapshot.capture(player, region))
+
+        building.add(key)
+        CompletableFuture.supplyAsync({ JumpGraph.Partition.build(snapshot, chunkX, chunkZ, check) }, buildPool)
+            .whenCompleteAsync({ partition, throwable ->
+                if (world !== trackedWorld) {
+                    return@whenCompleteAsync
+                }
+                building.remove(key)
+                val changed = stale.remove(key)
+
+                if (throwable != null) {
+                    System.err.println("Jump graph build failed for chunk $chunkX, $chunkZ: $throwable")
+                } else if (!changed) {
+                    partitions.put(key, partition)
+                }
+            }, mc)
+
+        return true
+    }
+
+    private fun invalidateAround(chunkX: Int, chunkZ: Int) {
+        // Neighbouring partitions read into this chunk
+        for (dx in -1..1) {
+            for (dz in -1..1) {
+                invalidate(chunkX + dx, chunkZ + dz)
+            }
+        }
+    }
+
+    private fun invalidateAll() {
+        stale.addAll(building)
+        partitions.clear()
+    }
+
+    private fun invalidate(chunkX: Int, chunkZ: Int) {
+        val key = ChunkPos.toLong(chunkX, chunkZ)
+        if (building.contains(key)) {
+            stale.add(key)
+        }
+        partitions.remove(key)
+    }
+}
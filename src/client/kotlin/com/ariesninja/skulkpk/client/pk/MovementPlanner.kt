@@ -0,0 +1,222 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer.SimulatedPlayerInput
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch.Candidate
+import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import net.minecraft.client.network.ClientPlayerEntity
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import kotlin.math.atan2
+import kotlin.math.floor
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+/**
+ * Searches for a sequence of held inputs that carries the player onto a target block, scoring every candidate by
+ * where the simulated player ends up with it.
+ *
+ * A plan is a list of [Segment]s, each holding one [Gait] at one yaw for a few ticks, cut short where the player
+ * lands. The search is a beam search: every node of the beam is extended by every segment, and only the
+ * [BEAM_WIDTH] children closest to the target are kept for the next level. All children of a level are simulated
+ * together by [SimulationBatch], against one snapshot taken when the search starts. The first level that lands on
+ * the target ends the search. It also ends when the time budget runs out, with the best landing found so far, if any.
+ */
+object MovementPlanner {
+
+    // A small share of a tick, the search runs on the tick thread
+    const val DEFAULT_BUDGET_NANOS = 3_000_000L
+
+    private const val BEAM_WIDTH = 6
+    private const val MAX_SEGMENTS = 12
+    private val YAW_OFFSETS = floatArrayOf(-15.0f, 0.0f, 15.0f)
+    private val DURATIONS = intArrayOf(2, 5)
+
+    // Landings that overlap the target by less than this are too close to the edge to count
+    private const val MIN_MARGIN = 0.05
+    // Half the width of the player's collision box
+    private const val HALF_WIDTH = 0.3
+    // Grid positions are snapped to when telling children apart
+    private const val DEDUPE_GRID = 0.05
+    // Score added per tick, so shorter plans win between equally close ones
+    private const val TICK_COST = 0.01
+
+    /**
+     * Keys held during a segment
+     */
+    enum class Gait(val forward: Boolean, val sprint: Boolean, val jump: Boolean, val sneak: Boolean) {
+        SPRINT(true, true, false, false),
+        SPRINT_JUMP(true, true, true, false),
+        WALK(true, false, false, false),
+        SNEAK(true, false, false, true),
+        COAST(false, false, false, false);
+
+        internal val input: SimulatedPlayerInput
+            get() = SimulatedPlayerInput(DirectionalInput(forward, false, false, false), jump, sprint, sneak)
+    }
+
+    class Segment(val yaw: Float, val gait: Gait, val ticks: Int) {
+        override fun toString() = "$gait@${"%.1f".format(yaw)}x$ticks"
+    }
+
+    /**
+     * The path holds the position the plan predicts after each of its ticks, for checking it against the real one
+     */
+    class MovementPlan(
+        val segments: List<Segment>,
+        val ticks: Int,
+        val landingPos: Vec3d,
+        val margin: Double,
+        val path: List<Vec3d>
+    ) {
+        override fun toString() = "MovementPlan(ticks=$ticks, landingPos=$landingPos, margin=$margin, segments=$segments)"
+    }
+
+    private class Node(val player: SimulatedPlayer, val segments: List<Segment>, val ticks: Int, val score: Double)
+
+    private val GROUND_GAITS = arrayOf(Gait.SPRINT, Gait.SPRINT_JUMP, Gait.WALK, Gait.SNEAK)
+    // Jumping and sneaking change nothing useful once airborne
+    private val AIR_GAITS = arrayOf(Gait.SPRINT, Gait.WALK, Gait.COAST)
+
+    @JvmStatic
+    @JvmOverloads
+    fun plan(player: ClientPlayerEntity, target: BlockPos, budgetNanos: Long = DEFAULT_BUDGET_NANOS): MovementPlan? {
+        val start = SimulatedPlayer.fromClientPlayer(Gait.COAST.input)
+        return plan(start, target, budgetNanos)
+    }
+
+    /**
+     * Returns the plan that lands on top of [target] in the fewest ticks among the first level that lands at all,
+     * or null if no plan is found within [MAX_SEGMENTS] segments or the budget. The start player isn't ticked.
+     */
+    @JvmStatic
+    fun plan(start: SimulatedPlayer, target: BlockPos, budgetNanos: Long): MovementPlan? {
+        val deadline = System.nanoTime() + budgetNanos
+        // Once below both the start and the target the player can't get back up
+        val floorY = min(start.pos.y, target.y + 1.0) - 1.0
+        val center = Vec3d.ofCenter(target)
+        val snapshot = SimulationBatch.capture(start, floorY)
+
+        var beam = listOf(Node(start, emptyList(), 0, score(start.pos, center, 0)))
+        var best: Node? = null
+
+        for (level in 0 until MAX_SEGMENTS) {
+            val children = ArrayList<Node>(beam.size * YAW_OFFSETS.size * DURATIONS.size * GROUND_GAITS.size)
+            val seen = LongOpenHashSet()
+
+            for (duration in DURATIONS) {
+                if (System.nanoTime() > deadline) {
+                    return best?.let { toPlan(start, it, target) }
+                }
+
+                val candidates = ArrayList<Candidate>()
+                val parents = ArrayList<Node>()
+                val segments = ArrayList<Segment>()
+                for (node in beam) {
+                    val aim = yawTowards(node.player.pos, center)
+                    for (gait in if (node.player.onGround) GROUND_GAITS else AIR_GAITS) {
+                        for (offset in YAW_OFFSETS) {
+                            val yaw = MathHelper.wrapDegrees(aim + offset)
+                            candidates.add(Candidate(yaw, listOf(gait.input), gait.sprint, node.player))
+                            parents.add(node)
+                            segments.add(Segment(yaw, gait, duration))
+                        }
+                    }
+                }
+
+                val outcomes = SimulationBatch.simulate(start, candidates, duration, floorY, snapshot, true)
+                for (i in outcomes.indices) {
+                    val outcome = outcomes[i]
+                    if (outcome.status == SimulationBatch.Status.FELL) {
+                        continue
+                    }
+                    val child = outcome.player!!
+                    val parent = parents[i]
+                    val ticks = parent.ticks + outcome.ticks
+                    // A segment ends on the tick the player landed, wherever that is
+                    val segment = Segment(segments[i].yaw, segments[i].gait, outcome.ticks)
+
+                    if (child.onGround && isOn(child.pos, target)) {
+                        // Between landings as short, the larger margin wins, kept as a negative score
+                        val landed = Node(child, parent.segments + segment, ticks, -margin(child.pos, target))
+                        if (best == null || ticks < best.ticks || ticks == best.ticks && landed.score < best.score) {
+                            best = landed
+                        }
+                    } else if (seen.add(key(child))) {
+                        children.add(Node(child, parent.segments + segment, ticks, score(child.pos, center, ticks)))
+                    }
+                }
+            }
+
+            if (best != null || children.isEmpty()) {
+                return best?.let { toPlan(start, it, target) }
+            }
+            children.sortBy { it.score }
+            beam = children.subList(0, min(BEAM_WIDTH, children.size))
+        }
+        return best?.let { toPlan(start, it, target) }
+    }
+
+    private fun toPlan(start: SimulatedPlayer, landed: Node, target: BlockPos): MovementPlan {
+        val pos = landed.player.pos
+        return MovementPlan(landed.segments, landed.ticks, pos, margin(pos, target), trace(start, landed.segments))
+    }
+
+    /**
+     * Positions after each tick of holding the segments from the start, stepped the way the game will move the
+     * player, which also stops sprinting on walls
+     */
+    private fun trace(start: SimulatedPlayer, segments: List<Segment>): List<Vec3d> {
+        val player = start.clone()
+        val path = ArrayList<Vec3d>()
+        for (segment in segments) {
+            player.input = segment.gait.input
+            player.yaw = segment.yaw
+            for (tick in 1..segment.ticks) {
+                // The game stops sprinting on a wall, and without the key held
+                player.sprinting = segment.gait.sprint && !player.horizontalCollision
+                player.tick()
+                path.add(player.pos)
+            }
+        }
+        return path
+    }
+
+    private fun isOn(pos: Vec3d, target: BlockPos): Boolean {
+        return pos.y >= target.y + 0.5 && pos.y <= target.y + 1.5 && margin(pos, target) >= MIN_MARGIN
+    }
+
+    /**
+     * Overlap of the player's box with the target block on the tighter horizontal axis
+     */
+    private fun margin(pos: Vec3d, target: BlockPos): Double {
+        val x = min(pos.x + HALF_WIDTH - target.x, target.x + 1.0 - (pos.x - HALF_WIDTH))
+        val z = min(pos.z + HALF_WIDTH - target.z, target.z + 1.0 - (pos.z - HALF_WIDTH))
+        return min(x, z)
+    }
+
+    private fun score(pos: Vec3d, center: Vec3d, ticks: Int): Double {
+        val dx = center.x - pos.x
+        val dz = center.z - pos.z
+        // Being below the top of the target is worth as much as being that far away from it
+        val below = max(0.0, center.y + 0.5 - pos.y)
+        return sqrt(dx * dx + dz * dz) + below + ticks * TICK_COST
+    }
+
+    private fun yawTowards(pos: Vec3d, center: Vec3d): Float {
+        return Math.toDegrees(atan2(-(center.x - pos.x), center.z - pos.z)).toFloat()
+    }
+
+    private fun key(player: SimulatedPlayer): Long {
+        val pos = player.pos
+        val x = floor(pos.x / DEDUPE_GRID).toLong() and 0xFFFFF
+        val y = floor(pos.y / DEDUPE_GRID).toLong() and 0xFFFFF
+        val z = floor(pos.z / DEDUPE_GRID).toLong() and 0xFFFFF
+        val ground = if (player.onGround) 1L else 0L
+        return (x shl 41) or (y shl 21) or (z shl 1) or ground
+    }
+}
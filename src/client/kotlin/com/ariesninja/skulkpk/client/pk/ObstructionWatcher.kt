@@ -0,0 +1,57 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.core.physics.ObstructionProfile
+import com.ariesninja.skulkpk.client.event.EventListener
+import com.ariesninja.skulkpk.client.event.events.BlockChangeEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkDeltaUpdateEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkLoadEvent
+import com.ariesninja.skulkpk.client.event.events.WorldChangeEvent
+import com.ariesninja.skulkpk.client.event.handler
+import java.util.Collections
+import java.util.WeakHashMap
+
+/**
+ * Marks [ObstructionProfile]s stale when a block they were scanned from changes, so the logistics holding them
+ * scan again on their next read. Profiles are held weakly and dropped once stale.
+ *
+ * Only touched from the client thread.
+ */
+object ObstructionWatcher : EventListener {
+
+    private val profiles: MutableSet<ObstructionProfile> = Collections.newSetFromMap(WeakHashMap())
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        val pos = event.blockPos
+        invalidate { it.reads(pos.x, pos.y, pos.z) }
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        invalidate { profile -> event.updates.keys.any { profile.reads(it.x, it.y, it.z) } }
+    }
+
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        invalidate { it.readsChunk(event.x, event.z) }
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        invalidate { true }
+    }
+
+    /**
+     * Watches a freshly scanned profile, and returns it
+     */
+    fun watch(profile: ObstructionProfile): ObstructionProfile {
+        profiles.add(profile)
+        return profile
+    }
+
+    private fun invalidate(affected: (ObstructionProfile) -> Boolean) {
+        profiles.removeIf { profile ->
+            affected(profile).also { if (it) profile.markStale() }
+        }
+    }
+}
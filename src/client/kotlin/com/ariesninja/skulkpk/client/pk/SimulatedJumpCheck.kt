@@ -0,0 +1,130 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.core.JumpGraph
+import com.ariesninja.skulkpk.client.utils.entity.CollisionSnapshot
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer.SimulatedPlayerInput
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch.Candidate
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch.Outcome
+import com.ariesninja.skulkpk.client.utils.entity.SimulationBatch.Status
+import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import kotlin.math.abs
+import kotlin.math.min
+
+/**
+ * Confirms the jump edges of a [JumpGraph] partition with a [SimulationBatch] of sprint jumps, one per landing,
+ * against a [CollisionSnapshot] of the blocks the partition reads.
+ *
+ * Each jump starts at full sprint from the edge of the take-off block closest to the landing, facing the landing,
+ * and counts if it comes down on the landing block. Jumps the snapshot can't finish keep their edge.
+ * Created on the client thread, the player's state is read when the jumps run on the build thread.
+ */
+class SimulatedJumpCheck(
+    private val player: PlayerEntity,
+    private val snapshot: CollisionSnapshot
+) : JumpGraph.JumpCheck {
+
+    companion object {
+        // Longest jump to follow, a jump down to the lowest landing takes about 16 ticks
+        private const val MAX_TICKS = 30
+        // Velocity a player sprinting on the ground carries into the next tick, 0.2806 blocks a tick after friction
+        private const val SPRINT_VELOCITY = 0.2806 * 0.6 * 0.91
+        // How far past the edge of a block the center of a player standing on it may be
+        private const val EDGE_OVERHANG = 0.5 + 0.29
+
+        private val FORWARD = DirectionalInput(true, false, false, false)
+        private val INPUTS = listOf(
+            SimulatedPlayerInput(FORWARD, true, true, false),
+            SimulatedPlayerInput(FORWARD, false, true, false)
+        )
+    }
+
+    override fun retainReachable(from: BlockPos, targets: LongArrayList, start: Int) {
+        val candidates = ArrayList<Candidate>(targets.size - start)
+        var lowest = from.y
+        for (i in start until targets.size) {
+            val target = targets.getLong(i)
+            val yaw = (MathHelper.atan2(
+                BlockPos.unpackLongZ(target) - from.z.toDouble(),
+                BlockPos.unpackLongX(target) - from.x.toDouble()
+            ) * MathHelper.DEGREES_PER_RADIAN).toFloat() - 90.0f
+            candidates.add(Candidate(yaw, INPUTS, true, takeoff(from, target, yaw)))
+            lowest = min(lowest, BlockPos.unpackLongY(target))
+        }
+
+        val outcomes = SimulationBatch.simulate(
+            candidates[0].from!!, candidates, MAX_TICKS, lowest - 1.0, snapshot, live = false
+        )
+
+        var kept = start
+        for (i in outcomes.indices) {
+            val target = targets.getLong(start + i)
+            if (landsOn(outcomes[i], target)) {
+                targets.set(kept++, target)
+            }
+        }
+        targets.size(kept)
+    }
+
+    /**
+     * A sprinting player about to jump off the block, as close to the landing as there is room for
+     */
+    private fun takeoff(from: BlockPos, target: Long, yaw: Float): SimulatedPlayer {
+        val centerX = from.x + 0.5
+        val centerZ = from.z + 0.5
+        val edgeX = MathHelper.clamp(BlockPos.unpackLongX(target) + 0.5, centerX - EDGE_OVERHANG, centerX + EDGE_OVERHANG)
+        val edgeZ = MathHelper.clamp(BlockPos.unpackLongZ(target) + 0.5, centerZ - EDGE_OVERHANG, centerZ + EDGE_OVERHANG)
+
+        // A wall next to the block keeps the player on its side of it
+        val y = from.y.toDouble()
+        val pos = sequenceOf(Vec3d(edgeX, y, edgeZ), Vec3d(edgeX, y, centerZ), Vec3d(centerX, y, edgeZ))
+            .firstOrNull { snapshot.isSpaceEmpty(player, player.dimensions.getBoxAt(it)) }
+            ?: Vec3d(centerX, y, centerZ)
+
+        val f = yaw * MathHelper.RADIANS_PER_DEGREE
+        return SimulatedPlayer(
+            player,
+            INPUTS[0],
+            pos,
+            Vec3d(-MathHelper.sin(f) * SPRINT_VELOCITY, 0.0, MathHelper.cos(f) * SPRINT_VELOCITY),
+            player.dimensions.getBoxAt(pos),
+            yaw,
+            0.0f,
+            true,
+            0.0f,
+            0,
+            true,
+            false,
+            true,
+            false,
+            true,
+            false,
+            false,
+            false,
+            Object2DoubleArrayMap(),
+            HashSet(),
+            snapshot
+        )
+    }
+
+    /**
+     * Whether the jump came down standing on the target block, overhanging its edges at most as far as a player can
+     */
+    private fun landsOn(outcome: Outcome, target: Long): Boolean {
+        if (outcome.status == Status.DETACHED) {
+            return true // Left to the closed-form checks
+        }
+        val y = BlockPos.unpackLongY(target)
+        return outcome.status == Status.LANDED
+                && outcome.pos.y >= y && outcome.pos.y < y + 1
+                && abs(outcome.pos.x - (BlockPos.unpackLongX(target) + 0.5)) < EDGE_OVERHANG
+                && abs(outcome.pos.z - (BlockPos.unpackLongZ(target) + 0.5)) < EDGE_OVERHANG
+    }
+}
@@ -0,0 +1,168 @@
+package com.ariesninja.skulkpk.client.pk
+
+import com.ariesninja.skulkpk.client.core.world.PackedSection
+import com.ariesninja.skulkpk.client.core.world.WalkableColumns
+import com.ariesninja.skulkpk.client.core.world.WorldSnapshot
+import com.ariesninja.skulkpk.client.event.EventListener
+import com.ariesninja.skulkpk.client.event.events.BlockChangeEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkDeltaUpdateEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkLoadEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkUnloadEvent
+import com.ariesninja.skulkpk.client.event.handler
+import com.ariesninja.skulkpk.client.utils.client.mc
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.world.World
+
+/**
+ * Keeps packed copies of the chunk sections the analyzer has looked at, so a [WorldSnapshot]
+ * can be handed out without re-reading the world. Sections are copy-on-write: block updates
+ * replace the affected section, and snapshots that were already taken keep their old copy.
+ *
+ * Only touched from the client thread.
+ */
+object WorldSnapshotTracker : EventListener {
+
+    private val sections = Long2ObjectOpenHashMap<PackedSection>()
+    private val walkableColumns = WalkableColumns()
+    private var trackedWorld: World? = null
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        val world = mc.world ?: return@handler
+        if (world !== trackedWorld) {
+            return@handler
+        }
+
+        val pos = event.blockPos
+        walkableColumns.invalidateColumn(pos.x, pos.z)
+
+        val key = ChunkSectionPos.asLong(pos.x shr 4, pos.y shr 4, pos.z shr 4)
+        val section = sections.get(key) ?: return@handler
+
+        sections.put(key, section.with(world, pos, event.newState))
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        val world = mc.world ?: return@handler
+        if (world !== trackedWorld) {
+            return@handler
+        }
+
+        // A delta update covers a single section, so every block of it patches the same packed copy
+        val first = event.updates.keys.firstOrNull() ?: return@handler
+        for (pos in event.updates.keys) {
+            walkableColumns.invalidateColumn(pos.x, pos.z)
+        }
+
+        val key = ChunkSectionPos.asLong(first.x shr 4, first.y shr 4, first.z shr 4)
+        val section = sections.get(key) ?: return@handler
+        sections.put(key, section.with(world, event.updates))
+    }
+
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        dropColumn(event.x, event.z)
+    }
+
+    @Suppress("unused")
+    private val chunkUnloadHandler = handler<ChunkUnloadEvent> { event ->
+        dropColumn(event.x, event.z)
+    }
+
+    /**
+     * Takes a snapshot covering every section that intersects one of the given regions.
+     * Sections that were packed before are reused, missing ones are packed from the world.
+     */
+    fun capture(world: World, vararg regions: BlockBox): WorldSnapshot {
+        if (world !== trackedWorld) {
+            sections.clear()
+            walkableColumns.clear()
+            trackedWorld = world
+        }
+
+        val captured = Long2ObjectOpenHashMap<PackedSection>()
+
+        for (region in regions) {
+            for (sectionX in (region.minX shr 4)..(region.maxX shr 4)) {
+                for (sectionZ in (region.minZ shr 4)..(region.maxZ shr 4)) {
+                    for (sectionY in (region.minY shr 4)..(region.maxY shr 4)) {
+                        val key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ)
+                        if (captured.containsKey(key)) {
+                            continue
+                        }
+
+                        val section = sections.get(key)
+                            ?: captureSection(world, sectionX, sectionY, sectionZ)?.also { sections.put(key, it) }
+                            ?: continue
+
+                        captured.put(key, section)
+                    }
+                }
+            }
+        }
+
+        return WorldSnapshot(captured, world.bottomY, world.height, walkableColumns)
+    }
+
+    /**
+     * Drops the sections of chunks more than radius chunks away from the center on either axis
+     */
+    fun retainAround(world: World, centerX: Int, centerZ: Int, radius: Int) {
+        if (world !== trackedWorld) {
+            return
+        }
+
+        val iterator = sections.keys.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.nextLong()
+            if (ChunkSectionPos.unpackX(key) - centerX !in -radius..radius
+                || ChunkSectionPos.unpackZ(key) - centerZ !in -radius..radius) {
+                iterator.remove()
+            }
+        }
+    }
+
+    /**
+     * Packs a section from the world, or returns null if its chunk is not loaded or it lies outside the world
+     */
+    private fun captureSection(world: World, sectionX: Int, sectionY: Int, sectionZ: Int): PackedSection? {
+        val index = world.sectionCoordToIndex(sectionY)
+        if (index < 0 || index >= world.countVerticalSections() || !world.isChunkLoaded(sectionX, sectionZ)) {
+            return null
+        }
+
+        val chunk = world.getChunk(sectionX, sectionZ)
+        return PackedSection.capture(
+            world,
+            chunk.sectionArray[index],
+            sectionX,
+            sectionZ,
+            ChunkSectionPos.getBlockCoord(sectionY)
+        )
+    }
+
+    private fun keysInColumn(chunkX: Int, chunkZ: Int): LongArrayList {
+        val keys = LongArrayList()
+        val iterator = sections.keys.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.nextLong()
+            if (ChunkSectionPos.unpackX(key) == chunkX && ChunkSectionPos.unpackZ(key) == chunkZ) {
+                keys.add(key)
+            }
+        }
+        return keys
+    }
+
+    private fun dropColumn(chunkX: Int, chunkZ: Int) {
+        walkableColumns.invalidateChunk(chunkX, chunkZ)
+
+        val keys = keysInColumn(chunkX, chunkZ)
+        for (i in 0 until keys.size) {
+            sections.remove(keys.getLong(i))
+        }
+    }
+}
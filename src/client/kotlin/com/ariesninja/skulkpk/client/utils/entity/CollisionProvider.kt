@@ -0,0 +1,56 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.world.CollisionView
+import net.minecraft.world.World
+
+/**
+ * Blocks, fluids and collisions a [SimulatedPlayer] moves through.
+ * Either the live world, which may only be used on the client thread, or an immutable [CollisionSnapshot].
+ */
+interface CollisionProvider : CollisionView {
+
+    val isClient: Boolean
+
+    fun isChunkLoaded(chunkX: Int, chunkZ: Int): Boolean
+
+    fun isChunkLoaded(pos: BlockPos): Boolean = isChunkLoaded(pos.x shr 4, pos.z shr 4)
+
+    /**
+     * Same as World.isRegionLoaded, for block coordinates
+     */
+    fun isRegionLoaded(minX: Int, minZ: Int, maxX: Int, maxZ: Int): Boolean
+
+    fun containsFluid(box: Box): Boolean
+
+    companion object {
+        @Volatile
+        private var last: WorldCollisionProvider? = null
+
+        /**
+         * Provider reading the world directly
+         */
+        @JvmStatic
+        fun of(world: World): CollisionProvider {
+            val cached = last
+            if (cached != null && cached.world === world) {
+                return cached
+            }
+            return WorldCollisionProvider(world).also { last = it }
+        }
+    }
+}
+
+private class WorldCollisionProvider(val world: World) : CollisionProvider, CollisionView by world {
+
+    override val isClient: Boolean
+        get() = world.isClient
+
+    override fun isChunkLoaded(chunkX: Int, chunkZ: Int) = world.isChunkLoaded(chunkX, chunkZ)
+
+    override fun isRegionLoaded(minX: Int, minZ: Int, maxX: Int, maxZ: Int) =
+        world.isRegionLoaded(minX, minZ, maxX, maxZ)
+
+    override fun containsFluid(box: Box) = world.containsFluid(box)
+}
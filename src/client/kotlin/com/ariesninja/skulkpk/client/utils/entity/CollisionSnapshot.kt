@@ -0,0 +1,399 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.block.ShapeContext
+import net.minecraft.block.entity.BlockEntity
+import net.minecraft.entity.Entity
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.fluid.FluidState
+import net.minecraft.util.function.BooleanBiFunction
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.util.shape.VoxelShapes
+import net.minecraft.world.BlockView
+import net.minecraft.world.border.WorldBorder
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Immutable copy of the block states, collision shapes and collidable entities in a region, taken for one player
+ * so simulations can run against it from any thread.
+ *
+ * Blocks are packed per 16³ section as indices into one palette of (state, shape) pairs, and a section holding a
+ * single pair, like all air, is stored as just that index. Shapes are resolved once at capture with the player's
+ * [ShapeContext], so collision queries hand out the same instances instead of computing them per block.
+ * Positions outside the region read as unloaded air.
+ */
+class CollisionSnapshot private constructor(
+    private val region: BlockBox,
+    private val sections: Array<ShortArray?>,
+    // Entry of the sections that hold a single one
+    private val uniformEntries: ShortArray,
+    private val entryStates: Array<BlockState>,
+    private val entryShapes: Array<VoxelShape>,
+    private val loadedChunks: BooleanArray,
+    internal val entityBoxes: Array<Box>,
+    private val border: WorldBorder,
+    override val isClient: Boolean,
+    private val worldBottomY: Int,
+    private val worldHeight: Int
+) : CollisionProvider {
+
+    private val minChunkX = region.minX shr 4
+    private val minChunkZ = region.minZ shr 4
+    private val minSectionY = region.minY shr 4
+    private val chunkCountX = (region.maxX shr 4) - minChunkX + 1
+    private val chunkCountZ = (region.maxZ shr 4) - minChunkZ + 1
+
+    /**
+     * The captured region, as a box around its blocks
+     */
+    val bounds = boundsOf(region)
+
+    fun getBlockState(x: Int, y: Int, z: Int): BlockState {
+        val entry = entryOf(x, y, z)
+        return if (entry < 0) AIR else entryStates[entry]
+    }
+
+    /**
+     * Returns the collision shape of a block, relative to the block's own corner
+     */
+    fun getCollisionShape(x: Int, y: Int, z: Int): VoxelShape {
+        val entry = entryOf(x, y, z)
+        return if (entry < 0) VoxelShapes.empty() else entryShapes[entry]
+    }
+
+    /**
+     * Whether every block between the corners, inclusive, was captured in a loaded chunk and is air.
+     * Sections holding nothing but air are skipped as a whole.
+     */
+    fun isAllAir(minX: Int, minY: Int, minZ: Int, maxX: Int, maxY: Int, maxZ: Int): Boolean {
+        if (minX < region.minX || minY < region.minY || minZ < region.minZ
+            || maxX > region.maxX || maxY > region.maxY || maxZ > region.maxZ) {
+            return false
+        }
+        for (chunkX in (minX shr 4)..(maxX shr 4)) {
+            for (chunkZ in (minZ shr 4)..(maxZ shr 4)) {
+                if (!isChunkLoaded(chunkX, chunkZ)) {
+                    return false
+                }
+                for (sectionY in (minY shr 4)..(maxY shr 4)) {
+                    val section = (((sectionY - minSectionY) * chunkCountZ + (chunkZ - minChunkZ)) * chunkCountX
+                        + (chunkX - minChunkX))
+                    val blocks = sections[section]
+                    if (blocks == null) {
+                        if (!entryStates[uniformEntries[section].toInt()].isAir) {
+                            return false
+                        }
+                        continue
+                    }
+                    for (y in max(minY, sectionY shl 4)..min(maxY, (sectionY shl 4) + 15)) {
+                        for (z in max(minZ, chunkZ shl 4)..min(maxZ, (chunkZ shl 4) + 15)) {
+                            for (x in max(minX, chunkX shl 4)..min(maxX, (chunkX shl 4) + 15)) {
+                                if (!entryStates[blocks[blockIndex(x, y, z)].toInt()].isAir) {
+                                    return false
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return true
+    }
+
+    override fun isChunkLoaded(chunkX: Int, chunkZ: Int): Boolean {
+        val x = chunkX - minChunkX
+        val z = chunkZ - minChunkZ
+        if (x < 0 || z < 0 || x >= chunkCountX || z >= chunkCountZ) {
+            return false
+        }
+        return loadedChunks[z * chunkCountX + x]
+    }
+
+    override fun isRegionLoaded(minX: Int, minZ: Int, maxX: Int, maxZ: Int): Boolean {
+        for (chunkX in (minX shr 4)..(maxX shr 4)) {
+            for (chunkZ in (minZ shr 4)..(maxZ shr 4)) {
+                if (!isChunkLoaded(chunkX, chunkZ)) {
+                    return false
+                }
+            }
+        }
+        return true
+    }
+
+    override fun getBlockState(pos: BlockPos) = getBlockState(pos.x, pos.y, pos.z)
+
+    override fun getFluidState(pos: BlockPos): FluidState = getBlockState(pos.x, pos.y, pos.z).fluidState
+
+    override fun getBlockEntity(pos: BlockPos): BlockEntity? = null
+
+    override fun getBottomY() = worldBottomY
+
+    override fun getHeight() = worldHeight
+
+    override fun getWorldBorder() = border
+
+    override fun getChunkAsView(chunkX: Int, chunkZ: Int): BlockView? = if (isChunkLoaded(chunkX, chunkZ)) this else null
+
+    /**
+     * EntityView.getEntityCollisions over the captured entities, which were already filtered for the player
+     */
+    override fun getEntityCollisions(entity: Entity?, box: Box): List<VoxelShape> {
+        if (box.averageSideLength < 1.0E-7) {
+            return emptyList()
+        }
+        val expanded = box.expand(1.0E-7)
+        return entityBoxes.filter { it.intersects(expanded) }.map { VoxelShapes.cuboid(it) }
+    }
+
+    /**
+     * BlockCollisionSpliterator over the captured shapes, visiting blocks in the same order
+     */
+    override fun getBlockCollisions(entity: Entity?, box: Box): Iterable<VoxelShape> {
+        val startX = MathHelper.floor(box.minX - 1.0E-7) - 1
+        val endX = MathHelper.floor(box.maxX + 1.0E-7) + 1
+        val startY = MathHelper.floor(box.minY - 1.0E-7) - 1
+        val endY = MathHelper.floor(box.maxY + 1.0E-7) + 1
+        val startZ = MathHelper.floor(box.minZ - 1.0E-7) - 1
+        val endZ = MathHelper.floor(box.maxZ + 1.0E-7) + 1
+
+        val boxShape = VoxelShapes.cuboid(box)
+        val collisions = ArrayList<VoxelShape>()
+        for (z in startZ..endZ) {
+            for (y in startY..endY) {
+                for (x in startX..endX) {
+                    var edges = 0
+                    if (x == startX || x == endX) edges++
+                    if (y == startY || y == endY) edges++
+                    if (z == startZ || z == endZ) edges++
+                    if (edges == 3) continue
+
+                    val entry = entryOf(x, y, z)
+                    if (entry < 0) continue
+                    val state = entryStates[entry]
+                    if (edges == 1 && !state.exceedsCube() || edges == 2 && !state.isOf(Blocks.MOVING_PISTON)) {
+                        continue
+                    }
+
+                    val shape = entryShapes[entry]
+                    if (shape === VoxelShapes.fullCube()) {
+                        if (box.intersects(x.toDouble(), y.toDouble(), z.toDouble(), x + 1.0, y + 1.0, z + 1.0)) {
+                            collisions.add(shape.offset(x.toDouble(), y.toDouble(), z.toDouble()))
+                        }
+                        continue
+                    }
+                    val offset = shape.offset(x.toDouble(), y.toDouble(), z.toDouble())
+                    if (!offset.isEmpty && VoxelShapes.matchesAnywhere(offset, boxShape, BooleanBiFunction.AND)) {
+                        collisions.add(offset)
+                    }
+                }
+            }
+        }
+        return collisions
+    }
+
+    /**
+     * WorldView.containsFluid
+     */
+    override fun containsFluid(box: Box): Boolean {
+        val minX = MathHelper.floor(box.minX)
+        val maxX = MathHelper.ceil(box.maxX)
+        val minY = MathHelper.floor(box.minY)
+        val maxY = MathHelper.ceil(box.maxY)
+        val minZ = MathHelper.floor(box.minZ)
+        val maxZ = MathHelper.ceil(box.maxZ)
+        for (x in minX until maxX) {
+            for (y in minY until maxY) {
+                for (z in minZ until maxZ) {
+                    if (!getBlockState(x, y, z).fluidState.isEmpty) {
+                        return true
+                    }
+                }
+            }
+        }
+        return false
+    }
+
+    /**
+     * Palette entry of a block, or -1 outside the region and in unloaded chunks
+     */
+    private fun entryOf(x: Int, y: Int, z: Int): Int {
+        if (x < region.minX || y < region.minY || z < region.minZ
+            || x > region.maxX || y > region.maxY || z > region.maxZ
+            || !isChunkLoaded(x shr 4, z shr 4)) {
+            return -1
+        }
+        val section = ((((y shr 4) - minSectionY) * chunkCountZ + ((z shr 4) - minChunkZ)) * chunkCountX
+            + ((x shr 4) - minChunkX))
+        val blocks = sections[section] ?: return uniformEntries[section].toInt()
+        return blocks[blockIndex(x, y, z)].toInt()
+    }
+
+    companion object {
+        private val AIR = Blocks.AIR.defaultState
+
+        /**
+         * Copies a region of the player's world. Must be called on the client thread.
+         */
+        fun capture(player: PlayerEntity, region: BlockBox): CollisionSnapshot {
+            val world = player.world
+            return capture(
+                world,
+                ShapeContext.of(player),
+                region,
+                { chunkX, chunkZ -> world.isChunkLoaded(chunkX, chunkZ) },
+                findEntityBoxes(player, boundsOf(region)),
+                WorldBorder().apply { load(world.worldBorder.write()) },
+                world.isClient
+            )
+        }
+
+        /**
+         * Copies a region of any block view, with every chunk loaded and no entities, so simulations can run
+         * without a game
+         */
+        fun capture(view: BlockView, context: ShapeContext, region: BlockBox): CollisionSnapshot {
+            return capture(view, context, region, { _, _ -> true }, emptyArray(), WorldBorder(), true)
+        }
+
+        private fun capture(
+            view: BlockView,
+            context: ShapeContext,
+            region: BlockBox,
+            isChunkLoaded: (Int, Int) -> Boolean,
+            entityBoxes: Array<Box>,
+            border: WorldBorder,
+            isClient: Boolean
+        ): CollisionSnapshot {
+            val minChunkX = region.minX shr 4
+            val minChunkZ = region.minZ shr 4
+            val minSectionY = region.minY shr 4
+            val chunkCountX = (region.maxX shr 4) - minChunkX + 1
+            val chunkCountZ = (region.maxZ shr 4) - minChunkZ + 1
+            val sectionCountY = (region.maxY shr 4) - minSectionY + 1
+            val loadedChunks = BooleanArray(chunkCountX * chunkCountZ) { index ->
+                isChunkLoaded(minChunkX + index % chunkCountX, minChunkZ + index / chunkCountX)
+            }
+
+            val palette = Palette()
+            val sections = arrayOfNulls<ShortArray>(chunkCountX * chunkCountZ * sectionCountY)
+            val uniformEntries = ShortArray(sections.size)
+            val blocks = ShortArray(16 * 16 * 16)
+            val mutable = BlockPos.Mutable()
+
+            var section = 0
+            for (sectionY in minSectionY until minSectionY + sectionCountY) {
+                for (chunkZ in minChunkZ until minChunkZ + chunkCountZ) {
+                    for (chunkX in minChunkX until minChunkX + chunkCountX) {
+                        if (!loadedChunks[(chunkZ - minChunkZ) * chunkCountX + (chunkX - minChunkX)]) {
+                            section++
+                            continue
+                        }
+
+                        // Only the part of the section inside the region is read, the rest is never looked up
+                        var first = -1
+                        var uniform = true
+                        for (y in maxOf(sectionY shl 4, region.minY)..minOf((sectionY shl 4) + 15, region.maxY)) {
+                            for (z in maxOf(chunkZ shl 4, region.minZ)..minOf((chunkZ shl 4) + 15, region.maxZ)) {
+                                for (x in maxOf(chunkX shl 4, region.minX)..minOf((chunkX shl 4) + 15, region.maxX)) {
+                                    mutable.set(x, y, z)
+                                    val state = view.getBlockState(mutable)
+                                    val entry = palette.entryOf(state, state.getCollisionShape(view, mutable, context))
+                                    blocks[blockIndex(x, y, z)] = entry.toShort()
+                                    if (first < 0) {
+                                        first = entry
+                                    } else if (entry != first) {
+                                        uniform = false
+                                    }
+                                }
+                            }
+                        }
+
+                        if (uniform) {
+                            uniformEntries[section] = first.toShort()
+                        } else {
+                            sections[section] = blocks.copyOf()
+                        }
+                        section++
+                    }
+                }
+            }
+
+            return CollisionSnapshot(
+                region,
+                sections,
+                uniformEntries,
+                palette.states.toTypedArray(),
+                palette.shapes.toTypedArray(),
+                loadedChunks,
+                entityBoxes,
+                border,
+                isClient,
+                view.bottomY,
+                view.height
+            )
+        }
+
+        /**
+         * Boxes of the entities in the area the player would collide with
+         */
+        fun findEntityBoxes(player: PlayerEntity, area: Box): Array<Box> {
+            return player.world.getOtherEntities(player, area) { entity ->
+                !entity.isSpectator && player.collidesWith(entity)
+            }.map { it.boundingBox }.toTypedArray()
+        }
+
+        private fun blockIndex(x: Int, y: Int, z: Int) = ((y and 15) shl 8) or ((z and 15) shl 4) or (x and 15)
+
+        private fun boundsOf(region: BlockBox) = Box(
+            region.minX.toDouble(), region.minY.toDouble(), region.minZ.toDouble(),
+            region.maxX + 1.0, region.maxY + 1.0, region.maxZ + 1.0
+        )
+    }
+
+    /**
+     * Numbers (state, shape) pairs as they are first seen, entry 0 is air
+     */
+    private class Palette {
+        val states = ArrayList<BlockState>()
+        val shapes = ArrayList<VoxelShape>()
+        private val stateIds = Reference2IntOpenHashMap<BlockState>().apply { defaultReturnValue(-1) }
+        private val shapeIds = Reference2IntOpenHashMap<VoxelShape>().apply { defaultReturnValue(-1) }
+        private val entries = Long2IntOpenHashMap().apply { defaultReturnValue(-1) }
+
+        init {
+            entryOf(AIR, VoxelShapes.empty())
+        }
+
+        fun entryOf(state: BlockState, shape: VoxelShape): Int {
+            var stateId = stateIds.getInt(state)
+            if (stateId < 0) {
+                stateId = stateIds.size
+                stateIds.put(state, stateId)
+            }
+            var shapeId = shapeIds.getInt(shape)
+            if (shapeId < 0) {
+                shapeId = shapeIds.size
+                shapeIds.put(shape, shapeId)
+            }
+
+            val key = (stateId.toLong() shl 32) or shapeId.toLong()
+            val entry = entries.get(key)
+            if (entry >= 0) {
+                return entry
+            }
+            check(states.size <= Short.MAX_VALUE) { "Too many distinct blocks for a snapshot" }
+            entries.put(key, states.size)
+            states.add(state)
+            shapes.add(shape)
+            return states.size - 1
+        }
+    }
+}
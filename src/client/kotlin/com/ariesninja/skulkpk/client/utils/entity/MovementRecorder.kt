@@ -0,0 +1,223 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import com.ariesninja.skulkpk.client.event.EventListener
+import com.ariesninja.skulkpk.client.event.events.PlayerTickEvent
+import com.ariesninja.skulkpk.client.event.events.WorldChangeEvent
+import com.ariesninja.skulkpk.client.event.handler
+import com.ariesninja.skulkpk.client.utils.client.logger
+import com.ariesninja.skulkpk.client.utils.client.mc
+import com.ariesninja.skulkpk.client.utils.client.player
+import net.minecraft.client.network.ClientPlayerEntity
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+
+/**
+ * Records the real movement of the local player, one [RecordedTick] per tick, into a binary log
+ * that [MovementReplay] can run [SimulatedPlayer] against.
+ *
+ * Ticks are captured on [PlayerTickEvent], before the player moves. At that point the input still holds what the
+ * previous tick moved with, so each recorded tick pairs the state a tick ended in with the input that produced it.
+ */
+object MovementRecorder : EventListener {
+
+    private var output: DataOutputStream? = null
+    var file: Path? = null
+        private set
+    var recordedTicks = 0
+        private set
+
+    val isRecording: Boolean
+        get() = output != null
+
+    @Suppress("unused")
+    private val tickHandler = handler<PlayerTickEvent> {
+        val output = output ?: return@handler
+        try {
+            MovementRecording.write(output, RecordedTick.of(player))
+            recordedTicks++
+        } catch (e: IOException) {
+            logger.error("Failed to record movement to $file", e)
+            stop()
+        }
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        // A recording only makes sense against the world it was made in
+        stop()
+    }
+
+    /**
+     * Starts recording into a new file in the recordings directory and returns it
+     */
+    @Throws(IOException::class)
+    fun start(): Path {
+        stop()
+
+        val directory = recordingsDirectory()
+        Files.createDirectories(directory)
+        val path = directory.resolve(
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + MovementRecording.EXTENSION
+        )
+
+        val stream = DataOutputStream(BufferedOutputStream(Files.newOutputStream(path)))
+        MovementRecording.writeHeader(stream)
+        output = stream
+        file = path
+        recordedTicks = 0
+        return path
+    }
+
+    /**
+     * Stops recording and returns the file that was written, if a recording was running
+     */
+    fun stop(): Path? {
+        val stream = output ?: return null
+        output = null
+        try {
+            stream.close()
+        } catch (e: IOException) {
+            logger.error("Failed to finish movement recording $file", e)
+        }
+        return file
+    }
+
+    fun recordingsDirectory(): Path = mc.runDirectory.toPath().resolve("config").resolve("skulkpk-recordings")
+}
+
+/**
+ * State of the player at the start of a tick, with the input the previous tick moved with
+ */
+class RecordedTick(
+    val x: Double,
+    val y: Double,
+    val z: Double,
+    val velocityX: Double,
+    val velocityY: Double,
+    val velocityZ: Double,
+    val yaw: Float,
+    val pitch: Float,
+    val fallDistance: Float,
+    val jumpingCooldown: Int,
+    val flags: Int
+) {
+
+    fun has(flag: Int) = flags and flag != 0
+
+    companion object {
+        const val FORWARD = 1
+        const val BACKWARD = 1 shl 1
+        const val LEFT = 1 shl 2
+        const val RIGHT = 1 shl 3
+        const val JUMP = 1 shl 4
+        const val SNEAK = 1 shl 5
+        const val SPRINTING = 1 shl 6
+        const val ON_GROUND = 1 shl 7
+        const val HORIZONTAL_COLLISION = 1 shl 8
+        const val VERTICAL_COLLISION = 1 shl 9
+        const val GLIDING = 1 shl 10
+        const val TOUCHING_WATER = 1 shl 11
+        const val SWIMMING = 1 shl 12
+        const val SUBMERGED_IN_WATER = 1 shl 13
+
+        fun of(player: ClientPlayerEntity): RecordedTick {
+            val input = player.input.playerInput
+            var flags = 0
+            if (input.forward) flags = flags or FORWARD
+            if (input.backward) flags = flags or BACKWARD
+            if (input.left) flags = flags or LEFT
+            if (input.right) flags = flags or RIGHT
+            if (input.jump) flags = flags or JUMP
+            if (input.sneak) flags = flags or SNEAK
+            if (player.isSprinting) flags = flags or SPRINTING
+            if (player.isOnGround) flags = flags or ON_GROUND
+            if (player.horizontalCollision) flags = flags or HORIZONTAL_COLLISION
+            if (player.verticalCollision) flags = flags or VERTICAL_COLLISION
+            if (player.isGliding) flags = flags or GLIDING
+            if (player.isTouchingWater) flags = flags or TOUCHING_WATER
+            if (player.isSwimming) flags = flags or SWIMMING
+            if (player.isSubmergedInWater) flags = flags or SUBMERGED_IN_WATER
+
+            return RecordedTick(
+                player.x, player.y, player.z,
+                player.velocity.x, player.velocity.y, player.velocity.z,
+                player.yaw, player.pitch, player.fallDistance,
+                player.jumpingCooldown,
+                flags
+            )
+        }
+    }
+}
+
+/**
+ * Binary log of [RecordedTick]s: a header, then one fixed-size entry per tick until the end of the file
+ */
+object MovementRecording {
+
+    const val EXTENSION = ".skrec"
+
+    private const val MAGIC = 0x534B5243 // SKRC
+    private const val VERSION = 1
+
+    @Throws(IOException::class)
+    fun writeHeader(output: DataOutputStream) {
+        output.writeInt(MAGIC)
+        output.writeShort(VERSION)
+    }
+
+    @Throws(IOException::class)
+    fun write(output: DataOutputStream, tick: RecordedTick) {
+        output.writeDouble(tick.x)
+        output.writeDouble(tick.y)
+        output.writeDouble(tick.z)
+        output.writeDouble(tick.velocityX)
+        output.writeDouble(tick.velocityY)
+        output.writeDouble(tick.velocityZ)
+        output.writeFloat(tick.yaw)
+        output.writeFloat(tick.pitch)
+        output.writeFloat(tick.fallDistance)
+        output.writeByte(tick.jumpingCooldown)
+        output.writeShort(tick.flags)
+    }
+
+    /**
+     * Reads every tick of a log. A tick cut off by the end of the file, as left by a crash, is dropped.
+     */
+    @Throws(IOException::class)
+    fun read(path: Path): List<RecordedTick> {
+        DataInputStream(BufferedInputStream(Files.newInputStream(path))).use { input ->
+            if (input.readInt() != MAGIC) {
+                throw IOException("$path is not a movement recording")
+            }
+            val version = input.readUnsignedShort()
+            if (version != VERSION) {
+                throw IOException("$path has unsupported version $version")
+            }
+
+            val ticks = ArrayList<RecordedTick>()
+            while (true) {
+                try {
+                    ticks.add(
+                        RecordedTick(
+                            input.readDouble(), input.readDouble(), input.readDouble(),
+                            input.readDouble(), input.readDouble(), input.readDouble(),
+                            input.readFloat(), input.readFloat(), input.readFloat(),
+                            input.readUnsignedByte(),
+                            input.readUnsignedShort()
+                        )
+                    )
+                } catch (e: EOFException) {
+                    return ticks
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer.SimulatedPlayerInput
+import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput
+import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.util.math.Vec3d
+import java.io.IOException
+import java.nio.file.Path
+import kotlin.math.sqrt
+
+/**
+ * Runs [SimulatedPlayer] through a [MovementRecorder] log and reports how far each simulated tick lands from the
+ * real one.
+ *
+ * Every tick starts again from the recorded state, so an error shows on the tick that caused it instead of
+ * carrying over into the following ones. Fluid heights and status effects aren't recorded, those are read
+ * from the player the replay runs for.
+ */
+object MovementReplay {
+
+    // Position error above which a tick counts as diverged
+    const val DEFAULT_TOLERANCE = 1.0E-4
+    // Ticks listed in the summary
+    private const val WORST_TICKS = 5
+
+    @JvmStatic
+    @JvmOverloads
+    @Throws(IOException::class)
+    fun run(path: Path, player: PlayerEntity, tolerance: Double = DEFAULT_TOLERANCE): Report {
+        return run(MovementRecording.read(path), player, tolerance)
+    }
+
+    /**
+     * Replays the recorded ticks against the world of the player, which has to be the one they were recorded in
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun run(ticks: List<RecordedTick>, player: PlayerEntity, tolerance: Double = DEFAULT_TOLERANCE): Report {
+        return run(ticks, player, CollisionProvider.of(player.world), tolerance)
+    }
+
+    /**
+     * Replays the recorded ticks against the given blocks, such as a snapshot of a course built without a game.
+     * With [primitive] every tick runs through [PrimitiveSimulatedPlayer] instead of [SimulatedPlayer].
+     */
+    fun run(
+        ticks: List<RecordedTick>,
+        player: PlayerEntity,
+        provider: CollisionProvider,
+        tolerance: Double = DEFAULT_TOLERANCE,
+        primitive: Boolean = false
+    ): Report {
+        val divergences = ArrayList<Divergence>(maxOf(0, ticks.size - 1))
+
+        for (i in 1 until ticks.size) {
+            val from = ticks[i - 1]
+            val to = ticks[i]
+
+            val simulated = simulatedPlayerAt(player, from, to, provider)
+            if (primitive) {
+                val fast = PrimitiveSimulatedPlayer(simulated)
+                fast.tick()
+                fast.writeTo(simulated)
+            } else {
+                simulated.tick()
+            }
+
+            val dx = simulated.pos.x - to.x
+            val dy = simulated.pos.y - to.y
+            val dz = simulated.pos.z - to.z
+            val vx = simulated.velocity.x - to.velocityX
+            val vy = simulated.velocity.y - to.velocityY
+            val vz = simulated.velocity.z - to.velocityZ
+
+            divergences.add(
+                Divergence(
+                    i,
+                    Vec3d(to.x, to.y, to.z),
+                    sqrt(dx * dx + dy * dy + dz * dz),
+                    sqrt(vx * vx + vy * vy + vz * vz),
+                    simulated.onGround != to.has(RecordedTick.ON_GROUND)
+                )
+            )
+        }
+
+        return Report(divergences, tolerance)
+    }
+
+    /**
+     * The player as it was at [from], about to move with the input recorded in [to]
+     */
+    private fun simulatedPlayerAt(
+        player: PlayerEntity,
+        from: RecordedTick,
+        to: RecordedTick,
+        provider: CollisionProvider
+    ): SimulatedPlayer {
+        val input = SimulatedPlayerInput(
+            DirectionalInput(
+                to.has(RecordedTick.FORWARD),
+                to.has(RecordedTick.BACKWARD),
+                to.has(RecordedTick.LEFT),
+                to.has(RecordedTick.RIGHT)
+            ),
+            to.has(RecordedTick.JUMP),
+            to.has(RecordedTick.SPRINTING),
+            to.has(RecordedTick.SNEAK)
+        )
+        val pos = Vec3d(from.x, from.y, from.z)
+
+        return SimulatedPlayer(
+            player,
+            input,
+            pos,
+            Vec3d(from.velocityX, from.velocityY, from.velocityZ),
+            player.dimensions.getBoxAt(pos),
+            from.yaw,
+            from.pitch,
+            // Sprinting is updated before the player moves, so the tick moved with the state recorded after it
+            to.has(RecordedTick.SPRINTING),
+            from.fallDistance,
+            from.jumpingCooldown,
+            to.has(RecordedTick.JUMP),
+            from.has(RecordedTick.GLIDING),
+            from.has(RecordedTick.ON_GROUND),
+            from.has(RecordedTick.HORIZONTAL_COLLISION),
+            from.has(RecordedTick.VERTICAL_COLLISION),
+            from.has(RecordedTick.TOUCHING_WATER),
+            from.has(RecordedTick.SWIMMING),
+            from.has(RecordedTick.SUBMERGED_IN_WATER),
+            Object2DoubleArrayMap(),
+            HashSet(),
+            provider
+        )
+    }
+
+    /**
+     * How one simulated tick compared to the recorded one
+     */
+    class Divergence(
+        val tick: Int,
+        val recordedPos: Vec3d,
+        val positionError: Double,
+        val velocityError: Double,
+        val groundMismatch: Boolean
+    ) {
+        override fun toString(): String {
+            return "tick $tick at $recordedPos: position off by $positionError, velocity off by $velocityError" +
+                if (groundMismatch) ", ground state differs" else ""
+        }
+    }
+
+    class Report(val ticks: List<Divergence>, val tolerance: Double) {
+        val diverged = ticks.filter { it.positionError > tolerance || it.groundMismatch }
+        val maxPositionError = ticks.maxOfOrNull { it.positionError } ?: 0.0
+        val meanPositionError = if (ticks.isEmpty()) 0.0 else ticks.sumOf { it.positionError } / ticks.size
+
+        val isAccurate: Boolean
+            get() = diverged.isEmpty()
+
+        fun summary(): String {
+            val builder = StringBuilder()
+            builder.append("${ticks.size} ticks replayed, ${diverged.size} diverged beyond $tolerance")
+            builder.append(", max position error $maxPositionError, mean $meanPositionError")
+            for (divergence in diverged.sortedByDescending { it.positionError }.take(WORST_TICKS)) {
+                builder.append('\n').append(divergence)
+            }
+            return builder.toString()
+        }
+
+        override fun toString() = summary()
+    }
+}
@@ -12,9 +12,6 @@ import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput
 import net.minecraft.entity.player.PlayerEntity
 import net.minecraft.util.math.Vec3d
 import java.util.concurrent.ConcurrentHashMap
-import java.util.concurrent.locks.ReentrantReadWriteLock
-import kotlin.concurrent.read
-import kotlin.concurrent.write
 
 object PlayerSimulationCache: EventListener {
     private val otherPlayerCache = ConcurrentHashMap<PlayerEntity, SimulatedPlayerCache>()
@@ -95,36 +92,67 @@ object PlayerSimulationCache: EventListener {
     }
 }
 
+/**
+ * Ticks of [simulatedPlayer], simulated on demand and kept in packed arrays.
+ *
+ * Ticks are only ever appended. A writer fills in a tick and then publishes it by raising the volatile length,
+ * so readers never lock: anything below the length they read is complete.
+ */
 class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
-    private var currentSimulationStep = 0
-    private val simulationSteps = ArrayList<SimulatedPlayerSnapshot>().apply {
-        add(SimulatedPlayerSnapshot(simulatedPlayer))
+    private val writeLock = Any()
+
+    @Volatile
+    private var buffer = TrajectoryBuffer(INITIAL_CAPACITY)
+    @Volatile
+    private var length = 0
+
+    init {
+        append(simulatedPlayer)
     }
-    private val lock = ReentrantReadWriteLock()
 
     fun simulateUntil(ticks: Int) {
         check(ticks >= 0) { "ticks may not be negative" }
 
-        if (currentSimulationStep >= ticks) {
+        if (length > ticks) {
             return
         }
 
-        lock.write {
-            while (currentSimulationStep < ticks) {
+        synchronized(writeLock) {
+            while (length <= ticks) {
                 simulatedPlayer.tick()
-                simulationSteps.add(SimulatedPlayerSnapshot(simulatedPlayer))
-
-                this.currentSimulationStep++
+                append(simulatedPlayer)
             }
         }
     }
 
     fun getSnapshotAt(ticks: Int): SimulatedPlayerSnapshot {
         simulateUntil(ticks)
+        return buffer.snapshotAt(ticks)
+    }
+
+    fun getX(ticks: Int): Double {
+        simulateUntil(ticks)
+        return buffer.x[ticks]
+    }
 
-        lock.read {
-            return simulationSteps[ticks]
-        }
+    fun getY(ticks: Int): Double {
+        simulateUntil(ticks)
+        return buffer.y[ticks]
+    }
+
+    fun getZ(ticks: Int): Double {
+        simulateUntil(ticks)
+        return buffer.z[ticks]
+    }
+
+    fun isOnGround(ticks: Int): Boolean {
+        simulateUntil(ticks)
+        return buffer.onGround.get(ticks)
+    }
+
+    fun isClipLedged(ticks: Int): Boolean {
+        simulateUntil(ticks)
+        return buffer.clipLedged.get(ticks)
     }
 
     fun simulate() = sequence<SimulatedPlayerSnapshot> {
@@ -142,9 +170,8 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
 
         simulateUntil(tickRange.last + 1)
 
-        return lock.read {
-            ArrayList(simulationSteps.subList(tickRange.first, tickRange.last + 1))
-        }
+        val buffer = buffer
+        return tickRange.map { buffer.snapshotAt(it) }
     }
 
     fun simulateBetween(tickRange: IntRange): Sequence<SimulatedPlayerSnapshot> {
@@ -159,6 +186,91 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
         }
     }
 
+    /**
+     * Writes the player's state as the next tick. Only called by the writer, before publishing the tick.
+     */
+    private fun append(player: SimulatedPlayer) {
+        val index = length
+        var target = buffer
+        if (index == target.capacity) {
+            // Readers holding the old buffer still find every published tick in it
+            target = target.grow(index * 2)
+            buffer = target
+        }
+        target.set(index, player)
+        length = index + 1
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 32
+    }
+}
+
+/**
+ * Per-tick state as one array per field, with the flags packed as bits
+ */
+private class TrajectoryBuffer(val capacity: Int) {
+    val x = DoubleArray(capacity)
+    val y = DoubleArray(capacity)
+    val z = DoubleArray(capacity)
+    val velocityX = DoubleArray(capacity)
+    val velocityY = DoubleArray(capacity)
+    val velocityZ = DoubleArray(capacity)
+    val fallDistance = FloatArray(capacity)
+    val onGround = PackedBits(capacity)
+    val clipLedged = PackedBits(capacity)
+
+    fun set(index: Int, player: SimulatedPlayer) {
+        x[index] = player.pos.x
+        y[index] = player.pos.y
+        z[index] = player.pos.z
+        velocityX[index] = player.velocity.x
+        velocityY[index] = player.velocity.y
+        velocityZ[index] = player.velocity.z
+        fallDistance[index] = player.fallDistance
+        onGround.set(index, player.onGround)
+        clipLedged.set(index, player.clipLedged)
+    }
+
+    fun snapshotAt(index: Int) = SimulatedPlayerSnapshot(
+        Vec3d(x[index], y[index], z[index]),
+        fallDistance[index],
+        Vec3d(velocityX[index], velocityY[index], velocityZ[index]),
+        onGround.get(index),
+        clipLedged.get(index)
+    )
+
+    fun grow(newCapacity: Int): TrajectoryBuffer {
+        val grown = TrajectoryBuffer(newCapacity)
+        System.arraycopy(x, 0, grown.x, 0, capacity)
+        System.arraycopy(y, 0, grown.y, 0, capacity)
+        System.arraycopy(z, 0, grown.z, 0, capacity)
+        System.arraycopy(velocityX, 0, grown.velocityX, 0, capacity)
+        System.arraycopy(velocityY, 0, grown.velocityY, 0, capacity)
+        System.arraycopy(velocityZ, 0, grown.velocityZ, 0, capacity)
+        System.arraycopy(fallDistance, 0, grown.fallDistance, 0, capacity)
+        onGround.copyInto(grown.onGround)
+        clipLedged.copyInto(grown.clipLedged)
+        return grown
+    }
+}
+
+/**
+ * Fixed-size bit set. Unlike java.util.BitSet it never reallocates, so a reader can't catch it mid-resize.
+ */
+private class PackedBits(size: Int) {
+    private val words = LongArray((size + 63) ushr 6)
+
+    fun get(index: Int) = words[index ushr 6] and (1L shl index) != 0L
+
+    fun set(index: Int, value: Boolean) {
+        val word = index ushr 6
+        words[word] = if (value) words[word] or (1L shl index) else words[word] and (1L shl index).inv()
+    }
+
+    fun copyInto(target: PackedBits) {
+        System.arraycopy(words, 0, target.words, 0, words.size)
+    }
 }
 
 data class SimulatedPlayerSnapshot(
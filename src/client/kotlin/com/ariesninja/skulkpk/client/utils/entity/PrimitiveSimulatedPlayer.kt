@@ -0,0 +1,1193 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import com.ariesninja.skulkpk.client.event.EventManager
+import com.ariesninja.skulkpk.client.event.events.PlayerMoveEvent
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.block.ShapeContext
+import net.minecraft.block.TrapdoorBlock
+import net.minecraft.entity.MovementType
+import net.minecraft.entity.effect.StatusEffect
+import net.minecraft.entity.effect.StatusEffects
+import net.minecraft.registry.entry.RegistryEntry
+import net.minecraft.registry.tag.BlockTags
+import net.minecraft.registry.tag.FluidTags
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.Direction
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.util.shape.VoxelShapes
+import net.minecraft.world.BlockView
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.math.abs
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+private const val STEP_HEIGHT = 0.5
+
+/**
+ * [SimulatedPlayer] with its state kept in primitive fields, for loops that tick a player hundreds of times.
+ *
+ * Walking and jumping run the same arithmetic as [SimulatedPlayer] in the same order, so positions and velocities
+ * come out bit-identical, but without allocating: block collisions are swept here the way vanilla's
+ * BlockCollisionSpliterator and VoxelShape.calculateMaxDistance do it, on reused buffers.
+ * Ticks this path doesn't cover (fluids, climbing, powder snow, gliding, flying, vehicles, slow falling,
+ * levitation, the world border and entity collisions) are handed to the wrapped [SimulatedPlayer].
+ *
+ * Blocks are read from the reference's [SimulatedPlayer.collisionProvider]. When that is a [CollisionSnapshot],
+ * [tickDetached] may run on any thread, as long as the player stays inside the snapshot.
+ * The player's own state is read once, when the instance is created.
+ *
+ * Not thread-safe, one instance per simulation.
+ */
+class PrimitiveSimulatedPlayer(private val reference: SimulatedPlayer) {
+
+    private val player = reference.player
+    private val world = reference.collisionProvider
+    private val snapshot = world as? CollisionSnapshot
+
+    var input = reference.input
+
+    var x = reference.pos.x
+        private set
+    var y = reference.pos.y
+        private set
+    var z = reference.pos.z
+        private set
+    var velocityX = reference.velocity.x
+        private set
+    var velocityY = reference.velocity.y
+        private set
+    var velocityZ = reference.velocity.z
+        private set
+
+    // SimulatedPlayer.boundingBox
+    private var boxMinX = reference.boundingBox.minX
+    private var boxMinY = reference.boundingBox.minY
+    private var boxMinZ = reference.boundingBox.minZ
+    private var boxMaxX = reference.boundingBox.maxX
+    private var boxMaxY = reference.boundingBox.maxY
+    private var boxMaxZ = reference.boundingBox.maxZ
+
+    var yaw = reference.yaw
+    var pitch = reference.pitch
+    private var sprinting = reference.sprinting
+
+    var fallDistance = reference.fallDistance
+        private set
+    private var jumpingCooldown = reference.jumpingCooldown
+    private var isJumping = reference.isJumping
+    private var isFallFlying = reference.isFallFlying
+    var onGround = reference.onGround
+        private set
+    var horizontalCollision = reference.horizontalCollision
+        private set
+    private var verticalCollision = reference.verticalCollision
+
+    private var touchingWater = reference.touchingWater
+    private var isSwimming = reference.isSwimming
+    private var submergedInWater = reference.submergedInWater
+    // Shared with the reference, which only updates them on delegated ticks
+    private val fluidHeight = reference.fluidHeight
+    private val submergedFluidTag = reference.submergedFluidTag
+
+    var clipLedged = false
+        private set
+
+    private val blockPos = BlockPos.Mutable()
+    private val velocityAffectingPos = BlockPos.Mutable()
+
+    // Result of the last collide call
+    private var outX = 0.0
+    private var outY = 0.0
+    private var outZ = 0.0
+
+    // Box passed to maxOffset, indexed by axis ordinal
+    private val queryMin = DoubleArray(3)
+    private val queryMax = DoubleArray(3)
+
+    // Collision shapes found by the last collect call, with the block each one sits in
+    private var collisionGrids = arrayOfNulls<ShapeGrid>(32)
+    private var collisionOrigins = IntArray(32 * 3)
+    private var collisionCount = 0
+
+    // Area last found free of blocks this class can't simulate
+    private var plainMinX = Int.MAX_VALUE
+    private var plainMinY = Int.MAX_VALUE
+    private var plainMinZ = Int.MAX_VALUE
+    private var plainMaxX = Int.MIN_VALUE
+    private var plainMaxY = Int.MIN_VALUE
+    private var plainMaxZ = Int.MIN_VALUE
+
+    // Region the player can reach this tick, see needsReference
+    private var reachMinX = 0.0
+    private var reachMinY = 0.0
+    private var reachMinZ = 0.0
+    private var reachMaxX = 0.0
+    private var reachMaxY = 0.0
+    private var reachMaxZ = 0.0
+
+    // Whether the last tick needsReference turned down can't be run against the snapshot either
+    private var needsLiveWorld = false
+
+    // Entities don't move while a simulation runs, so the collidable ones around the start are looked up once
+    private val entityScan = snapshot?.bounds ?: Box(x, y, z, x, y, z).expand(ENTITY_SCAN_RADIUS)
+    private val entityBoxes = snapshot?.entityBoxes ?: CollisionSnapshot.findEntityBoxes(player, entityScan)
+
+    // What the ticks read from the player, which doesn't change while a simulation runs
+    private val shapeContext = ShapeContext.of(player)
+    private val riding = player.hasVehicle()
+    private val flying = player.abilities.flying
+    private val floating = hasStatusEffect(StatusEffects.SLOW_FALLING) || hasStatusEffect(StatusEffects.LEVITATION)
+    private val jumpBoost = getJumpBoostVelocityModifier()
+    private val stepHeight = player.stepHeight
+    private val halfWidth = player.dimensions.width() / 2.0f
+    private val height = player.dimensions.height()
+    private val noGravity = player.hasNoGravity()
+    private val noDrag = player.hasNoDrag()
+    private val borderDistance = world.worldBorder.getDistanceInsideBorder(player)
+    private val clientWorld = world.isClient
+    private val bottomY = world.bottomY
+    private val moveEventHandled = EventManager.hasHandlers(PlayerMoveEvent::class.java)
+
+    /**
+     * Current position. Allocates, so keep it out of tick loops.
+     */
+    val pos: Vec3d
+        get() = Vec3d(x, y, z)
+
+    /**
+     * Same as pos.distanceTo(target), without allocating
+     */
+    fun distanceTo(target: Vec3d): Double {
+        val d = target.x - x
+        val e = target.y - y
+        val f = target.z - z
+        return sqrt(d * d + e * e + f * f)
+    }
+
+    fun tick() {
+        if (!tickPrimitive()) {
+            check(!needsLiveWorld) { "Tick leaves the snapshot it runs on" }
+            tickReference()
+        }
+    }
+
+    /**
+     * Ticks without touching the live world, through the reference against the snapshot if needed.
+     * Returns false, with the state left as it was, if this tick can only run on the client thread.
+     */
+    fun tickDetached(): Boolean {
+        if (tickPrimitive()) {
+            return true
+        }
+        if (snapshot == null || needsLiveWorld) {
+            return false
+        }
+        tickReference()
+        return true
+    }
+
+    /**
+     * Ticks without the reference simulator. Returns false, with the state left as it was,
+     * if this tick needs a path only the reference has.
+     */
+    fun tickPrimitive(): Boolean {
+        clipLedged = false
+
+        // ignore because world limit it -65
+        if (y <= -70) {
+            return true
+        }
+
+        if (needsReference()) {
+            return false
+        }
+
+        input.update()
+
+        // No fluid is in reach, so checkWaterState, updateSubmergedInWaterState and updateSwimming settle on dry land
+        checkWaterState()
+        submergedInWater = submergedFluidTag.contains(FluidTags.WATER)
+        submergedFluidTag.clear()
+        isSwimming = false
+
+        // LivingEntity.tickMovement()
+        if (jumpingCooldown > 0) {
+            jumpingCooldown--
+        }
+
+        isJumping = input.playerInput.jump
+
+        if (abs(velocityX) < 0.003) {
+            velocityX = 0.0
+        }
+        if (abs(velocityY) < 0.003) {
+            velocityY = 0.0
+        }
+        if (abs(velocityZ) < 0.003) {
+            velocityZ = 0.0
+        }
+        if (onGround) {
+            isFallFlying = false
+        }
+
+        if (isJumping && onGround && jumpingCooldown == 0) {
+            jump()
+            jumpingCooldown = 10
+        }
+
+        val sidewaysSpeed = input.movementSideways * 0.98
+        val forwardSpeed = input.movementForward * 0.98
+        val upwardsSpeed = 0.0
+
+        travel(sidewaysSpeed, upwardsSpeed, forwardSpeed)
+        return true
+    }
+
+    fun jump() {
+        velocityX += 0.0
+        velocityY += getJumpVelocity().toDouble() - velocityY
+        velocityZ += 0.0
+
+        if (sprinting) {
+            val f = yaw / 180.0F * Math.PI.toFloat()
+
+            velocityX += (-MathHelper.sin(f) * 0.2f).toDouble()
+            velocityY += 0.0
+            velocityZ += (MathHelper.cos(f) * 0.2f).toDouble()
+        }
+    }
+
+    /**
+     * Copies the state back into the wrapped [SimulatedPlayer]
+     */
+    fun writeTo(target: SimulatedPlayer) {
+        target.input = input
+        target.pos = Vec3d(x, y, z)
+        target.velocity = Vec3d(velocityX, velocityY, velocityZ)
+        target.boundingBox = Box(boxMinX, boxMinY, boxMinZ, boxMaxX, boxMaxY, boxMaxZ)
+        target.yaw = yaw
+        target.pitch = pitch
+        target.sprinting = sprinting
+        target.fallDistance = fallDistance
+        target.jumpingCooldown = jumpingCooldown
+        target.isJumping = isJumping
+        target.isFallFlying = isFallFlying
+        target.onGround = onGround
+        target.horizontalCollision = horizontalCollision
+        target.verticalCollision = verticalCollision
+        target.touchingWater = touchingWater
+        target.isSwimming = isSwimming
+        target.submergedInWater = submergedInWater
+        target.clipLedged = clipLedged
+    }
+
+    /**
+     * Takes over the state of one candidate of a [SimulationBatch]
+     */
+    internal fun load(states: SimulationStates, index: Int) {
+        x = states.x[index]
+        y = states.y[index]
+        z = states.z[index]
+        velocityX = states.velocityX[index]
+        velocityY = states.velocityY[index]
+        velocityZ = states.velocityZ[index]
+        boxMinX = states.boxMinX[index]
+        boxMinY = states.boxMinY[index]
+        boxMinZ = states.boxMinZ[index]
+        boxMaxX = states.boxMaxX[index]
+        boxMaxY = states.boxMaxY[index]
+        boxMaxZ = states.boxMaxZ[index]
+        yaw = states.yaw[index]
+        fallDistance = states.fallDistance[index]
+        jumpingCooldown = states.jumpingCooldown[index]
+
+        val flags = states.flags[index]
+        sprinting = flags and SimulationStates.SPRINTING != 0
+        isJumping = flags and SimulationStates.JUMPING != 0
+        isFallFlying = flags and SimulationStates.FALL_FLYING != 0
+        onGround = flags and SimulationStates.ON_GROUND != 0
+        horizontalCollision = flags and SimulationStates.HORIZONTAL_COLLISION != 0
+        verticalCollision = flags and SimulationStates.VERTICAL_COLLISION != 0
+        touchingWater = flags and SimulationStates.TOUCHING_WATER != 0
+        isSwimming = flags and SimulationStates.SWIMMING != 0
+        submergedInWater = flags and SimulationStates.SUBMERGED_IN_WATER != 0
+        clipLedged = flags and SimulationStates.CLIP_LEDGED != 0
+
+        // Written into the maps shared with the reference, which reads them on delegated ticks
+        fluidHeight.put(FluidTags.WATER, states.waterHeight[index])
+        fluidHeight.put(FluidTags.LAVA, states.lavaHeight[index])
+        submergedFluidTag.clear()
+        if (flags and SimulationStates.SUBMERGED_WATER_TAG != 0) submergedFluidTag.add(FluidTags.WATER)
+        if (flags and SimulationStates.SUBMERGED_LAVA_TAG != 0) submergedFluidTag.add(FluidTags.LAVA)
+    }
+
+    /**
+     * Writes the state back into one candidate of a [SimulationBatch]
+     */
+    internal fun store(states: SimulationStates, index: Int) {
+        states.x[index] = x
+        states.y[index] = y
+        states.z[index] = z
+        states.velocityX[index] = velocityX
+        states.velocityY[index] = velocityY
+        states.velocityZ[index] = velocityZ
+        states.boxMinX[index] = boxMinX
+        states.boxMinY[index] = boxMinY
+        states.boxMinZ[index] = boxMinZ
+        states.boxMaxX[index] = boxMaxX
+        states.boxMaxY[index] = boxMaxY
+        states.boxMaxZ[index] = boxMaxZ
+        states.yaw[index] = yaw
+        states.fallDistance[index] = fallDistance
+        states.jumpingCooldown[index] = jumpingCooldown
+
+        var flags = 0
+        if (sprinting) flags = flags or SimulationStates.SPRINTING
+        if (isJumping) flags = flags or SimulationStates.JUMPING
+        if (isFallFlying) flags = flags or SimulationStates.FALL_FLYING
+        if (onGround) flags = flags or SimulationStates.ON_GROUND
+        if (horizontalCollision) flags = flags or SimulationStates.HORIZONTAL_COLLISION
+        if (verticalCollision) flags = flags or SimulationStates.VERTICAL_COLLISION
+        if (touchingWater) flags = flags or SimulationStates.TOUCHING_WATER
+        if (isSwimming) flags = flags or SimulationStates.SWIMMING
+        if (submergedInWater) flags = flags or SimulationStates.SUBMERGED_IN_WATER
+        if (clipLedged) flags = flags or SimulationStates.CLIP_LEDGED
+        if (submergedFluidTag.contains(FluidTags.WATER)) flags = flags or SimulationStates.SUBMERGED_WATER_TAG
+        if (submergedFluidTag.contains(FluidTags.LAVA)) flags = flags or SimulationStates.SUBMERGED_LAVA_TAG
+        states.flags[index] = flags
+        states.waterHeight[index] = fluidHeight.getDouble(FluidTags.WATER)
+        states.lavaHeight[index] = fluidHeight.getDouble(FluidTags.LAVA)
+    }
+
+    /**
+     * Skips ticks of free fall in closed form, see [SimulatedPlayer.fastForward], as long as the player stays in
+     * the air of the snapshot and above [floorY], up to [maxTicks]. Returns the number of ticks skipped.
+     */
+    fun skipFreeFall(maxTicks: Int, floorY: Double): Int {
+        if (onGround || snapshot == null) {
+            return 0
+        }
+        writeTo(reference)
+        val skipped = reference.skipFreeFall(maxTicks, floorY)
+        if (skipped > 0) {
+            readReference()
+        }
+        return skipped
+    }
+
+    private fun tickReference() {
+        writeTo(reference)
+        reference.tick()
+        readReference()
+    }
+
+    private fun readReference() {
+        x = reference.pos.x
+        y = reference.pos.y
+        z = reference.pos.z
+        velocityX = reference.velocity.x
+        velocityY = reference.velocity.y
+        velocityZ = reference.velocity.z
+        boxMinX = reference.boundingBox.minX
+        boxMinY = reference.boundingBox.minY
+        boxMinZ = reference.boundingBox.minZ
+        boxMaxX = reference.boundingBox.maxX
+        boxMaxY = reference.boundingBox.maxY
+        boxMaxZ = reference.boundingBox.maxZ
+        fallDistance = reference.fallDistance
+        jumpingCooldown = reference.jumpingCooldown
+        isJumping = reference.isJumping
+        isFallFlying = reference.isFallFlying
+        onGround = reference.onGround
+        horizontalCollision = reference.horizontalCollision
+        verticalCollision = reference.verticalCollision
+        touchingWater = reference.touchingWater
+        isSwimming = reference.isSwimming
+        submergedInWater = reference.submergedInWater
+        clipLedged = reference.clipLedged
+    }
+
+    /**
+     * Whether this tick may take a path of [SimulatedPlayer.tick] that isn't mirrored here
+     */
+    private fun needsReference(): Boolean {
+        // Everything this tick reads lies within its movement, a jump, a step up and the ledge check below the box
+        val reach = max(abs(velocityX), max(abs(velocityY), abs(velocityZ))) + REACH_MARGIN + jumpBoost
+        reachMinX = boxMinX - reach
+        reachMinY = boxMinY - reach
+        reachMinZ = boxMinZ - reach
+        reachMaxX = boxMaxX + reach
+        reachMaxY = boxMaxY + reach
+        reachMaxZ = boxMaxZ + reach
+
+        val outsideScan = reachMinX < entityScan.minX || reachMinY < entityScan.minY || reachMinZ < entityScan.minZ
+            || reachMaxX > entityScan.maxX || reachMaxY > entityScan.maxY || reachMaxZ > entityScan.maxZ
+        // Move handlers would run off the client thread, and past its bounds a snapshot reads as air
+        needsLiveWorld = snapshot != null && (moveEventHandled || outsideScan)
+        if (needsLiveWorld || outsideScan) {
+            return true
+        }
+
+        if (riding || flying || floating) {
+            return true
+        }
+        if (isFallFlying && !onGround || isInLava()) {
+            return true
+        }
+        if (borderDistance < 2.0 * (reach + 1.0)) {
+            return true
+        }
+        for (i in entityBoxes.indices) {
+            if (entityBoxes[i].intersects(reachMinX, reachMinY, reachMinZ, reachMaxX, reachMaxY, reachMaxZ)) {
+                return true
+            }
+        }
+
+        return !isReachPlain()
+    }
+
+    /**
+     * Whether the reach of this tick holds only blocks walking and jumping handle
+     */
+    private fun isReachPlain(): Boolean {
+        val minX = MathHelper.floor(reachMinX)
+        val minY = MathHelper.floor(reachMinY)
+        val minZ = MathHelper.floor(reachMinZ)
+        val maxX = MathHelper.floor(reachMaxX)
+        val maxY = MathHelper.floor(reachMaxY)
+        val maxZ = MathHelper.floor(reachMaxZ)
+
+        if (minX >= plainMinX && minY >= plainMinY && minZ >= plainMinZ
+            && maxX <= plainMaxX && maxY <= plainMaxY && maxZ <= plainMaxZ) {
+            return true
+        }
+
+        // Check ahead, so the next ticks land in an area that is already known to be plain
+        val margin = PLAIN_SCAN_MARGIN
+        return isAreaPlain(minX - margin, minY - margin, minZ - margin, maxX + margin, maxY + margin, maxZ + margin)
+            || isAreaPlain(minX, minY, minZ, maxX, maxY, maxZ)
+    }
+
+    private fun isAreaPlain(minX: Int, minY: Int, minZ: Int, maxX: Int, maxY: Int, maxZ: Int): Boolean {
+        for (blockX in minX..maxX) {
+            for (blockZ in minZ..maxZ) {
+                for (blockY in minY..maxY) {
+                    blockPos.set(blockX, blockY, blockZ)
+                    if (!isPlain(getBlockState(blockPos))) {
+                        return false
+                    }
+                }
+            }
+        }
+
+        plainMinX = minX
+        plainMinY = minY
+        plainMinZ = minZ
+        plainMaxX = maxX
+        plainMaxY = maxY
+        plainMaxZ = maxZ
+        return true
+    }
+
+    private fun isPlain(state: BlockState): Boolean {
+        return state.fluidState.isEmpty
+            && !state.isIn(BlockTags.CLIMBABLE)
+            && state.block !is TrapdoorBlock
+            && !state.isOf(Blocks.POWDER_SNOW)
+    }
+
+    private fun travel(sideways: Double, upwards: Double, forward: Double) {
+        // Land and air movement only, the other branches are left to the reference
+        velocityAffectingPos.set(
+            MathHelper.floor(x), MathHelper.floor(boxMinY - 0.5000001), MathHelper.floor(z)
+        )
+        val p: Float = getBlockState(velocityAffectingPos).block.slipperiness
+        val f = if (onGround) p * 0.91f else 0.91f
+        applyMovementInput(sideways, upwards, forward, p)
+
+        var q = velocityY
+        if (clientWorld && !world.isChunkLoaded(velocityAffectingPos)) {
+            q = if (y > bottomY.toDouble()) {
+                -0.1
+            } else {
+                0.0
+            }
+        } else if (!noGravity) {
+            q -= 0.08
+        }
+
+        if (noDrag) {
+            velocityY = q
+        } else {
+            velocityX *= f.toDouble()
+            velocityY = q * 0.9800000190734863
+            velocityZ *= f.toDouble()
+        }
+    }
+
+    private fun applyMovementInput(sideways: Double, upwards: Double, forward: Double, slipperiness: Float) {
+        updateVelocity(getMovementSpeed(slipperiness), sideways, upwards, forward)
+        move(velocityX, velocityY, velocityZ)
+    }
+
+    /**
+     * Entity.movementInputToVelocity added to the velocity
+     */
+    private fun updateVelocity(speed: Float, inputX: Double, inputY: Double, inputZ: Double) {
+        val lengthSquared = inputX * inputX + inputY * inputY + inputZ * inputZ
+        if (lengthSquared < 1.0E-7) {
+            velocityX += 0.0
+            velocityY += 0.0
+            velocityZ += 0.0
+            return
+        }
+
+        var movementX = inputX
+        var movementY = inputY
+        var movementZ = inputZ
+        if (lengthSquared > 1.0) {
+            val length = sqrt(inputX * inputX + inputY * inputY + inputZ * inputZ)
+            movementX = inputX / length
+            movementY = inputY / length
+            movementZ = inputZ / length
+        }
+        movementX *= speed.toDouble()
+        movementY *= speed.toDouble()
+        movementZ *= speed.toDouble()
+
+        val f = MathHelper.sin(yaw * RADIANS_PER_DEGREE)
+        val g = MathHelper.cos(yaw * RADIANS_PER_DEGREE)
+        velocityX += movementX * g.toDouble() - movementZ * f.toDouble()
+        velocityY += movementY
+        velocityZ += movementZ * g.toDouble() + movementX * f.toDouble()
+    }
+
+    private fun getMovementSpeed(slipperiness: Float): Float {
+        return if (onGround) {
+            0.10000000149011612.toFloat() * (0.21600002f / (slipperiness * slipperiness * slipperiness))
+        } else if (input.sprinting) {
+            (0.02f + 0.005999999865889549).toFloat()
+        } else {
+            0.02f
+        }
+    }
+
+    private fun move(inputX: Double, inputY: Double, inputZ: Double) {
+        var movementX = inputX
+        var movementY = inputY
+        var movementZ = inputZ
+
+        if (moveEventHandled) {
+            val movement = EventManager.callEvent(
+                PlayerMoveEvent(MovementType.SELF, Vec3d(movementX, movementY, movementZ))
+            ).movement
+            movementX = movement.x
+            movementY = movement.y
+            movementZ = movement.z
+        }
+
+        // adjustMovementForSneaking
+        if (movementY <= 0.0 && isNearGround()) {
+            var d = movementX
+            var e = movementZ
+            while (d != 0.0 && isSpaceEmpty(
+                    boxMinX + d, boxMinY + -STEP_HEIGHT, boxMinZ + 0.0,
+                    boxMaxX + d, boxMaxY + -STEP_HEIGHT, boxMaxZ + 0.0
+                )
+            ) {
+                d = stepTowardsZero(d)
+            }
+            while (e != 0.0 && isSpaceEmpty(
+                    boxMinX + 0.0, boxMinY + -STEP_HEIGHT, boxMinZ + e,
+                    boxMaxX + 0.0, boxMaxY + -STEP_HEIGHT, boxMaxZ + e
+                )
+            ) {
+                e = stepTowardsZero(e)
+            }
+            while (d != 0.0 && e != 0.0 && isSpaceEmpty(
+                    boxMinX + d, boxMinY + -STEP_HEIGHT, boxMinZ + e,
+                    boxMaxX + d, boxMaxY + -STEP_HEIGHT, boxMaxZ + e
+                )
+            ) {
+                d = stepTowardsZero(d)
+                e = stepTowardsZero(e)
+            }
+
+            if (movementX != d || movementZ != e) {
+                clipLedged = true
+            }
+
+            if (input.playerInput.sneak || input.forceSafeWalk) {
+                movementX = d
+                movementZ = e
+            }
+        }
+
+        adjustMovementForCollisions(movementX, movementY, movementZ)
+        val adjustedX = outX
+        val adjustedY = outY
+        val adjustedZ = outZ
+
+        if (adjustedX * adjustedX + adjustedY * adjustedY + adjustedZ * adjustedZ > 1.0E-7) {
+            x += adjustedX
+            y += adjustedY
+            z += adjustedZ
+
+            // EntityDimensions.getBoxAt
+            boxMinX = x - halfWidth.toDouble()
+            boxMinY = y
+            boxMinZ = z - halfWidth.toDouble()
+            boxMaxX = x + halfWidth.toDouble()
+            boxMaxY = y + height.toDouble()
+            boxMaxZ = z + halfWidth.toDouble()
+        }
+
+        val xCollision = !MathHelper.approximatelyEquals(movementX, adjustedX)
+        val zCollision = !MathHelper.approximatelyEquals(movementZ, adjustedZ)
+
+        horizontalCollision = xCollision || zCollision
+        verticalCollision = movementY != adjustedY
+
+        onGround = verticalCollision && movementY < 0.0
+
+        if (!touchingWater) {
+            checkWaterState()
+        }
+
+        if (onGround) {
+            fallDistance = 0.0f
+        } else if (movementY < 0) {
+            fallDistance -= movementY.toFloat()
+        }
+
+        if (horizontalCollision || verticalCollision) {
+            if (xCollision) velocityX = 0.0
+            if (onGround) velocityY = 0.0
+            if (zCollision) velocityZ = 0.0
+        }
+    }
+
+    /**
+     * One step of the ledge clipping loops in adjustMovementForSneaking
+     */
+    private fun stepTowardsZero(value: Double): Double {
+        if (value < 0.05 && value >= -0.05) {
+            return 0.0
+        }
+        if (value > 0.0) {
+            return value - 0.05
+        }
+        return value + 0.05
+    }
+
+    // SimulatedPlayer.method_30263
+    private fun isNearGround(): Boolean {
+        return onGround || fallDistance < STEP_HEIGHT && !isSpaceEmpty(
+            boxMinX + 0.0, boxMinY + (fallDistance - STEP_HEIGHT), boxMinZ + 0.0,
+            boxMaxX + 0.0, boxMaxY + (fallDistance - STEP_HEIGHT), boxMaxZ + 0.0
+        )
+    }
+
+    /**
+     * SimulatedPlayer.adjustMovementForCollisions, leaving the result in outX, outY and outZ
+     */
+    private fun adjustMovementForCollisions(movementX: Double, movementY: Double, movementZ: Double) {
+        val minX = -0.3 + x
+        val minY = 0.0 + y
+        val minZ = -0.3 + z
+        val maxX = 0.3 + x
+        val maxY = 1.8 + y
+        val maxZ = 0.3 + z
+
+        val collidedX: Double
+        val collidedY: Double
+        val collidedZ: Double
+        if (movementX * movementX + movementY * movementY + movementZ * movementZ == 0.0) {
+            collidedX = movementX
+            collidedY = movementY
+            collidedZ = movementZ
+        } else {
+            collide(movementX, movementY, movementZ, minX, minY, minZ, maxX, maxY, maxZ)
+            collidedX = outX
+            collidedY = outY
+            collidedZ = outZ
+        }
+        val bl = movementX != collidedX
+        val bl2 = movementY != collidedY
+        val bl3 = movementZ != collidedZ
+
+        val bl4 = onGround || bl2 && movementY < 0.0
+
+        if (stepHeight > 0.0f && bl4 && (bl || bl3)) {
+            val step = stepHeight.toDouble()
+
+            collide(movementX, step, movementZ, minX, minY, minZ, maxX, maxY, maxZ)
+            var stepX = outX
+            var stepY = outY
+            var stepZ = outZ
+
+            // Straight up against the box stretched horizontally
+            var stretchedMinX = minX
+            var stretchedMaxX = maxX
+            if (movementX < 0.0) stretchedMinX += movementX else if (movementX > 0.0) stretchedMaxX += movementX
+            var stretchedMinZ = minZ
+            var stretchedMaxZ = maxZ
+            if (movementZ < 0.0) stretchedMinZ += movementZ else if (movementZ > 0.0) stretchedMaxZ += movementZ
+            collide(0.0, step, 0.0, stretchedMinX, minY, stretchedMinZ, stretchedMaxX, maxY, stretchedMaxZ)
+            val upX = outX
+            val upY = outY
+            val upZ = outZ
+
+            collide(
+                movementX, 0.0, movementZ,
+                minX + upX, minY + upY, minZ + upZ, maxX + upX, maxY + upY, maxZ + upZ
+            )
+            val overX = outX + upX
+            val overY = outY + upY
+            val overZ = outZ + upZ
+
+            if (upY < step && overX * overX + overZ * overZ > stepX * stepX + stepZ * stepZ) {
+                stepX = overX
+                stepY = overY
+                stepZ = overZ
+            }
+
+            if (stepX * stepX + stepZ * stepZ > collidedX * collidedX + collidedZ * collidedZ) {
+                collide(
+                    0.0, -stepY + movementY, 0.0,
+                    minX + stepX, minY + stepY, minZ + stepZ, maxX + stepX, maxY + stepY, maxZ + stepZ
+                )
+                outX = stepX + outX
+                outY = stepY + outY
+                outZ = stepZ + outZ
+                return
+            }
+        }
+
+        outX = collidedX
+        outY = collidedY
+        outZ = collidedZ
+    }
+
+    /**
+     * Entity.adjustMovementForCollisions against the blocks around the stretched box, leaving the result in
+     * outX, outY and outZ
+     */
+    private fun collide(
+        movementX: Double, movementY: Double, movementZ: Double,
+        minX: Double, minY: Double, minZ: Double, maxX: Double, maxY: Double, maxZ: Double
+    ) {
+        // Box.stretch
+        var stretchedMinX = minX
+        var stretchedMinY = minY
+        var stretchedMinZ = minZ
+        var stretchedMaxX = maxX
+        var stretchedMaxY = maxY
+        var stretchedMaxZ = maxZ
+        if (movementX < 0.0) stretchedMinX += movementX else if (movementX > 0.0) stretchedMaxX += movementX
+        if (movementY < 0.0) stretchedMinY += movementY else if (movementY > 0.0) stretchedMaxY += movementY
+        if (movementZ < 0.0) stretchedMinZ += movementZ else if (movementZ > 0.0) stretchedMaxZ += movementZ
+
+        collect(stretchedMinX, stretchedMinY, stretchedMinZ, stretchedMaxX, stretchedMaxY, stretchedMaxZ, false)
+        if (collisionCount == 0) {
+            outX = movementX
+            outY = movementY
+            outZ = movementZ
+            return
+        }
+
+        queryMin[0] = minX
+        queryMin[1] = minY
+        queryMin[2] = minZ
+        queryMax[0] = maxX
+        queryMax[1] = maxY
+        queryMax[2] = maxZ
+
+        var d = movementX
+        var e = movementY
+        var f = movementZ
+        if (e != 0.0) {
+            e = maxOffset(AXIS_Y, e)
+            if (e != 0.0) {
+                queryMin[AXIS_Y] += e
+                queryMax[AXIS_Y] += e
+            }
+        }
+
+        val bl = abs(d) < abs(f)
+        if (bl && f != 0.0) {
+            f = maxOffset(AXIS_Z, f)
+            if (f != 0.0) {
+                queryMin[AXIS_Z] += f
+                queryMax[AXIS_Z] += f
+            }
+        }
+
+        if (d != 0.0) {
+            d = maxOffset(AXIS_X, d)
+            if (!bl && d != 0.0) {
+                queryMin[AXIS_X] += d
+                queryMax[AXIS_X] += d
+            }
+        }
+
+        if (!bl && f != 0.0) {
+            f = maxOffset(AXIS_Z, f)
+        }
+
+        outX = d
+        outY = e
+        outZ = f
+    }
+
+    /**
+     * CollisionView.isSpaceEmpty for blocks only, entities and the world border are left to the reference
+     */
+    private fun isSpaceEmpty(minX: Double, minY: Double, minZ: Double, maxX: Double, maxY: Double, maxZ: Double): Boolean {
+        collect(minX, minY, minZ, maxX, maxY, maxZ, true)
+        return collisionCount == 0
+    }
+
+    /**
+     * Finds the block collision shapes in the box in the order BlockCollisionSpliterator visits them
+     */
+    private fun collect(minX: Double, minY: Double, minZ: Double, maxX: Double, maxY: Double, maxZ: Double, firstOnly: Boolean) {
+        collisionCount = 0
+
+        val startX = MathHelper.floor(minX - 1.0E-7) - 1
+        val endX = MathHelper.floor(maxX + 1.0E-7) + 1
+        val startY = MathHelper.floor(minY - 1.0E-7) - 1
+        val endY = MathHelper.floor(maxY + 1.0E-7) + 1
+        val startZ = MathHelper.floor(minZ - 1.0E-7) - 1
+        val endZ = MathHelper.floor(maxZ + 1.0E-7) + 1
+
+        // VoxelShapes.cuboid of a box this thin is empty and never matches a partial shape
+        val thin = maxX - minX < 1.0E-7 || maxY - minY < 1.0E-7 || maxZ - minZ < 1.0E-7
+        var chunk: BlockView? = null
+        var chunkX = Int.MIN_VALUE
+        var chunkZ = Int.MIN_VALUE
+        var chunkLoaded = false
+
+        for (blockZ in startZ..endZ) {
+            for (blockY in startY..endY) {
+                for (blockX in startX..endX) {
+                    var edges = 0
+                    if (blockX == startX || blockX == endX) edges++
+                    if (blockY == startY || blockY == endY) edges++
+                    if (blockZ == startZ || blockZ == endZ) edges++
+                    if (edges == 3) continue
+
+                    if (blockX shr 4 != chunkX || blockZ shr 4 != chunkZ || snapshot == null && chunk == null) {
+                        chunkX = blockX shr 4
+                        chunkZ = blockZ shr 4
+                        if (snapshot != null) {
+                            chunkLoaded = snapshot.isChunkLoaded(chunkX, chunkZ)
+                        } else {
+                            chunk = world.getChunkAsView(chunkX, chunkZ)
+                            chunkLoaded = chunk != null
+                        }
+                    }
+                    if (!chunkLoaded) continue
+
+                    blockPos.set(blockX, blockY, blockZ)
+                    val state = if (snapshot != null) {
+                        snapshot.getBlockState(blockX, blockY, blockZ)
+                    } else {
+                        chunk!!.getBlockState(blockPos)
+                    }
+                    if (edges == 1 && !state.exceedsCube() || edges == 2 && !state.isOf(Blocks.MOVING_PISTON)) {
+                        continue
+                    }
+
+                    val shape = if (snapshot != null) {
+                        snapshot.getCollisionShape(blockX, blockY, blockZ)
+                    } else {
+                        state.getCollisionShape(world, blockPos, shapeContext)
+                    }
+                    val grid: ShapeGrid
+                    if (shape === VoxelShapes.fullCube()) {
+                        if (!(minX < blockX + 1.0 && maxX > blockX.toDouble()
+                                && minY < blockY + 1.0 && maxY > blockY.toDouble()
+                                && minZ < blockZ + 1.0 && maxZ > blockZ.toDouble())) {
+                            continue
+                        }
+                        grid = FULL_CUBE
+                    } else {
+                        if (thin || shape.isEmpty) {
+                            continue
+                        }
+                        grid = gridOf(shape)
+                        if (!grid.overlaps(blockX, blockY, blockZ, minX, minY, minZ, maxX, maxY, maxZ)) {
+                            continue
+                        }
+                    }
+
+                    addCollision(grid, blockX, blockY, blockZ)
+                    if (firstOnly) {
+                        return
+                    }
+                }
+            }
+        }
+    }
+
+    private fun addCollision(grid: ShapeGrid, blockX: Int, blockY: Int, blockZ: Int) {
+        if (collisionCount == collisionGrids.size) {
+            collisionGrids = collisionGrids.copyOf(collisionCount * 2)
+            collisionOrigins = collisionOrigins.copyOf(collisionCount * 2 * 3)
+        }
+        collisionGrids[collisionCount] = grid
+        collisionOrigins[collisionCount * 3] = blockX
+        collisionOrigins[collisionCount * 3 + 1] = blockY
+        collisionOrigins[collisionCount * 3 + 2] = blockZ
+        collisionCount++
+    }
+
+    /**
+     * VoxelShapes.calculateMaxOffset over the collected shapes and the query box
+     */
+    private fun maxOffset(axis: Int, maxDist: Double): Double {
+        var dist = maxDist
+        for (i in 0 until collisionCount) {
+            if (abs(dist) < 1.0E-7) {
+                return 0.0
+            }
+            dist = maxDistance(i, axis, dist)
+        }
+        return dist
+    }
+
+    /**
+     * VoxelShape.calculateMaxDistance of one collected shape, offset to its block
+     */
+    private fun maxDistance(index: Int, axis: Int, maxDist: Double): Double {
+        if (abs(maxDist) < 1.0E-7) {
+            return 0.0
+        }
+
+        val grid = collisionGrids[index]!!
+        val second = (axis + 1) % 3
+        val third = (axis + 2) % 3
+        val points = grid.points[axis]
+        val offset = collisionOrigins[index * 3 + axis].toDouble()
+        val secondOffset = collisionOrigins[index * 3 + second].toDouble()
+        val thirdOffset = collisionOrigins[index * 3 + third].toDouble()
+
+        val d = queryMax[axis]
+        val e = queryMin[axis]
+        val i = coordIndex(points, offset, e + 1.0E-7)
+        val j = coordIndex(points, offset, d - 1.0E-7)
+        val k = max(0, coordIndex(grid.points[second], secondOffset, queryMin[second] + 1.0E-7))
+        val l = min(grid.sizes[second], coordIndex(grid.points[second], secondOffset, queryMax[second] - 1.0E-7) + 1)
+        val m = max(0, coordIndex(grid.points[third], thirdOffset, queryMin[third] + 1.0E-7))
+        val n = min(grid.sizes[third], coordIndex(grid.points[third], thirdOffset, queryMax[third] - 1.0E-7) + 1)
+        val o = grid.sizes[axis]
+
+        if (maxDist > 0.0) {
+            for (p in j + 1 until o) {
+                for (q in k until l) {
+                    for (r in m until n) {
+                        if (grid.contains(axis, p, q, r)) {
+                            val f = points[p] + offset - d
+                            return if (f >= -1.0E-7) Math.min(maxDist, f) else maxDist
+                        }
+                    }
+                }
+            }
+        } else if (maxDist < 0.0) {
+            for (p in i - 1 downTo 0) {
+                for (q in k until l) {
+                    for (r in m until n) {
+                        if (grid.contains(axis, p, q, r)) {
+                            val f = points[p + 1] + offset - e
+                            return if (f <= 1.0E-7) Math.max(maxDist, f) else maxDist
+                        }
+                    }
+                }
+            }
+        }
+
+        return maxDist
+    }
+
+    /**
+     * VoxelShape.getCoordIndex, using the MathHelper.binarySearch steps
+     */
+    private fun coordIndex(points: DoubleArray, offset: Double, coord: Double): Int {
+        var start = 0
+        var remaining = points.size
+        while (remaining > 0) {
+            val half = remaining / 2
+            val middle = start + half
+            if (coord < points[middle] + offset) {
+                remaining = half
+            } else {
+                start = middle + 1
+                remaining -= half + 1
+            }
+        }
+        return start - 1
+    }
+
+    private fun getBlockState(pos: BlockPos): BlockState {
+        return snapshot?.getBlockState(pos.x, pos.y, pos.z) ?: world.getBlockState(pos)
+    }
+
+    /**
+     * checkWaterState with no water in reach, which only records that the player is dry
+     */
+    private fun checkWaterState() {
+        if (!isRegionUnloaded()) {
+            fluidHeight.put(FluidTags.WATER, 0.0)
+        }
+        touchingWater = false
+    }
+
+    private fun isRegionUnloaded(): Boolean {
+        // boundingBox.expand(1.0)
+        val i = MathHelper.floor(boxMinX - 1.0)
+        val j = MathHelper.ceil(boxMaxX + 1.0)
+        val k = MathHelper.floor(boxMinZ - 1.0)
+        val l = MathHelper.ceil(boxMaxZ + 1.0)
+        return !world.isRegionLoaded(i, k, j, l)
+    }
+
+    private fun isInLava(): Boolean {
+        return fluidHeight.getDouble(FluidTags.LAVA) > 0.0
+    }
+
+    private fun getJumpVelocity(): Float =
+        0.42f * getJumpVelocityMultiplier() + jumpBoost
+
+    private fun getJumpBoostVelocityModifier(): Float {
+        val jumpBoost = player.getStatusEffect(StatusEffects.JUMP_BOOST)
+        // SimulatedPlayer counts an effect as active while its duration isn't below the simulated ticks, always 0
+        return if (jumpBoost != null && jumpBoost.duration >= 0) {
+            0.1f * (jumpBoost.amplifier.toFloat() + 1f)
+        } else {
+            0f
+        }
+    }
+
+    private fun getJumpVelocityMultiplier(): Float {
+        blockPos.set(MathHelper.floor(x), MathHelper.floor(y), MathHelper.floor(z))
+        val f = getBlockState(blockPos).block.jumpVelocityMultiplier
+        velocityAffectingPos.set(
+            MathHelper.floor(x), MathHelper.floor(boxMinY - 0.5000001), MathHelper.floor(z)
+        )
+        val g = getBlockState(velocityAffectingPos).block.jumpVelocityMultiplier
+
+        return if (f.toDouble() == 1.0) g else f
+    }
+
+    private fun hasStatusEffect(effect: RegistryEntry<StatusEffect>): Boolean {
+        val instance = player.getStatusEffect(effect) ?: return false
+        return instance.duration >= 0
+    }
+
+    /**
+     * Point positions and filled cells of a collision shape, as VoxelShape keeps them internally
+     */
+    private class ShapeGrid(shape: VoxelShape) {
+        val points = arrayOf(
+            shape.getPointPositions(Direction.Axis.X).toDoubleArray(),
+            shape.getPointPositions(Direction.Axis.Y).toDoubleArray(),
+            shape.getPointPositions(Direction.Axis.Z).toDoubleArray()
+        )
+        val sizes = IntArray(3) { points[it].size - 1 }
+        private val filled = BooleanArray(sizes[0] * sizes[1] * sizes[2])
+
+        init {
+            shape.forEachBox { minX, minY, minZ, maxX, maxY, maxZ ->
+                for (ix in 0 until sizes[0]) {
+                    if (points[0][ix] < minX || points[0][ix + 1] > maxX) continue
+                    for (iy in 0 until sizes[1]) {
+                        if (points[1][iy] < minY || points[1][iy + 1] > maxY) continue
+                        for (iz in 0 until sizes[2]) {
+                            if (points[2][iz] < minZ || points[2][iz + 1] > maxZ) continue
+                            filled[(ix * sizes[1] + iy) * sizes[2] + iz] = true
+                        }
+                    }
+                }
+            }
+        }
+
+        fun contains(ix: Int, iy: Int, iz: Int): Boolean {
+            if (ix < 0 || iy < 0 || iz < 0 || ix >= sizes[0] || iy >= sizes[1] || iz >= sizes[2]) {
+                return false
+            }
+            return filled[(ix * sizes[1] + iy) * sizes[2] + iz]
+        }
+
+        /**
+         * Cell lookup with the coordinates given along an axis and the two after it, like VoxelSet.inBoundsAndContains
+         */
+        fun contains(axis: Int, p: Int, q: Int, r: Int): Boolean {
+            return when (axis) {
+                AXIS_X -> contains(p, q, r)
+                AXIS_Y -> contains(r, p, q)
+                else -> contains(q, r, p)
+            }
+        }
+
+        /**
+         * VoxelShapes.matchesAnywhere with the AND function, for the shape offset to a block and a box.
+         * Vanilla merges points closer than 1.0E-7, so thinner overlaps don't count.
+         */
+        fun overlaps(
+            blockX: Int, blockY: Int, blockZ: Int,
+            minX: Double, minY: Double, minZ: Double, maxX: Double, maxY: Double, maxZ: Double
+        ): Boolean {
+            for (ix in 0 until sizes[0]) {
+                if (min(points[0][ix + 1] + blockX, maxX) - max(points[0][ix] + blockX, minX) <= 1.0E-7) continue
+                for (iy in 0 until sizes[1]) {
+                    if (min(points[1][iy + 1] + blockY, maxY) - max(points[1][iy] + blockY, minY) <= 1.0E-7) continue
+                    for (iz in 0 until sizes[2]) {
+                        if (min(points[2][iz + 1] + blockZ, maxZ) - max(points[2][iz] + blockZ, minZ) <= 1.0E-7) continue
+                        if (filled[(ix * sizes[1] + iy) * sizes[2] + iz]) {
+                            return true
+                        }
+                    }
+                }
+            }
+            return false
+        }
+    }
+
+    companion object {
+        private const val AXIS_X = 0
+        private const val AXIS_Y = 1
+        private const val AXIS_Z = 2
+
+        private val RADIANS_PER_DEGREE = (Math.PI / 180.0).toFloat()
+
+        // Covers a jump and the input added to the velocity, a step up and the block collision search pads by
+        private const val REACH_MARGIN = 3.0
+        private const val PLAIN_SCAN_MARGIN = 6
+        private const val ENTITY_SCAN_RADIUS = 64.0
+        private const val MAX_CACHED_SHAPES = 4096
+
+        private val FULL_CUBE = ShapeGrid(VoxelShapes.fullCube())
+
+        // Block shapes are shared between states, so they are keyed by identity
+        private val SHAPE_GRIDS = ConcurrentHashMap<VoxelShape, ShapeGrid>()
+
+        private fun gridOf(shape: VoxelShape): ShapeGrid {
+            val cached = SHAPE_GRIDS[shape]
+            if (cached != null) {
+                return cached
+            }
+            if (SHAPE_GRIDS.size >= MAX_CACHED_SHAPES) {
+                SHAPE_GRIDS.clear()
+            }
+            val grid = ShapeGrid(shape)
+            SHAPE_GRIDS[shape] = grid
+            return grid
+        }
+    }
+}
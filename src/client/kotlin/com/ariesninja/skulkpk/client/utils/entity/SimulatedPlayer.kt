@@ -22,11 +22,10 @@ package com.ariesninja.skulkpk.client.utils.entity
 
 import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap
+import com.ariesninja.skulkpk.client.event.EventManager
 import com.ariesninja.skulkpk.client.event.EventManager.callEvent
 import com.ariesninja.skulkpk.client.event.events.PlayerMoveEvent
 import com.ariesninja.skulkpk.client.event.events.PlayerSafeWalkEvent
-import com.ariesninja.skulkpk.client.utils.block.getBlock
-import com.ariesninja.skulkpk.client.utils.block.getState
 import com.ariesninja.skulkpk.client.utils.client.player
 import com.ariesninja.skulkpk.client.utils.client.toRadians
 import com.ariesninja.skulkpk.client.utils.math.plus
@@ -56,42 +55,55 @@ import net.minecraft.util.math.Box
 import net.minecraft.util.math.MathHelper
 import net.minecraft.util.math.Vec3d
 import net.minecraft.util.shape.VoxelShape
-import net.minecraft.world.World
 import kotlin.let
 import kotlin.math.abs
+import kotlin.math.ln
 import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.pow
 import kotlin.math.sqrt
 import kotlin.ranges.coerceAtMost
 import kotlin.ranges.until
 
 private const val STEP_HEIGHT = 0.5
 
-class SimulatedPlayer(
-    private val player: PlayerEntity,
+// Air physics of travel(), for fastForward
+private const val GRAVITY = 0.08
+private const val VERTICAL_DRAG = 0.9800000190734863
+private val HORIZONTAL_DRAG = 0.91f.toDouble()
+// Velocity components below this are zeroed at the start of a tick, the margin keeps rounding on the safe side
+private const val VELOCITY_THRESHOLD = 0.003 + 1.0E-9
+
+class SimulatedPlayer @JvmOverloads constructor(
+    internal val player: PlayerEntity,
     var input: SimulatedPlayerInput,
     var pos: Vec3d,
     var velocity: Vec3d,
-    private var boundingBox: Box,
+    internal var boundingBox: Box,
     var yaw: Float,
     var pitch: Float,
-    private var sprinting: Boolean,
+    internal var sprinting: Boolean,
 
     var fallDistance: Float,
-    private var jumpingCooldown: Int,
-    private var isJumping: Boolean,
-    private var isFallFlying: Boolean,
+    internal var jumpingCooldown: Int,
+    internal var isJumping: Boolean,
+    internal var isFallFlying: Boolean,
     var onGround: Boolean,
     var horizontalCollision: Boolean,
-    private var verticalCollision: Boolean,
-
-    private var touchingWater: Boolean,
-    private var isSwimming: Boolean,
-    private var submergedInWater: Boolean,
-    private var fluidHeight: Object2DoubleMap<TagKey<Fluid>>,
-    private var submergedFluidTag: HashSet<TagKey<Fluid>>
+    internal var verticalCollision: Boolean,
+
+    internal var touchingWater: Boolean,
+    internal var isSwimming: Boolean,
+    internal var submergedInWater: Boolean,
+    internal var fluidHeight: Object2DoubleMap<TagKey<Fluid>>,
+    internal var submergedFluidTag: HashSet<TagKey<Fluid>>,
+    /**
+     * Where blocks and collisions are read from, a [CollisionSnapshot] lets the simulation run off the client thread
+     */
+    var collisionProvider: CollisionProvider = CollisionProvider.of(player.world)
 ) {
-    private val world: World
-        get() = player.world!!
+    private val world: CollisionProvider
+        get() = collisionProvider
 
     companion object {
         fun fromClientPlayer(input: SimulatedPlayerInput): SimulatedPlayer {
@@ -153,7 +165,7 @@ class SimulatedPlayer(
 
     private var simulatedTicks: Int = 0
     var clipLedged = false
-        private set
+        internal set
 
     fun tick() {
         clipLedged = false
@@ -224,12 +236,199 @@ class SimulatedPlayer(
         this.travel(Vec3d(sidewaysSpeed, upwardsSpeed, forwardSpeed))
     }
 
+    /**
+     * Advances the player by [ticks] ticks, the same as calling [tick] that many times.
+     *
+     * While the player falls freely through the air of a [CollisionSnapshot], drag and gravity make each velocity
+     * component a geometric series, so whole stretches of such ticks are summed up in closed form instead of being
+     * stepped through. The result matches stepping up to rounding. Near blocks, entities or the world border, and
+     * whenever a tick could do more than fall, it steps tick by tick.
+     */
+    fun fastForward(ticks: Int) {
+        var remaining = ticks
+        while (remaining > 0) {
+            val span = ballisticSpan(remaining)
+            if (span > 0) {
+                skipBallistic(span)
+                remaining -= span
+            } else {
+                tick()
+                remaining--
+            }
+        }
+    }
+
+    /**
+     * Skips the ticks of free fall [fastForward] would, up to [maxTicks], but none that end below [floorY].
+     * Returns the number of ticks skipped, 0 if the next tick has to be stepped.
+     */
+    internal fun skipFreeFall(maxTicks: Int, floorY: Double): Int {
+        var span = ballisticSpan(maxTicks)
+        if (span == 0) {
+            return 0
+        }
+        // The height only moves one way within a stretch, so it is lowest at the end
+        val acceleration = airAcceleration()
+        while (span > 0 && pos.y + ballisticOffset(span, acceleration).y < floorY) {
+            span /= 2
+        }
+        if (span > 0) {
+            skipBallistic(span)
+        }
+        return span
+    }
+
+    /**
+     * Number of ticks, up to [maxTicks], that can be skipped in closed form from the current state
+     */
+    private fun ballisticSpan(maxTicks: Int): Int {
+        val snapshot = collisionProvider as? CollisionSnapshot ?: return 0
+
+        // Anything that makes a tick more than drag, gravity and air strafing
+        if (onGround || isFallFlying || isSwimming || touchingWater || submergedInWater
+            || submergedFluidTag.isNotEmpty() || isInLava() || pos.y <= -70
+            || player.hasVehicle() || player.abilities.flying || player.hasNoGravity() || player.hasNoDrag()
+            || hasStatusEffect(StatusEffects.SLOW_FALLING) || hasStatusEffect(StatusEffects.LEVITATION)
+            || EventManager.hasHandlers(PlayerMoveEvent::class.java)
+        ) {
+            return 0
+        }
+
+        val acceleration = airAcceleration()
+        var span = maxTicks
+        span = steadySpan(velocity.x, acceleration.x, HORIZONTAL_DRAG, span)
+        span = steadySpan(velocity.z, acceleration.z, HORIZONTAL_DRAG, span)
+        span = steadySpan(velocity.y, -GRAVITY, VERTICAL_DRAG, span)
+
+        // Halve the stretch until it stays clear of everything, the last ticks before geometry are stepped
+        while (span > 0 && !isClearFor(snapshot, span, acceleration)) {
+            span /= 2
+        }
+        return span
+    }
+
+    /**
+     * Whether the space the player sweeps through during a skipped stretch holds nothing it could touch.
+     * Within a stretch every component keeps its sign, so the player moves monotonically and the
+     * start and end boxes enclose the whole path.
+     */
+    private fun isClearFor(snapshot: CollisionSnapshot, span: Int, acceleration: Vec3d): Boolean {
+        val offset = ballisticOffset(span, acceleration)
+        if (pos.y + offset.y <= -70) {
+            return false
+        }
+
+        val start = boundingBox.union(Box(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3).offset(pos))
+        // One block around it covers the ledge check below the player and shapes exceeding their block
+        val swept = start.union(start.offset(offset)).expand(1.0)
+        return snapshot.isAllAir(
+            MathHelper.floor(swept.minX), MathHelper.floor(swept.minY), MathHelper.floor(swept.minZ),
+            MathHelper.floor(swept.maxX), MathHelper.floor(swept.maxY), MathHelper.floor(swept.maxZ)
+        ) && snapshot.entityBoxes.none { it.intersects(swept) }
+            && !snapshot.worldBorder.canCollide(player, swept)
+    }
+
+    /**
+     * Applies [span] ticks of free fall at once, leaving the state as ticking would
+     */
+    private fun skipBallistic(span: Int) {
+        clipLedged = false
+        this.input.update()
+        this.jumpingCooldown = max(0, this.jumpingCooldown - span)
+        this.isJumping = this.input.playerInput.jump
+
+        val acceleration = airAcceleration()
+        val offset = ballisticOffset(span, acceleration)
+        this.velocity = Vec3d(
+            seriesTerm(velocity.x, steadyVelocity(acceleration.x, HORIZONTAL_DRAG), HORIZONTAL_DRAG, span),
+            seriesTerm(velocity.y, steadyVelocity(-GRAVITY, VERTICAL_DRAG), VERTICAL_DRAG, span),
+            seriesTerm(velocity.z, steadyVelocity(acceleration.z, HORIZONTAL_DRAG), HORIZONTAL_DRAG, span)
+        )
+        this.pos += offset
+        this.boundingBox = player.dimensions.getBoxAt(this.pos)
+
+        if (offset.y < 0.0) {
+            this.fallDistance -= offset.y.toFloat()
+        }
+        this.horizontalCollision = false
+        this.verticalCollision = false
+        this.fluidHeight.put(FluidTags.WATER, 0.0)
+    }
+
+    /**
+     * What air strafing adds to the velocity each tick with the current input
+     */
+    private fun airAcceleration(): Vec3d {
+        this.input.update()
+        val movementInput = Vec3d(input.movementSideways * 0.98, 0.0, input.movementForward * 0.98)
+        return Entity.movementInputToVelocity(movementInput, this.getAirStrafingSpeed(), this.yaw)
+    }
+
+    /**
+     * Distance moved over [span] ticks of free fall. Horizontally each tick moves by the velocity plus strafing
+     * before drag is applied, vertically by the velocity before gravity is.
+     */
+    private fun ballisticOffset(span: Int, acceleration: Vec3d): Vec3d {
+        return Vec3d(
+            seriesSum(velocity.x, steadyVelocity(acceleration.x, HORIZONTAL_DRAG), HORIZONTAL_DRAG, span)
+                + span * acceleration.x,
+            seriesSum(velocity.y, steadyVelocity(-GRAVITY, VERTICAL_DRAG), VERTICAL_DRAG, span),
+            seriesSum(velocity.z, steadyVelocity(acceleration.z, HORIZONTAL_DRAG), HORIZONTAL_DRAG, span)
+                + span * acceleration.z
+        )
+    }
+
+    /**
+     * Longest stretch, up to [limit], over which a component following v' = (v + acceleration) * drag stays on
+     * one side of the threshold below which ticks zero it, so the closed form holds
+     */
+    private fun steadySpan(start: Double, acceleration: Double, drag: Double, limit: Int): Int {
+        if (start == 0.0 && acceleration == 0.0) {
+            return limit
+        }
+        val sign = when {
+            start >= VELOCITY_THRESHOLD -> 1.0
+            start <= -VELOCITY_THRESHOLD -> -1.0
+            else -> return 0
+        }
+        val steady = steadyVelocity(acceleration, drag)
+        if (steady * sign >= VELOCITY_THRESHOLD) {
+            return limit
+        }
+
+        // First tick leaving the side, estimated from the closed form and then settled exactly
+        val ratio = (VELOCITY_THRESHOLD * sign - steady) / (start - steady)
+        val estimate = ln(ratio) / ln(drag)
+        var leaving = if (estimate.isFinite()) estimate.coerceIn(1.0, limit + 1.0).toInt() else 1
+        while (leaving > 1 && seriesTerm(start, steady, drag, leaving - 1) * sign < VELOCITY_THRESHOLD) {
+            leaving--
+        }
+        while (leaving <= limit && seriesTerm(start, steady, drag, leaving) * sign >= VELOCITY_THRESHOLD) {
+            leaving++
+        }
+        return min(limit, leaving - 1)
+    }
+
+    private fun steadyVelocity(acceleration: Double, drag: Double) = drag * acceleration / (1.0 - drag)
+
+    /**
+     * Component after [n] ticks
+     */
+    private fun seriesTerm(start: Double, steady: Double, drag: Double, n: Int) =
+        drag.pow(n) * (start - steady) + steady
+
+    /**
+     * Sum of the component over the first [n] ticks
+     */
+    private fun seriesSum(start: Double, steady: Double, drag: Double, n: Int) =
+        n * steady + (start - steady) * (1.0 - drag.pow(n)) / (1.0 - drag)
+
     private fun travel(movementInput: Vec3d) {
         // PlayerEntity
         if (this.isSwimming && !this.player.hasVehicle()) {
             val g = this.getRotationVector().y
             val h = if (g < -0.2) 0.085 else 0.06
-            if (g <= 0.0 || this.input.playerInput.jump || !this.player.world
+            if (g <= 0.0 || this.input.playerInput.jump || !world
                 .getBlockState(BlockPos.ofFloored(this.pos.x, this.pos.y + 1.0 - 0.1, this.pos.z))
                 .fluidState.isEmpty
             ) {
@@ -334,14 +533,14 @@ class SimulatedPlayer(
             move(this.velocity)
         } else {
             val blockPos = this.getVelocityAffectingPos()
-            val p: Float = this.player.world.getBlockState(blockPos).block.slipperiness
+            val p: Float = world.getBlockState(blockPos).block.slipperiness
             val f = if (onGround) p * 0.91f else 0.91f
             val vec3d6 = this.applyMovementInput(movementInput, p)
             var q = vec3d6.y
             if (hasStatusEffect(StatusEffects.LEVITATION)) {
                 q += (0.05 * (getStatusEffect(StatusEffects.LEVITATION)!!.amplifier + 1).toDouble() - vec3d6.y) * 0.2
-            } else if (this.player.world.isClient && !this.player.world.isChunkLoaded(blockPos)) {
-                q = if (this.pos.y > this.player.world.bottomY.toDouble()) {
+            } else if (world.isClient && !world.isChunkLoaded(blockPos)) {
+                q = if (this.pos.y > world.bottomY.toDouble()) {
                     -0.1
                 } else {
                     0.0
@@ -371,8 +570,8 @@ class SimulatedPlayer(
 
         var vec3d = this.velocity
         if ((horizontalCollision || this.isJumping) && (
-            this.isClimbing() || pos.toBlockPos().getState()
-                ?.isOf(Blocks.POWDER_SNOW) == true && PowderSnowBlock.canWalkOnPowderSnow(player)
+            this.isClimbing() || world.getBlockState(pos.toBlockPos())
+                .isOf(Blocks.POWDER_SNOW) && PowderSnowBlock.canWalkOnPowderSnow(player)
             )
         ) {
             vec3d = Vec3d(vec3d.x, 0.2, vec3d.z)
@@ -456,13 +655,7 @@ class SimulatedPlayer(
         val vec3d = if (movement.lengthSquared() == 0.0) {
             movement
         } else {
-            Entity.adjustMovementForCollisions(
-                this.player,
-                movement,
-                box,
-                this.player.world,
-                entityCollisionList
-            )
+            collide(movement, box, entityCollisionList)
         }
         val bl = movement.x != vec3d.x
         val bl2 = movement.y != vec3d.y
@@ -471,25 +664,19 @@ class SimulatedPlayer(
         bl4 = onGround || bl2 && movement.y < 0.0
 
         if (this.player.stepHeight > 0.0f && bl4 && (bl || bl3)) {
-            var vec3d2 = Entity.adjustMovementForCollisions(
-                this.player,
+            var vec3d2 = collide(
                 Vec3d(movement.x, this.player.stepHeight.toDouble(), movement.z),
                 box,
-                this.player.world,
                 entityCollisionList
             )
-            val vec3d3 = Entity.adjustMovementForCollisions(
-                this.player,
+            val vec3d3 = collide(
                 Vec3d(0.0, this.player.stepHeight.toDouble(), 0.0),
                 box.stretch(movement.x, 0.0, movement.z),
-                this.player.world,
                 entityCollisionList
             )
-            val asdf = Entity.adjustMovementForCollisions(
-                this.player,
+            val asdf = collide(
                 Vec3d(movement.x, 0.0, movement.z),
                 box.offset(vec3d3),
-                this.player.world,
                 entityCollisionList
             ).add(vec3d3)
 
@@ -499,11 +686,9 @@ class SimulatedPlayer(
 
             if (vec3d2.horizontalLengthSquared() > vec3d.horizontalLengthSquared()) {
                 return vec3d2.add(
-                    Entity.adjustMovementForCollisions(
-                        this.player,
+                    collide(
                         Vec3d(0.0, -vec3d2.y + movement.y, 0.0),
                         box.offset(vec3d2),
-                        this.player.world,
                         entityCollisionList
                     )
                 )
@@ -512,6 +697,21 @@ class SimulatedPlayer(
         return vec3d
     }
 
+    /**
+     * Entity.adjustMovementForCollisions, reading the world border and blocks from the [collisionProvider]
+     */
+    private fun collide(movement: Vec3d, box: Box, entityCollisions: List<VoxelShape>): Vec3d {
+        val stretched = box.stretch(movement)
+        val collisions = ArrayList<VoxelShape>(entityCollisions.size + 1)
+        collisions.addAll(entityCollisions)
+        val worldBorder = world.worldBorder
+        if (worldBorder.canCollide(this.player, stretched)) {
+            collisions.add(worldBorder.asVoxelShape())
+        }
+        collisions.addAll(world.getBlockCollisions(this.player, stretched))
+        return Entity.adjustMovementForCollisions(movement, box, collisions)
+    }
+
     private fun onLanding() {
         this.fallDistance = 0.0f
     }
@@ -540,7 +740,7 @@ class SimulatedPlayer(
         val d = MathHelper.clamp(motion.x, -0.15000000596046448, 0.15000000596046448)
         val e = MathHelper.clamp(motion.z, -0.15000000596046448, 0.15000000596046448)
         var g = max(motion.y, -0.15000000596046448)
-        if (g < 0.0 && !pos.toBlockPos().getState()!!.isOf(Blocks.SCAFFOLDING) && player.isHoldingOntoLadder) {
+        if (g < 0.0 && !world.getBlockState(pos.toBlockPos()).isOf(Blocks.SCAFFOLDING) && player.isHoldingOntoLadder) {
             g = 0.0
         }
 
@@ -549,7 +749,7 @@ class SimulatedPlayer(
 
     private fun isClimbing(): Boolean {
         val blockPos = pos.toBlockPos()
-        val blockState = blockPos.getState()!!
+        val blockState = world.getBlockState(blockPos)
         return if (blockState.isIn(BlockTags.CLIMBABLE)) {
             true
         } else if (blockState.block is TrapdoorBlock && this.canEnterTrapdoor(blockPos, blockState)) {
@@ -563,7 +763,7 @@ class SimulatedPlayer(
         if (!(state.get(TrapdoorBlock.OPEN) as Boolean)) {
             return false
         }
-        val blockState = this.player.world.getBlockState(pos.down())
+        val blockState = world.getBlockState(pos.down())
         return blockState.isOf(Blocks.LADDER) && blockState.get(LadderBlock.FACING) == state.get(TrapdoorBlock.FACING)
     }
 
@@ -660,8 +860,8 @@ class SimulatedPlayer(
         }
 
     private fun getJumpVelocityMultiplier(): Float {
-        val f = pos.toBlockPos().getBlock()?.jumpVelocityMultiplier ?: 0f
-        val g = getVelocityAffectingPos().getBlock()?.jumpVelocityMultiplier ?: 0f
+        val f = world.getBlockState(pos.toBlockPos()).block.jumpVelocityMultiplier
+        val g = world.getBlockState(getVelocityAffectingPos()).block.jumpVelocityMultiplier
 
         return if (f.toDouble() == 1.0) g else f
     }
@@ -671,7 +871,7 @@ class SimulatedPlayer(
     }
 
     private fun doesNotCollide(box: Box): Boolean {
-        return this.player.world.isSpaceEmpty(this.player, box) && !this.player.world.containsFluid(box)
+        return world.isSpaceEmpty(this.player, box) && !world.containsFluid(box)
     }
 
     private fun swimUpward(water: TagKey<Fluid>?) {
@@ -712,7 +912,7 @@ class SimulatedPlayer(
         } else {
             isSprinting() && this.isSubmergedInWater() &&
                 !this.player.hasVehicle() &&
-                this.player.world
+                world
                     .getFluidState(this.pos.toBlockPos())
                     .isIn(FluidTags.WATER)
         }
@@ -729,8 +929,8 @@ class SimulatedPlayer(
             }
         }
         val blockPos = BlockPos.ofFloored(this.pos.x, d, this.pos.z)
-        val fluidState: FluidState = this.player.world.getFluidState(blockPos)
-        val e = (blockPos.y.toFloat() + fluidState.getHeight(this.player.world, blockPos)).toDouble()
+        val fluidState: FluidState = world.getFluidState(blockPos)
+        val e = (blockPos.y.toFloat() + fluidState.getHeight(world, blockPos)).toDouble()
         if (e > d) {
             fluidState.streamTags().forEach {
                 submergedFluidTag.add(it)
@@ -770,14 +970,14 @@ class SimulatedPlayer(
             for (q in k until l) {
                 for (r in m until n) {
                     mutable[p, q] = r
-                    val fluidState: FluidState = this.player.world.getFluidState(mutable)
+                    val fluidState: FluidState = world.getFluidState(mutable)
                     if (fluidState.isIn(tag)) {
-                        val e = (q.toFloat() + fluidState.getHeight(this.player.world, mutable)).toDouble()
+                        val e = (q.toFloat() + fluidState.getHeight(world, mutable)).toDouble()
                         if (e >= box.minY) {
                             bl2 = true
                             d = max(e - box.minY, d)
                             if (bl) {
-                                var vec3d2 = fluidState.getVelocity(this.player.world, mutable)
+                                var vec3d2 = fluidState.getVelocity(world, mutable)
                                 if (d < 0.4) {
                                     vec3d2 = vec3d2.multiply(d)
                                 }
@@ -816,7 +1016,7 @@ class SimulatedPlayer(
         val j = MathHelper.ceil(box.maxX)
         val k = MathHelper.floor(box.minZ)
         val l = MathHelper.ceil(box.maxZ)
-        return !this.player.world.isRegionLoaded(i, k, j, l)
+        return !world.isRegionLoaded(i, k, j, l)
     }
 
     private fun getRotationVector() = getRotationVector(this.pitch, this.yaw)
@@ -874,7 +1074,8 @@ class SimulatedPlayer(
             isSwimming,
             submergedInWater,
             Object2DoubleArrayMap(fluidHeight),
-            kotlin.collections.HashSet(submergedFluidTag)
+            kotlin.collections.HashSet(submergedFluidTag),
+            collisionProvider
         )
     }
 
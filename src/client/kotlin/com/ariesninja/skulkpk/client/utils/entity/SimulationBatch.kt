@@ -0,0 +1,389 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer.SimulatedPlayerInput
+import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import java.util.IdentityHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Simulates many variants of one [SimulatedPlayer] at once, each with its own yaw, sprint state and input schedule,
+ * and reports where each of them lands.
+ *
+ * Candidates are kept as structure-of-arrays state and ticked in lockstep by [PrimitiveSimulatedPlayer] kernels
+ * against one [CollisionSnapshot], spread over a fork-join pool. A candidate that leaves the snapshot, or meets a
+ * tick that has to call event handlers, is finished afterwards against the live world, unless the batch runs
+ * without it. Once airborne on the last input of its schedule, a candidate skips the stretches it falls freely
+ * through open air in closed form.
+ */
+object SimulationBatch {
+
+    // Blocks captured around the start, horizontally and above it
+    private const val HORIZONTAL_RADIUS = 16
+    private const val HEIGHT_ABOVE = 8
+    // Below the floor, for the ledge check and the reach of a falling player
+    private const val DEPTH_BELOW = 6
+    // Candidates ticked together by one task
+    private const val SLICE_SIZE = 16
+
+    private val threadId = AtomicInteger()
+    private val pool = ForkJoinPool(
+        max(1, Runtime.getRuntime().availableProcessors() - 1),
+        { pool ->
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool).apply {
+                name = "Skulk Simulation #" + threadId.incrementAndGet()
+            }
+        },
+        null,
+        false
+    )
+
+    /**
+     * One variant to simulate. The schedule holds the input of each tick, the last one repeats.
+     * A candidate starts from the base of its batch, or from [from], a later state of the same player.
+     */
+    class Candidate @JvmOverloads constructor(
+        val yaw: Float,
+        val inputs: List<SimulatedPlayerInput>,
+        val sprinting: Boolean = inputs.first().sprinting,
+        val from: SimulatedPlayer? = null
+    ) {
+        init {
+            require(inputs.isNotEmpty()) { "A candidate needs at least one input" }
+        }
+    }
+
+    enum class Status {
+        /**
+         * Touched the ground after having been in the air
+         */
+        LANDED,
+        /**
+         * Dropped below the floor
+         */
+        FELL,
+        /**
+         * Neither within the tick limit
+         */
+        TIMED_OUT,
+        /**
+         * Needed the live world in a batch run without it, and stopped where it was
+         */
+        DETACHED
+    }
+
+    /**
+     * How a candidate ended, with the tick it ended on and its state then.
+     * The takeoff tick is the first tick that ended in the air, or -1 if the candidate never left the ground.
+     * The player, holding the whole end state to continue from, is only set when the batch was asked for it.
+     */
+    class Outcome(
+        val status: Status,
+        val ticks: Int,
+        val pos: Vec3d,
+        val velocity: Vec3d,
+        val takeoffTick: Int,
+        val player: SimulatedPlayer? = null
+    ) {
+        override fun toString(): String {
+            return "Outcome(status=$status, ticks=$ticks, pos=$pos, velocity=$velocity, takeoffTick=$takeoffTick)"
+        }
+    }
+
+    /**
+     * Runs every candidate for up to [maxTicks] ticks, or until it lands or drops below [floorY].
+     * The outcomes are in the order of the candidates.
+     *
+     * Batches run one after another from around the same place can share a [snapshot] from [capture] instead of
+     * each capturing their own. With [players], every outcome carries its end state as a [SimulatedPlayer].
+     * Must be called on the client thread, unless [live] is off and a snapshot is given: candidates the snapshot
+     * can't finish then end as [Status.DETACHED] instead of being finished against the world.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun simulate(
+        base: SimulatedPlayer,
+        candidates: List<Candidate>,
+        maxTicks: Int,
+        floorY: Double,
+        snapshot: CollisionSnapshot = capture(base, floorY),
+        players: Boolean = false,
+        live: Boolean = true
+    ): List<Outcome> {
+        require(maxTicks > 0) { "maxTicks must be positive" }
+        val count = candidates.size
+        if (count == 0) {
+            return emptyList()
+        }
+
+        val states = SimulationStates(count)
+        val schedules = arrayOfNulls<Array<SimulatedPlayerInput>>(count)
+        states.fill(base, candidates, snapshot)
+
+        // Kernels read the player when they are created and inputs are updated in place, so both are set up here
+        val slices = ArrayList<Slice>((count + SLICE_SIZE - 1) / SLICE_SIZE)
+        for (start in 0 until count step SLICE_SIZE) {
+            val end = min(start + SLICE_SIZE, count)
+            val copies = IdentityHashMap<SimulatedPlayerInput, SimulatedPlayerInput>()
+            for (i in start until end) {
+                schedules[i] = candidates[i].inputs.map { copies.getOrPut(it) { copyOf(it) } }.toTypedArray()
+            }
+            val reference = base.clone().also { it.collisionProvider = snapshot }
+            slices.add(Slice(PrimitiveSimulatedPlayer(reference), start, end))
+        }
+
+        pool.invoke(SliceTask(slices, states, schedules, maxTicks, floorY, 0, slices.size))
+
+        // Finish the candidates the snapshot couldn't, with the world itself
+        if (live) {
+            val world = CollisionProvider.of(base.player.world)
+            for (i in 0 until count) {
+                if (states.status[i] != SimulationStates.LIVE) {
+                    continue
+                }
+                val schedule = candidates[i].inputs.map { copyOf(it) }.toTypedArray()
+                val reference = base.clone().also { it.collisionProvider = world }
+                runCandidate(PrimitiveSimulatedPlayer(reference), states, schedule, i, maxTicks, floorY, allowLive = true)
+            }
+        }
+
+        return List(count) { i ->
+            Outcome(
+                when (states.status[i]) {
+                    SimulationStates.LANDED -> Status.LANDED
+                    SimulationStates.FELL -> Status.FELL
+                    SimulationStates.LIVE -> Status.DETACHED
+                    else -> Status.TIMED_OUT
+                },
+                states.ticks[i],
+                Vec3d(states.x[i], states.y[i], states.z[i]),
+                Vec3d(states.velocityX[i], states.velocityY[i], states.velocityZ[i]),
+                states.takeoff[i],
+                if (players) endStateOf(base, states, i, snapshot) else null
+            )
+        }
+    }
+
+    /**
+     * End state of one candidate, as a player that goes on against the blocks of the base
+     */
+    private fun endStateOf(
+        base: SimulatedPlayer,
+        states: SimulationStates,
+        index: Int,
+        snapshot: CollisionSnapshot
+    ): SimulatedPlayer {
+        val player = base.clone()
+        player.collisionProvider = snapshot
+        val kernel = PrimitiveSimulatedPlayer(player)
+        kernel.load(states, index)
+        kernel.writeTo(player)
+        player.collisionProvider = base.collisionProvider
+        return player
+    }
+
+    /**
+     * Captures the blocks a batch from [base] runs against
+     */
+    @JvmStatic
+    fun capture(base: SimulatedPlayer, floorY: Double): CollisionSnapshot {
+        val startX = MathHelper.floor(base.pos.x)
+        val startY = MathHelper.floor(base.pos.y)
+        val startZ = MathHelper.floor(base.pos.z)
+        val region = BlockBox(
+            startX - HORIZONTAL_RADIUS, min(MathHelper.floor(floorY), startY) - DEPTH_BELOW, startZ - HORIZONTAL_RADIUS,
+            startX + HORIZONTAL_RADIUS, startY + HEIGHT_ABOVE, startZ + HORIZONTAL_RADIUS
+        )
+        return CollisionSnapshot.capture(base.player, region)
+    }
+
+    /**
+     * Ticks one candidate from where it stopped until it ends, or until a tick needs the world when that isn't allowed
+     */
+    private fun runCandidate(
+        kernel: PrimitiveSimulatedPlayer,
+        states: SimulationStates,
+        schedule: Array<SimulatedPlayerInput>,
+        index: Int,
+        maxTicks: Int,
+        floorY: Double,
+        allowLive: Boolean
+    ) {
+        states.status[index] = SimulationStates.RUNNING
+        while (states.status[index] == SimulationStates.RUNNING) {
+            if (!step(kernel, states, schedule, index, maxTicks, floorY, allowLive)) {
+                return
+            }
+        }
+    }
+
+    /**
+     * Advances one candidate by a tick, or a stretch of free fall, and records whether it ended. Returns false if
+     * the tick needed the world.
+     */
+    private fun step(
+        kernel: PrimitiveSimulatedPlayer,
+        states: SimulationStates,
+        schedule: Array<SimulatedPlayerInput>,
+        index: Int,
+        maxTicks: Int,
+        floorY: Double,
+        allowLive: Boolean
+    ): Boolean {
+        val tick = states.ticks[index]
+        kernel.input = schedule[min(tick, schedule.size - 1)]
+        kernel.load(states, index)
+
+        // Nothing can be landed on in the stretch skipped and it ends above the floor, so the candidate runs on
+        if (tick >= schedule.size - 1 && states.takeoff[index] >= 0) {
+            val skipped = kernel.skipFreeFall(maxTicks - tick, floorY)
+            if (skipped > 0) {
+                kernel.store(states, index)
+                states.ticks[index] = tick + skipped
+                states.status[index] =
+                    if (tick + skipped >= maxTicks) SimulationStates.TIMED_OUT else SimulationStates.RUNNING
+                return true
+            }
+        }
+
+        if (allowLive) {
+            kernel.tick()
+        } else if (!kernel.tickDetached()) {
+            states.status[index] = SimulationStates.LIVE
+            return false
+        }
+
+        kernel.store(states, index)
+        states.ticks[index] = tick + 1
+
+        if (!kernel.onGround && states.takeoff[index] < 0) {
+            states.takeoff[index] = tick + 1
+        }
+        states.status[index] = when {
+            kernel.y < floorY -> SimulationStates.FELL
+            kernel.onGround && states.takeoff[index] >= 0 -> SimulationStates.LANDED
+            tick + 1 >= maxTicks -> SimulationStates.TIMED_OUT
+            else -> SimulationStates.RUNNING
+        }
+        return true
+    }
+
+    private fun copyOf(input: SimulatedPlayerInput): SimulatedPlayerInput {
+        return SimulatedPlayerInput(
+            DirectionalInput(input.playerInput),
+            input.playerInput.jump,
+            input.sprinting,
+            input.playerInput.sneak
+        ).also { it.forceSafeWalk = input.forceSafeWalk }
+    }
+
+    private class Slice(val kernel: PrimitiveSimulatedPlayer, val start: Int, val end: Int)
+
+    private class SliceTask(
+        private val slices: List<Slice>,
+        private val states: SimulationStates,
+        private val schedules: Array<Array<SimulatedPlayerInput>?>,
+        private val maxTicks: Int,
+        private val floorY: Double,
+        private val from: Int,
+        private val to: Int
+    ) : RecursiveAction() {
+
+        override fun compute() {
+            if (to - from > 1) {
+                val middle = (from + to) ushr 1
+                invokeAll(
+                    SliceTask(slices, states, schedules, maxTicks, floorY, from, middle),
+                    SliceTask(slices, states, schedules, maxTicks, floorY, middle, to)
+                )
+                return
+            }
+
+            // Every candidate of the slice advances one step before any advances the next
+            val slice = slices[from]
+            var running = true
+            while (running) {
+                running = false
+                for (i in slice.start until slice.end) {
+                    if (states.status[i] == SimulationStates.RUNNING
+                        && step(slice.kernel, states, schedules[i]!!, i, maxTicks, floorY, allowLive = false)
+                        && states.status[i] == SimulationStates.RUNNING) {
+                        running = true
+                    }
+                }
+            }
+        }
+    }
+}
+
+/**
+ * State of every candidate of a [SimulationBatch], one array per field
+ */
+internal class SimulationStates(count: Int) {
+    val x = DoubleArray(count)
+    val y = DoubleArray(count)
+    val z = DoubleArray(count)
+    val velocityX = DoubleArray(count)
+    val velocityY = DoubleArray(count)
+    val velocityZ = DoubleArray(count)
+    val boxMinX = DoubleArray(count)
+    val boxMinY = DoubleArray(count)
+    val boxMinZ = DoubleArray(count)
+    val boxMaxX = DoubleArray(count)
+    val boxMaxY = DoubleArray(count)
+    val boxMaxZ = DoubleArray(count)
+    val yaw = FloatArray(count)
+    val fallDistance = FloatArray(count)
+    val jumpingCooldown = IntArray(count)
+    val flags = IntArray(count)
+    // The fluid state the reference keeps in maps, so one kernel can't carry it from one candidate to the next
+    val waterHeight = DoubleArray(count)
+    val lavaHeight = DoubleArray(count)
+
+    // Progress of each candidate
+    val ticks = IntArray(count)
+    val takeoff = IntArray(count) { -1 }
+    val status = IntArray(count)
+
+    fun fill(base: SimulatedPlayer, candidates: List<SimulationBatch.Candidate>, snapshot: CollisionSnapshot) {
+        // One kernel per start state, reading it against the snapshot so no entities are looked up
+        val kernels = IdentityHashMap<SimulatedPlayer, PrimitiveSimulatedPlayer>()
+        for (i in candidates.indices) {
+            val start = candidates[i].from ?: base
+            val kernel = kernels.getOrPut(start) {
+                PrimitiveSimulatedPlayer(start.clone().also { it.collisionProvider = snapshot })
+            }
+            kernel.store(this, i)
+            yaw[i] = candidates[i].yaw
+            flags[i] = if (candidates[i].sprinting) flags[i] or SPRINTING else flags[i] and SPRINTING.inv()
+        }
+    }
+
+    companion object {
+        const val SPRINTING = 1
+        const val JUMPING = 1 shl 1
+        const val FALL_FLYING = 1 shl 2
+        const val ON_GROUND = 1 shl 3
+        const val HORIZONTAL_COLLISION = 1 shl 4
+        const val VERTICAL_COLLISION = 1 shl 5
+        const val TOUCHING_WATER = 1 shl 6
+        const val SWIMMING = 1 shl 7
+        const val SUBMERGED_IN_WATER = 1 shl 8
+        const val CLIP_LEDGED = 1 shl 9
+        const val SUBMERGED_WATER_TAG = 1 shl 10
+        const val SUBMERGED_LAVA_TAG = 1 shl 11
+
+        const val RUNNING = 0
+        const val LANDED = 1
+        const val FELL = 2
+        const val TIMED_OUT = 3
+        // Waiting to be finished against the world
+        const val LIVE = 4
+    }
+}
@@ -0,0 +1,279 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import com.ariesninja.skulkpk.client.event.EventListener
+import com.ariesninja.skulkpk.client.event.events.BlockChangeEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkDeltaUpdateEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkLoadEvent
+import com.ariesninja.skulkpk.client.event.events.ChunkUnloadEvent
+import com.ariesninja.skulkpk.client.event.events.WorldChangeEvent
+import com.ariesninja.skulkpk.client.event.handler
+import com.ariesninja.skulkpk.client.utils.kotlin.LruCache
+import net.minecraft.entity.effect.StatusEffect
+import net.minecraft.entity.effect.StatusEffects
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.registry.entry.RegistryEntry
+import net.minecraft.registry.tag.FluidTags
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+import kotlin.math.roundToLong
+import kotlin.math.sqrt
+
+/**
+ * Simulated trajectories keyed by their quantized start state, so repeated questions about nearly the same jump
+ * read ticks that were already simulated instead of simulating again.
+ *
+ * A hit returns the trajectory of the first start state that fell into the same bucket, which is within
+ * [POSITION_STEP] of position and [VELOCITY_STEP] of velocity of the asked one, with the same collision and fluid
+ * state and the same amplifiers of the status effects the simulation reads.
+ * Trajectories are dropped when a block near them changes.
+ *
+ * Only touched from the client thread.
+ */
+object TrajectoryCache : EventListener {
+
+    const val NO_JUMP = -1
+
+    private const val POSITION_STEP = 1.0 / 256.0
+    private const val VELOCITY_STEP = 1.0 / 1024.0
+    private const val ANGLE_STEP = 0.25f
+    private const val MAX_ENTRIES = 64
+    // Same limit as SimulatedPlayerCache
+    private const val MAX_TICKS = 60 * 20
+    // Blocks around the path a tick may read, the player's box plus PrimitiveSimulatedPlayer.REACH_MARGIN
+    private const val READ_MARGIN = 5
+
+    private val trajectories = LruCache<Key, Trajectory>(MAX_ENTRIES)
+
+    @Suppress("unused")
+    private val blockChangeHandler = handler<BlockChangeEvent> { event ->
+        val pos = event.blockPos
+        trajectories.values.removeIf { it.reads(pos.x, pos.y, pos.z) }
+    }
+
+    @Suppress("unused")
+    private val chunkDeltaHandler = handler<ChunkDeltaUpdateEvent> { event ->
+        trajectories.values.removeIf { it.readsChunk(event.x, event.z) }
+    }
+
+    @Suppress("unused")
+    private val chunkLoadHandler = handler<ChunkLoadEvent> { event ->
+        trajectories.values.removeIf { it.readsChunk(event.x, event.z) }
+    }
+
+    @Suppress("unused")
+    private val chunkUnloadHandler = handler<ChunkUnloadEvent> { event ->
+        trajectories.values.removeIf { it.readsChunk(event.x, event.z) }
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        trajectories.clear()
+    }
+
+    /**
+     * Returns the trajectory of the player keeping its current input. Unless [jumpTick] is [NO_JUMP],
+     * the player jumps from the state at that tick, as SimulatedPlayer.jump() before the next tick.
+     * The player itself isn't ticked.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun get(start: SimulatedPlayer, jumpTick: Int = NO_JUMP): Trajectory {
+        // Snapshot-backed simulations don't see block changes, so they aren't shared
+        if (start.collisionProvider !== CollisionProvider.of(start.player.world)) {
+            return Trajectory(start, jumpTick)
+        }
+        return trajectories.getOrPut(Key.of(start, jumpTick)) { Trajectory(start, jumpTick) }
+    }
+
+    private data class Key(
+        val player: PlayerEntity,
+        val x: Long,
+        val y: Long,
+        val z: Long,
+        val velocityX: Long,
+        val velocityY: Long,
+        val velocityZ: Long,
+        val yaw: Int,
+        val pitch: Int,
+        val fallDistance: Int,
+        val jumpingCooldown: Int,
+        val flags: Int,
+        val waterHeight: Long,
+        val lavaHeight: Long,
+        val effects: Int,
+        val jumpTick: Int
+    ) {
+        companion object {
+            fun of(start: SimulatedPlayer, jumpTick: Int): Key {
+                val input = start.input
+                var flags = 0
+                if (input.playerInput.forward) flags = flags or 1
+                if (input.playerInput.backward) flags = flags or (1 shl 1)
+                if (input.playerInput.left) flags = flags or (1 shl 2)
+                if (input.playerInput.right) flags = flags or (1 shl 3)
+                if (input.playerInput.jump) flags = flags or (1 shl 4)
+                if (input.playerInput.sneak) flags = flags or (1 shl 5)
+                if (input.sprinting) flags = flags or (1 shl 6)
+                if (input.forceSafeWalk) flags = flags or (1 shl 7)
+                if (start.sprinting) flags = flags or (1 shl 8)
+                if (start.onGround) flags = flags or (1 shl 9)
+                if (start.isJumping) flags = flags or (1 shl 10)
+                if (start.isFallFlying) flags = flags or (1 shl 11)
+                if (start.touchingWater) flags = flags or (1 shl 12)
+                if (start.isSwimming) flags = flags or (1 shl 13)
+                if (start.horizontalCollision) flags = flags or (1 shl 14)
+                if (start.verticalCollision) flags = flags or (1 shl 15)
+                if (start.submergedInWater) flags = flags or (1 shl 16)
+                if (start.submergedFluidTag.contains(FluidTags.WATER)) flags = flags or (1 shl 17)
+                if (start.submergedFluidTag.contains(FluidTags.LAVA)) flags = flags or (1 shl 18)
+
+                // One byte per effect, 0 without it
+                val effects = effectLevel(start, StatusEffects.JUMP_BOOST) or
+                    (effectLevel(start, StatusEffects.SLOW_FALLING) shl 8) or
+                    (effectLevel(start, StatusEffects.LEVITATION) shl 16)
+
+                return Key(
+                    start.player,
+                    (start.pos.x / POSITION_STEP).roundToLong(),
+                    (start.pos.y / POSITION_STEP).roundToLong(),
+                    (start.pos.z / POSITION_STEP).roundToLong(),
+                    (start.velocity.x / VELOCITY_STEP).roundToLong(),
+                    (start.velocity.y / VELOCITY_STEP).roundToLong(),
+                    (start.velocity.z / VELOCITY_STEP).roundToLong(),
+                    (MathHelper.wrapDegrees(start.yaw) / ANGLE_STEP).roundToInt(),
+                    (start.pitch / ANGLE_STEP).roundToInt(),
+                    (start.fallDistance / POSITION_STEP).roundToInt(),
+                    start.jumpingCooldown,
+                    flags,
+                    (start.fluidHeight.getDouble(FluidTags.WATER) / POSITION_STEP).roundToLong(),
+                    (start.fluidHeight.getDouble(FluidTags.LAVA) / POSITION_STEP).roundToLong(),
+                    effects,
+                    jumpTick
+                )
+            }
+
+            private fun effectLevel(start: SimulatedPlayer, effect: RegistryEntry<StatusEffect>): Int {
+                val instance = start.player.getStatusEffect(effect) ?: return 0
+                return min(instance.amplifier + 1, 0xFF)
+            }
+        }
+    }
+
+    /**
+     * Ticks of one simulation, simulated as far as they were asked for. Tick 0 is the start state.
+     */
+    class Trajectory internal constructor(start: SimulatedPlayer, private val jumpTick: Int) {
+        private val simulation = PrimitiveSimulatedPlayer(start.clone())
+
+        private var length = 0
+        private var x = DoubleArray(32)
+        private var y = DoubleArray(32)
+        private var z = DoubleArray(32)
+        private var velocityX = DoubleArray(32)
+        private var velocityY = DoubleArray(32)
+        private var velocityZ = DoubleArray(32)
+        private var fallDistance = FloatArray(32)
+        private var onGround = BooleanArray(32)
+        private var clipLedged = BooleanArray(32)
+
+        // Blocks the simulated ticks read
+        private var minX = Int.MAX_VALUE
+        private var minY = Int.MAX_VALUE
+        private var minZ = Int.MAX_VALUE
+        private var maxX = Int.MIN_VALUE
+        private var maxY = Int.MIN_VALUE
+        private var maxZ = Int.MIN_VALUE
+
+        init {
+            record()
+        }
+
+        fun getX(tick: Int): Double = x[ensure(tick)]
+        fun getY(tick: Int): Double = y[ensure(tick)]
+        fun getZ(tick: Int): Double = z[ensure(tick)]
+        fun getVelocityX(tick: Int): Double = velocityX[ensure(tick)]
+        fun getVelocityY(tick: Int): Double = velocityY[ensure(tick)]
+        fun getVelocityZ(tick: Int): Double = velocityZ[ensure(tick)]
+        fun getFallDistance(tick: Int): Float = fallDistance[ensure(tick)]
+        fun isOnGround(tick: Int): Boolean = onGround[ensure(tick)]
+        fun isClipLedged(tick: Int): Boolean = clipLedged[ensure(tick)]
+
+        /**
+         * Position at a tick. Allocates, so keep it out of loops.
+         */
+        fun getPos(tick: Int): Vec3d {
+            val index = ensure(tick)
+            return Vec3d(x[index], y[index], z[index])
+        }
+
+        fun distanceTo(tick: Int, target: Vec3d): Double {
+            val index = ensure(tick)
+            val d = target.x - x[index]
+            val e = target.y - y[index]
+            val f = target.z - z[index]
+            return sqrt(d * d + e * e + f * f)
+        }
+
+        internal fun reads(blockX: Int, blockY: Int, blockZ: Int): Boolean {
+            return blockX in minX - READ_MARGIN..maxX + READ_MARGIN
+                && blockY in minY - READ_MARGIN..maxY + READ_MARGIN
+                && blockZ in minZ - READ_MARGIN..maxZ + READ_MARGIN
+        }
+
+        internal fun readsChunk(chunkX: Int, chunkZ: Int): Boolean {
+            return chunkX in ((minX - READ_MARGIN) shr 4)..((maxX + READ_MARGIN) shr 4)
+                && chunkZ in ((minZ - READ_MARGIN) shr 4)..((maxZ + READ_MARGIN) shr 4)
+        }
+
+        private fun ensure(tick: Int): Int {
+            require(tick in 0..MAX_TICKS) { "tick $tick is out of range" }
+            while (length <= tick) {
+                if (length - 1 == jumpTick) {
+                    simulation.jump()
+                }
+                simulation.tick()
+                record()
+            }
+            return tick
+        }
+
+        private fun record() {
+            if (length == x.size) {
+                val size = length * 2
+                x = x.copyOf(size)
+                y = y.copyOf(size)
+                z = z.copyOf(size)
+                velocityX = velocityX.copyOf(size)
+                velocityY = velocityY.copyOf(size)
+                velocityZ = velocityZ.copyOf(size)
+                fallDistance = fallDistance.copyOf(size)
+                onGround = onGround.copyOf(size)
+                clipLedged = clipLedged.copyOf(size)
+            }
+
+            x[length] = simulation.x
+            y[length] = simulation.y
+            z[length] = simulation.z
+            velocityX[length] = simulation.velocityX
+            velocityY[length] = simulation.velocityY
+            velocityZ[length] = simulation.velocityZ
+            fallDistance[length] = simulation.fallDistance
+            onGround[length] = simulation.onGround
+            clipLedged[length] = simulation.clipLedged
+            length++
+
+            val blockX = MathHelper.floor(simulation.x)
+            val blockY = MathHelper.floor(simulation.y)
+            val blockZ = MathHelper.floor(simulation.z)
+            minX = min(minX, blockX)
+            minY = min(minY, blockY)
+            minZ = min(minZ, blockZ)
+            maxX = max(maxX, blockX)
+            maxY = max(maxY, blockY)
+            maxZ = max(maxZ, blockZ)
+        }
+    }
+}
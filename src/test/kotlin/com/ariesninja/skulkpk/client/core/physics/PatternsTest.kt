@@ -0,0 +1,48 @@
+package com.ariesninja.skulkpk.client.core.physics
+
+import com.ariesninja.skulkpk.client.core.data.schemes.CompiledPattern
+import net.minecraft.util.math.BlockPos
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class PatternsTest {
+
+    private val start = BlockPos(0, 64, 0)
+
+    @Test
+    fun straightJumpsFaceTheirAxis() {
+        assertEquals(CompiledPattern.direction(-1, 0), Patterns.direction(start, BlockPos(4, 64, 0)))
+        assertEquals(CompiledPattern.direction(0, 1), Patterns.direction(start, BlockPos(0, 65, -3)))
+    }
+
+    @Test
+    fun offsetJumpsFaceTheirDominantAxis() {
+        assertEquals(CompiledPattern.direction(-1, 0), Patterns.direction(start, BlockPos(2, 64, 1)))
+        assertEquals(CompiledPattern.direction(-1, 0), Patterns.direction(start, BlockPos(3, 64, -2)))
+        assertEquals(CompiledPattern.direction(0, -1), Patterns.direction(start, BlockPos(-1, 64, 2)))
+    }
+
+    @Test
+    fun onlyExactDiagonalsFaceDiagonally() {
+        assertEquals(CompiledPattern.direction(-1, -1), Patterns.direction(start, BlockPos(2, 64, 2)))
+        assertEquals(CompiledPattern.direction(1, -1), Patterns.direction(start, BlockPos(-3, 64, 3)))
+    }
+
+    /**
+     * A (2, 1) jump off a block with another block right behind it: the straight variant sees that block, a
+     * diagonal one would only look at the empty corner
+     */
+    @Test
+    fun offsetJumpsCheckOrthogonalNeighbours() {
+        val pattern = CompiledPattern.compile("lone start", arrayOf(intArrayOf(1), intArrayOf(0)))
+        val solidity = LongArray(CompiledPattern.WORDS)
+        for (cell in intArrayOf(CompiledPattern.cell(0, 0), CompiledPattern.cell(-1, 0))) {
+            solidity[cell ushr 6] = solidity[cell ushr 6] or (1L shl (cell and 63))
+        }
+
+        assertFalse(pattern.matches(solidity, Patterns.direction(start, BlockPos(2, 64, 1))))
+        assertTrue(pattern.matches(solidity, CompiledPattern.direction(-1, -1)))
+    }
+}
@@ -0,0 +1,48 @@
+package com.ariesninja.skulkpk.client.core.search
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class RunwayFinderTest {
+
+    /**
+     * Floor up to x = 2.45 on level 64, where columns 2 and beyond hold partial shapes. The ray has to stop at the
+     * last sample that still stands, not at the end of the footprint cell that sample is in.
+     */
+    @Test
+    fun partialCellsAreTestedAtEverySample() {
+        val surface = object : RunwayFinder.Surface {
+            override fun canStand(x: Double, y: Int, z: Double) = y == 64 && x < 2.45
+
+            override fun isUniform(minX: Int, maxX: Int, y: Int, minZ: Int, maxZ: Int) = maxX < 2
+        }
+
+        val runway = RunwayFinder(surface).cast(0.5, 64, 0.5, 0.0, 0.0)
+
+        // Samples up to x = 2.4 stand, the one at 2.5 doesn't
+        assertEquals(1.9, runway.length(), 1.0E-9)
+        assertEquals(64, runway.y())
+    }
+
+    /**
+     * Within a partial cell, a sample that only stands one level up is a step, and the samples after it are
+     * tested on the new level
+     */
+    @Test
+    fun partialCellsStepUpPerSample() {
+        val surface = object : RunwayFinder.Surface {
+            override fun canStand(x: Double, y: Int, z: Double) = when {
+                x < 2.25 -> y == 64
+                x < 2.55 -> y == 65
+                else -> false
+            }
+
+            override fun isUniform(minX: Int, maxX: Int, y: Int, minZ: Int, maxZ: Int) = maxX < 2
+        }
+
+        val runway = RunwayFinder(surface).cast(0.5, 64, 0.5, 0.0, 0.0)
+
+        assertEquals(2.0, runway.length(), 1.0E-9)
+        assertEquals(65, runway.y())
+    }
+}
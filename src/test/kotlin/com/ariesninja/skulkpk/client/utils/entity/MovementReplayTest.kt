@@ -0,0 +1,48 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import java.nio.file.Path
+
+/**
+ * Replays the recordings under resources/recordings against both simulators, on the course they were recorded on.
+ * Recordings prefixed synthetic_ were computed from the vanilla formulas rather than captured, see the README there.
+ */
+class MovementReplayTest {
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun bootstrap() {
+            TestCourse.bootstrap()
+        }
+
+        private fun recording(name: String): List<RecordedTick> {
+            val resource = MovementReplayTest::class.java.getResource("/recordings/$name")
+                ?: error("Missing recording $name")
+            return MovementRecording.read(Path.of(resource.toURI()))
+        }
+    }
+
+    /**
+     * Walking forward on a flat floor from standing still, one jump on the way, then letting go of the keys.
+     * A smoke test of the replay itself, this recording wasn't captured in the game.
+     */
+    @Test
+    fun replaysSyntheticFlatWalkAndJump() {
+        val ticks = recording("synthetic_flat_walk_jump.skrec")
+        assertTrue(ticks.any { !it.has(RecordedTick.ON_GROUND) }, "the recording never leaves the ground")
+
+        val snapshot = TestCourse(-3, 3, -3, 8).snapshot()
+        val player = TestCourse.player()
+
+        val reference = MovementReplay.run(ticks, player, snapshot)
+        assertFalse(reference.ticks.isEmpty(), "nothing was replayed")
+        assertTrue(reference.isAccurate, reference.summary())
+
+        val primitive = MovementReplay.run(ticks, player, snapshot, primitive = true)
+        assertTrue(primitive.isAccurate, primitive.summary())
+    }
+}
@@ -0,0 +1,71 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import net.minecraft.block.Blocks
+import net.minecraft.block.SlabBlock
+import net.minecraft.block.enums.SlabType
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+/**
+ * Steps [PrimitiveSimulatedPlayer] and [SimulatedPlayer] side by side from the same state, and checks they end up
+ * in the same place every tick
+ */
+class PrimitiveSimulatedPlayerTest {
+
+    companion object {
+        @JvmStatic
+        @BeforeAll
+        fun bootstrap() {
+            TestCourse.bootstrap()
+        }
+    }
+
+    /**
+     * A run over a slab to step up on and off, a jump, and into a wall
+     */
+    @Test
+    fun matchesReferenceOverStepsJumpsAndWalls() {
+        val slab = Blocks.STONE_SLAB.defaultState.with(SlabBlock.TYPE, SlabType.BOTTOM)
+        val course = TestCourse(-3, 3, -3, 16)
+        for (x in -3..3) {
+            course.place(x, TestCourse.STAND_Y, 4, slab)
+            course.place(x, TestCourse.STAND_Y, 5, slab)
+            course.place(x, TestCourse.STAND_Y, 13, Blocks.STONE.defaultState)
+            course.place(x, TestCourse.STAND_Y + 1, 13, Blocks.STONE.defaultState)
+        }
+        val snapshot = course.snapshot()
+        val player = TestCourse.player()
+
+        val sprint = TestCourse.input(forward = true, sprinting = true)
+        val reference = TestCourse.standing(player, snapshot, 0.5, 0.5, 0.0f, sprint)
+        val primitive = PrimitiveSimulatedPlayer(reference.clone())
+
+        var steppedUp = false
+        var hitWall = false
+        for (tick in 0 until 60) {
+            // Sprint over the slab, jump once past it, then turn a little so the wall is hit at an angle
+            val input = if (tick == 20) TestCourse.input(forward = true, jump = true, sprinting = true) else sprint
+            val yaw = if (tick >= 25) 10.0f else 0.0f
+            reference.input = input
+            reference.yaw = yaw
+            primitive.input = input
+            primitive.yaw = yaw
+
+            reference.tick()
+            primitive.tick()
+
+            assertEquals(reference.pos.x, primitive.x, "x on tick $tick")
+            assertEquals(reference.pos.y, primitive.y, "y on tick $tick")
+            assertEquals(reference.pos.z, primitive.z, "z on tick $tick")
+            assertEquals(reference.onGround, primitive.onGround, "ground on tick $tick")
+
+            steppedUp = steppedUp || reference.onGround && reference.pos.y == TestCourse.STAND_Y + 0.5
+            hitWall = hitWall || reference.horizontalCollision
+        }
+
+        assertTrue(steppedUp, "the run never stepped up onto the slab")
+        assertTrue(hitWall, "the run never reached the wall")
+    }
+}
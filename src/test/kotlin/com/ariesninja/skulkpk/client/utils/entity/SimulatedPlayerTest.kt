@@ -0,0 +1,89 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+/**
+ * Checks that skipping free fall in closed form ends where ticking through it does
+ */
+class SimulatedPlayerTest {
+
+    companion object {
+        // The closed form sums the ticks in another order, so the last bits may differ
+        private const val TOLERANCE = 1.0E-9
+
+        @JvmStatic
+        @BeforeAll
+        fun bootstrap() {
+            TestCourse.bootstrap()
+        }
+    }
+
+    private val jump = TestCourse.input(forward = true, jump = true, sprinting = true)
+    private val sprint = TestCourse.input(forward = true, sprinting = true)
+
+    /**
+     * A sprint jump over an open floor, fast-forwarded from just after take-off by every tick count up to well
+     * past the landing
+     */
+    @Test
+    fun fastForwardMatchesTicking() {
+        val snapshot = TestCourse(-4, 4, -4, 12).snapshot()
+        val start = TestCourse.standing(TestCourse.player(), snapshot, 0.5, 0.5, 0.0f, jump)
+        start.tick()
+        start.input = sprint
+        assertFalse(start.onGround, "the jump never left the ground")
+
+        for (ticks in 1..20) {
+            val stepped = start.clone()
+            repeat(ticks) { stepped.tick() }
+            val skipped = start.clone()
+            skipped.fastForward(ticks)
+
+            assertEquals(stepped.pos.x, skipped.pos.x, TOLERANCE, "x after $ticks ticks")
+            assertEquals(stepped.pos.y, skipped.pos.y, TOLERANCE, "y after $ticks ticks")
+            assertEquals(stepped.pos.z, skipped.pos.z, TOLERANCE, "z after $ticks ticks")
+            assertEquals(stepped.velocity.x, skipped.velocity.x, TOLERANCE, "x velocity after $ticks ticks")
+            assertEquals(stepped.velocity.y, skipped.velocity.y, TOLERANCE, "y velocity after $ticks ticks")
+            assertEquals(stepped.velocity.z, skipped.velocity.z, TOLERANCE, "z velocity after $ticks ticks")
+            assertEquals(stepped.fallDistance, skipped.fallDistance, 1.0E-5f, "fall distance after $ticks ticks")
+            assertEquals(stepped.onGround, skipped.onGround, "ground after $ticks ticks")
+        }
+    }
+
+    /**
+     * The same jump as a batch candidate, whose air tail is skipped, lands on the tick and spot ticking lands on
+     */
+    @Test
+    fun batchLandsWhereTickingLands() {
+        val snapshot = TestCourse(-4, 4, -4, 12).snapshot()
+        val start = TestCourse.standing(TestCourse.player(), snapshot, 0.5, 0.5, 0.0f, sprint)
+
+        val outcome = SimulationBatch.simulate(
+            start,
+            listOf(SimulationBatch.Candidate(0.0f, listOf(jump, sprint))),
+            40,
+            TestCourse.STAND_Y - 4.0,
+            snapshot,
+            live = false
+        ).single()
+
+        val stepped = start.clone()
+        stepped.input = jump
+        stepped.tick()
+        stepped.input = sprint
+        var ticks = 1
+        while (!stepped.onGround) {
+            stepped.tick()
+            ticks++
+        }
+
+        assertEquals(SimulationBatch.Status.LANDED, outcome.status)
+        assertEquals(ticks, outcome.ticks)
+        assertEquals(stepped.pos.x, outcome.pos.x, TOLERANCE)
+        assertEquals(stepped.pos.y, outcome.pos.y, TOLERANCE)
+        assertEquals(stepped.pos.z, outcome.pos.z, TOLERANCE)
+    }
+}
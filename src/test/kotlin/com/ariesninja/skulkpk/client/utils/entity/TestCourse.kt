@@ -0,0 +1,144 @@
+package com.ariesninja.skulkpk.client.utils.entity
+
+import com.ariesninja.skulkpk.client.utils.entity.SimulatedPlayer.SimulatedPlayerInput
+import com.ariesninja.skulkpk.client.utils.movement.DirectionalInput
+import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap
+import net.minecraft.Bootstrap
+import net.minecraft.SharedConstants
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.block.ShapeContext
+import net.minecraft.block.entity.BlockEntity
+import net.minecraft.entity.EntityType
+import net.minecraft.entity.player.PlayerAbilities
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.fluid.FluidState
+import net.minecraft.item.ItemStack
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Vec3d
+import net.minecraft.world.BlockView
+import org.mockito.Mockito
+
+/**
+ * A stone floor with blocks placed on it, for running the simulators without a game.
+ * The floor's top is at [STAND_Y] and everything that wasn't placed is air.
+ */
+class TestCourse(
+    private val minX: Int,
+    private val maxX: Int,
+    private val minZ: Int,
+    private val maxZ: Int
+) : BlockView {
+
+    private val blocks = HashMap<BlockPos, BlockState>()
+
+    init {
+        for (x in minX..maxX) {
+            for (z in minZ..maxZ) {
+                blocks[BlockPos(x, STAND_Y - 1, z)] = Blocks.STONE.defaultState
+            }
+        }
+    }
+
+    fun place(x: Int, y: Int, z: Int, state: BlockState): TestCourse {
+        blocks[BlockPos(x, y, z)] = state
+        return this
+    }
+
+    override fun getBlockState(pos: BlockPos): BlockState = blocks[pos] ?: Blocks.AIR.defaultState
+
+    override fun getFluidState(pos: BlockPos): FluidState = getBlockState(pos).fluidState
+
+    override fun getBlockEntity(pos: BlockPos): BlockEntity? = null
+
+    override fun getBottomY() = -64
+
+    override fun getHeight() = 384
+
+    /**
+     * The course with a few blocks of air around it
+     */
+    fun snapshot(): CollisionSnapshot = CollisionSnapshot.capture(
+        this,
+        ShapeContext.absent(),
+        BlockBox(minX - 2, STAND_Y - 2, minZ - 2, maxX + 2, STAND_Y + 8, maxZ + 2)
+    )
+
+    companion object {
+        const val STAND_Y = 64
+
+        // Vertical velocity of a player standing still, one tick of gravity and drag
+        const val STANDING_VELOCITY_Y = (0.0 - 0.08) * 0.9800000190734863
+
+        private var bootstrapped = false
+
+        /**
+         * Loads the registries, before any block is touched
+         */
+        fun bootstrap() {
+            if (bootstrapped) {
+                return
+            }
+            SharedConstants.createGameVersion()
+            Bootstrap.initialize()
+            bootstrapped = true
+        }
+
+        /**
+         * A player to hand the simulators: vanilla's size and step height, on foot, without effects
+         */
+        fun player(): PlayerEntity {
+            val player = Mockito.mock(PlayerEntity::class.java)
+            Mockito.`when`(player.abilities).thenReturn(PlayerAbilities())
+            Mockito.`when`(player.stepHeight).thenReturn(0.6f)
+            Mockito.`when`(player.mainHandStack).thenReturn(ItemStack.EMPTY)
+            player.dimensions = EntityType.PLAYER.dimensions
+            return player
+        }
+
+        fun input(
+            forward: Boolean = false,
+            jump: Boolean = false,
+            sprinting: Boolean = false,
+            sneaking: Boolean = false
+        ) = SimulatedPlayerInput(DirectionalInput(forward, false, false, false), jump, sprinting, sneaking)
+
+        /**
+         * A player that has been standing still on the floor at x, z, facing the given yaw
+         */
+        fun standing(
+            player: PlayerEntity,
+            provider: CollisionProvider,
+            x: Double,
+            z: Double,
+            yaw: Float,
+            input: SimulatedPlayerInput
+        ): SimulatedPlayer {
+            val pos = Vec3d(x, STAND_Y.toDouble(), z)
+            return SimulatedPlayer(
+                player,
+                input,
+                pos,
+                Vec3d(0.0, STANDING_VELOCITY_Y, 0.0),
+                player.dimensions.getBoxAt(pos),
+                yaw,
+                0.0f,
+                input.sprinting,
+                0.0f,
+                0,
+                false,
+                false,
+                true,
+                false,
+                true,
+                false,
+                false,
+                false,
+                Object2DoubleArrayMap(),
+                HashSet(),
+                provider
+            )
+        }
+    }
+}